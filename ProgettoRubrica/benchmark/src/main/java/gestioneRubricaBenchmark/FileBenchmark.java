@@ -0,0 +1,218 @@
+/**
+ * @file FileBenchmark.java
+ *
+ * @brief Benchmark JMH di importazione ed esportazione della rubrica su file di 1k, 100k e 1M contatti.
+ *
+ * Oltre al file CSV vengono misurati il salvataggio e il caricamento dello snapshot binario,
+ * e l'apertura dello snapshot come archivio mappato in memoria.
+ *
+ * @see gestioneRubrica.ImportatoreRubrica
+ * @see gestioneRubrica.EsportatoreRubrica
+ * @see gestioneRubrica.SnapshotRubrica
+ * @see gestioneRubrica.ArchivioMappato
+ */
+
+package gestioneRubricaBenchmark;
+
+import gestioneRubrica.ArchivioMappato;
+import gestioneRubrica.Contatto;
+import gestioneRubrica.ImportatoreRubrica;
+import gestioneRubrica.Rubrica;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class FileBenchmark {
+
+    /**
+     * Numero di contatti della rubrica.
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int dimensione;
+
+    /**
+     * Rubrica da esportare.
+     */
+    private Rubrica rubrica;
+
+    /**
+     * Cartella temporanea dei file del benchmark.
+     */
+    private Path cartella;
+
+    /**
+     * File da importare, prodotto dall'esportazione della rubrica.
+     */
+    private String fileImportazione;
+
+    /**
+     * File su cui avviene l'esportazione.
+     */
+    private String fileEsportazione;
+
+    /**
+     * Snapshot da caricare, prodotto dal salvataggio della rubrica.
+     */
+    private String fileSnapshot;
+
+    /**
+     * @brief Costruisce la rubrica e il file da importare.
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura dei file
+     */
+    @Setup(Level.Trial)
+    public void prepara() throws IOException {
+
+        rubrica = new Rubrica();
+        rubrica.aggiungiContatti(GeneratoreContatti.genera(dimensione, 19));
+
+        cartella = Files.createTempDirectory("rubrica-benchmark");
+        fileImportazione = cartella.resolve("importazione.csv").toString();
+        fileEsportazione = cartella.resolve("esportazione.csv").toString();
+        fileSnapshot = cartella.resolve("rubrica.snapshot").toString();
+        rubrica.esportaRubrica(fileImportazione);
+        rubrica.salvaSnapshot(fileSnapshot);
+    }
+
+    /**
+     * @brief Elimina i file temporanei.
+     *
+     * @throws IOException Eccezione per la gestione di errori durante l'eliminazione dei file
+     */
+    @TearDown(Level.Trial)
+    public void pulisci() throws IOException {
+
+        Files.deleteIfExists(cartella.resolve("importazione.csv"));
+        Files.deleteIfExists(cartella.resolve("esportazione.csv"));
+        Files.deleteIfExists(cartella.resolve("rubrica.snapshot"));
+        Files.deleteIfExists(cartella.resolve("salvataggio.snapshot"));
+        Files.deleteIfExists(cartella);
+    }
+
+    /**
+     * @brief Parametri della sola importazione.
+     */
+    @State(Scope.Benchmark)
+    public static class Importazione {
+
+        /**
+         * Numero di thread usati dall'importazione.
+         */
+        @Param({"1", "4"})
+        public int thread;
+    }
+
+    /**
+     * @brief Importazione del file della rubrica.
+     *
+     * @param imp I parametri dell'importazione
+     *
+     * @return La rubrica importata
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    @Benchmark
+    public Rubrica importaRubrica(Importazione imp) throws IOException {
+        return new ImportatoreRubrica(imp.thread).importa(fileImportazione);
+    }
+
+    /**
+     * @brief Esportazione della rubrica su file.
+     *
+     * @return Il numero di contatti esportati
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    @Benchmark
+    public long esportaRubrica() throws IOException {
+        return rubrica.esportaRubrica(fileEsportazione);
+    }
+
+    /**
+     * @brief Caricamento dello snapshot binario della rubrica.
+     *
+     * @return La rubrica caricata
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    @Benchmark
+    public Rubrica caricaSnapshot() throws IOException {
+        return Rubrica.caricaSnapshot(fileSnapshot);
+    }
+
+    /**
+     * @brief Apertura dello snapshot come archivio mappato e lettura di 1000 contatti sparsi.
+     *
+     * A differenza di {@code caricaSnapshot}, il costo non dipende dal numero di contatti dello snapshot.
+     *
+     * @return L'ultimo contatto letto
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    @Benchmark
+    public Contatto apriArchivioMappato() throws IOException {
+
+        try (ArchivioMappato archivio = ArchivioMappato.apri(fileSnapshot)) {
+            Contatto c = null;
+            for (int i = 0; i < 1000; i++)
+                c = archivio.get((int) ((long) i * 7919 % archivio.dimensione()));
+            return c;
+        }
+    }
+
+    /**
+     * @brief Scorrimento della vista a pagine di uno snapshot mappato, come farebbe la tabella dell'interfaccia.
+     *
+     * Vengono lette 40 righe visibili per ognuno dei 1000 passi di scorrimento da 30 righe,
+     * a partire dalla metà dell'archivio; il costo non dipende dal numero di contatti.
+     *
+     * @return L'ultimo contatto letto
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    @Benchmark
+    public Contatto scorriVistaArchivio() throws IOException {
+
+        try (ArchivioMappato archivio = ArchivioMappato.apri(fileSnapshot)) {
+            ObservableList<Contatto> vista = archivio.getVista();
+            Contatto c = null;
+            int inizio = vista.size() / 2;
+            for (int passo = 0; passo < 1000; passo++) {
+                for (int i = 0; i < 40; i++)
+                    c = vista.get((inizio + passo * 30 + i) % vista.size());
+            }
+            return c;
+        }
+    }
+
+    /**
+     * @brief Salvataggio della rubrica in uno snapshot binario.
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    @Benchmark
+    public void salvaSnapshot() throws IOException {
+        rubrica.salvaSnapshot(cartella.resolve("salvataggio.snapshot").toString());
+    }
+}
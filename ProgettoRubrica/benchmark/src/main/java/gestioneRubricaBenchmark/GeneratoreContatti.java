@@ -0,0 +1,89 @@
+/**
+ * @file GeneratoreContatti.java
+ *
+ * @brief Generatore deterministico di contatti per i benchmark.
+ *
+ * I nominativi sono composti da sillabe e nomi italiani scelti con un generatore pseudo-casuale a seme fisso,
+ * così che ogni esecuzione dei benchmark lavori sugli stessi dati.
+ */
+
+package gestioneRubricaBenchmark;
+
+import gestioneRubrica.Contatto;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+final class GeneratoreContatti {
+
+    /**
+     * Sillabe usate per comporre i cognomi.
+     */
+    private static final String[] SILLABE = {
+        "ros", "si", "bian", "chi", "ver", "di", "ric", "ci", "co", "lom", "bo", "ma", "ri",
+        "no", "gal", "li", "con", "te", "de", "san", "to", "ro", "mo", "bar", "be", "ra"
+    };
+
+    /**
+     * Nomi propri usati per i contatti.
+     */
+    private static final String[] NOMI = {
+        "Marco", "Luca", "Giulia", "Francesca", "Alessandro", "Chiara", "Matteo", "Sara", "Lorenzo",
+        "Martina", "Andrea", "Elena", "Davide", "Valentina", "Simone", "Silvia", "Christian", "Anna",
+        "Mattia", "Laura", "Nicolò", "Federica", "Giovanni", "Alessia", "Paolo", "Ilaria", "Stefano",
+        "Roberta", "Antonio", "Beatrice", "Fabio", "Camilla"
+    };
+
+    private GeneratoreContatti() {
+    }
+
+    /**
+     * @brief Genera una lista di contatti con nominativi distinti, in ordine casuale.
+     *
+     * @param numero Il numero di contatti da generare
+     * @param seme Il seme del generatore pseudo-casuale
+     *
+     * @return I contatti generati
+     */
+    static List<Contatto> genera(int numero, long seme) {
+
+        Random random = new Random(seme);
+        Set<Contatto> nominativi = new HashSet<>();
+        List<Contatto> contatti = new ArrayList<>(numero);
+
+        while (contatti.size() < numero) {
+
+            Contatto c = new Contatto();
+            c.setCognome(cognome(random));
+            c.setNome(NOMI[random.nextInt(NOMI.length)]);
+            c.setNumero1(String.format("3%09d", random.nextInt(1_000_000_000)));
+            if (random.nextInt(4) == 0)
+                c.setEmail1(c.getNome().toLowerCase() + "@example.com");
+
+            if (nominativi.add(c))
+                contatti.add(c);
+        }
+
+        return contatti;
+    }
+
+    /**
+     * @brief Compone un cognome da due a cinque sillabe.
+     *
+     * @param random Il generatore pseudo-casuale
+     *
+     * @return Il cognome generato
+     */
+    private static String cognome(Random random) {
+
+        StringBuilder sb = new StringBuilder();
+        int sillabe = 2 + random.nextInt(4);
+        for (int i = 0; i < sillabe; i++)
+            sb.append(SILLABE[random.nextInt(SILLABE.length)]);
+
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        return sb.toString();
+    }
+}
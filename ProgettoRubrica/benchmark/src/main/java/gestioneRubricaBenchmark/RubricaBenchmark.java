@@ -0,0 +1,245 @@
+/**
+ * @file RubricaBenchmark.java
+ *
+ * @brief Benchmark JMH delle operazioni di Rubrica su rubriche di 1k, 100k e 1M contatti.
+ *
+ * Le operazioni che modificano la rubrica (aggiunta e rimozione) ripristinano lo stato iniziale
+ * in un metodo di setup di livello {@code Invocation}, escluso dalla misura: per le rubriche più piccole,
+ * dove la singola operazione dura pochi microsecondi, il risultato include quindi un piccolo errore sistematico
+ * dovuto alla gestione dei timestamp di JMH.
+ *
+ * @see gestioneRubrica.Rubrica
+ */
+
+package gestioneRubricaBenchmark;
+
+import gestioneRubrica.Contatto;
+import gestioneRubrica.Rubrica;
+import gestioneRubrica.ValidatoreContatto;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class RubricaBenchmark {
+
+    /**
+     * Numero di contatti della rubrica.
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int dimensione;
+
+    /**
+     * Rubrica su cui vengono eseguite le operazioni.
+     */
+    private Rubrica rubrica;
+
+    /**
+     * Contatti della rubrica in ordine casuale, usati come input dell'ordinamento.
+     */
+    private List<Contatto> mescolati;
+
+    /**
+     * Contatto non presente in rubrica, usato dal benchmark di aggiunta.
+     */
+    private Contatto nuovo;
+
+    /**
+     * Lista contenente il contatto da rimuovere nel benchmark di rimozione.
+     */
+    private ObservableList<Contatto> daRimuovere;
+
+    /**
+     * @brief Costruisce la rubrica e i dati di input.
+     */
+    @Setup(Level.Trial)
+    public void preparaRubrica() {
+
+        mescolati = GeneratoreContatti.genera(dimensione + 1, 19);
+        nuovo = mescolati.remove(mescolati.size() - 1);
+
+        rubrica = new Rubrica();
+        rubrica.aggiungiContatti(mescolati);
+
+        //contatto a metà rubrica, rimosso e reinserito ad ogni invocazione
+        daRimuovere = FXCollections.observableArrayList(rubrica.getContactList().get(dimensione / 2));
+    }
+
+    /**
+     * @brief Stato delle operazioni che modificano la rubrica, ripristinata prima di ogni invocazione.
+     */
+    @State(Scope.Benchmark)
+    public static class Modifica {
+
+        /**
+         * @brief Riporta la rubrica allo stato iniziale.
+         *
+         * @param b Lo stato principale del benchmark
+         */
+        @Setup(Level.Invocation)
+        public void ripristina(RubricaBenchmark b) {
+
+            if (b.rubrica.contieneNominativo(b.nuovo.getNome(), b.nuovo.getCognome()))
+                b.rubrica.rimuoviContatto(FXCollections.observableArrayList(b.nuovo));
+
+            Contatto rimosso = b.daRimuovere.get(0);
+            if (!b.rubrica.contieneNominativo(rimosso.getNome(), rimosso.getCognome()))
+                b.rubrica.aggiungiContatto(rimosso);
+        }
+    }
+
+    /**
+     * @brief Stato del benchmark di ordinamento, con una copia mescolata dei contatti ricreata prima di ogni invocazione.
+     */
+    @State(Scope.Benchmark)
+    public static class Ordinamento {
+
+        /**
+         * Copia di lavoro ordinata dal benchmark.
+         */
+        private List<Contatto> daOrdinare;
+
+        /**
+         * @brief Ricrea la copia mescolata dei contatti.
+         *
+         * @param b Lo stato principale del benchmark
+         */
+        @Setup(Level.Invocation)
+        public void mescola(RubricaBenchmark b) {
+            daOrdinare = new ArrayList<>(b.mescolati);
+        }
+    }
+
+    /**
+     * @brief Aggiunta di un contatto nella posizione ordinata.
+     *
+     * @param m Lo stato di ripristino della rubrica
+     *
+     * @return L'esito dell'aggiunta
+     */
+    @Benchmark
+    public int aggiungiContatto(Modifica m) {
+        return rubrica.aggiungiContatto(nuovo);
+    }
+
+    /**
+     * @brief Rimozione di un contatto dalla rubrica.
+     *
+     * @param m Lo stato di ripristino della rubrica
+     *
+     * @return L'esito della rimozione
+     */
+    @Benchmark
+    public boolean rimuoviContatto(Modifica m) {
+        return rubrica.rimuoviContatto(daRimuovere);
+    }
+
+    /**
+     * @brief Ricerca con un prefisso corto, che corrisponde a molti contatti.
+     *
+     * @return La rubrica dei risultati
+     */
+    @Benchmark
+    public Rubrica ricercaPrefissoCorto() {
+        return rubrica.ricercaContatti("ma");
+    }
+
+    /**
+     * @brief Ricerca con un prefisso lungo, che corrisponde a pochi contatti.
+     *
+     * @return La rubrica dei risultati
+     */
+    @Benchmark
+    public Rubrica ricercaPrefissoLungo() {
+        return rubrica.ricercaContatti("rossibianchi");
+    }
+
+    /**
+     * @brief Aggiornamento della vista di ricerca con un prefisso corto.
+     *
+     * @return Il numero di contatti mostrati dalla vista
+     */
+    @Benchmark
+    public int vistaRicercaPrefissoCorto() {
+        rubrica.impostaRicerca("ma");
+        return rubrica.getVistaRicerca().size();
+    }
+
+    /**
+     * @brief Ricerca digitata un carattere alla volta, in cui ogni ricerca restringe i risultati della precedente.
+     *
+     * Il tempo misurato comprende le tre ricerche e il ritorno alla rubrica intera.
+     *
+     * @return Il numero di contatti mostrati dalla vista dopo l'ultimo carattere
+     */
+    @Benchmark
+    public int vistaRicercaDigitazione() {
+        rubrica.impostaRicerca("m");
+        rubrica.impostaRicerca("ma");
+        rubrica.impostaRicerca("mar");
+        int trovati = rubrica.getVistaRicerca().size();
+        rubrica.impostaRicerca("");
+        return trovati;
+    }
+
+    /**
+     * @brief Prima ricerca con un prefisso lungo, che corrisponde a pochi contatti, e ritorno alla rubrica intera.
+     *
+     * @return Il numero di contatti mostrati dalla vista
+     */
+    @Benchmark
+    public int vistaRicercaPrefissoLungo() {
+        rubrica.impostaRicerca("rossibianchi");
+        int trovati = rubrica.getVistaRicerca().size();
+        rubrica.impostaRicerca("");
+        return trovati;
+    }
+
+    /**
+     * @brief Validazione di tutti i contatti con le regole dell'interfaccia, come durante un'importazione.
+     *
+     * @return Il numero di contatti validi
+     */
+    @Benchmark
+    public int validazione() {
+        int validi = 0;
+        for (Contatto c : mescolati) {
+            if (ValidatoreContatto.valido(c))
+                validi++;
+        }
+        return validi;
+    }
+
+    /**
+     * @brief Ordinamento di tutti i contatti, in ordine casuale, tramite {@code Contatto.compareTo}.
+     *
+     * @param o Lo stato con la copia mescolata dei contatti
+     *
+     * @return La lista ordinata
+     */
+    @Benchmark
+    public List<Contatto> ordinamento(Ordinamento o) {
+        Collections.sort(o.daOrdinare);
+        return o.daOrdinare;
+    }
+}
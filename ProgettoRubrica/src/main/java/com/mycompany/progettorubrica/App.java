@@ -17,9 +17,17 @@
  */
 package com.mycompany.progettorubrica;
 
+import controller.RubricaController;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import static javafx.application.Application.launch;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -27,10 +35,31 @@ import javafx.stage.Stage;
 
 
 public class App extends Application {
+    
+    /**
+     * Proprietà di sistema che avvia l'applicazione in modalità di addestramento: dopo il primo frame
+     * e il caricamento dei file fxml precaricati l'applicazione termina. Viene usata dal profilo "appcds"
+     * per registrare le classi caricate durante l'avvio; la rubrica salvata dell'utente non viene aperta.
+     */
+    private static final String ADDESTRAMENTO = "rubrica.addestramento";
+    
+    /**
+     * File fxml caricati in anticipo in background, per nome.
+     */
+    private static final Map<String, FutureTask<FXMLLoader>> precaricati = new ConcurrentHashMap<>();
+    
+    /**
+     * Controller della schermata principale, a cui viene notificata la chiusura dell'applicazione.
+     */
+    private RubricaController controller;
+    
     /**
      * @brief Metodo standard per l'avvio del programma
      * 
-     * Questo metodo  permette l'inizializzazione dell'interfaccia grafica di JavaFX
+     * Questo metodo  permette l'inizializzazione dell'interfaccia grafica di JavaFX.
+     * Vengono misurate le fasi dell'avvio, dall'avvio della JVM al primo frame; il caricamento di Rubrica.fxml
+     * comprende l'apertura della rubrica salvata. Dopo il primo frame il file fxml della finestra di aggiunta
+     * di un contatto viene caricato in background.
      * 
      * @param stage La finestra sulla quale mostrare l'interfaccia grafica
      * 
@@ -38,10 +67,71 @@ public class App extends Application {
      */
     @Override
     public void start(Stage stage) throws IOException {
-        Scene scene = new Scene(loadFXML("Rubrica"));
+        TempiAvvio tempi = new TempiAvvio();
+        tempi.fase("JVM e JavaFX");
+        
+        FXMLLoader fxmlLoader = getFXML("Rubrica");
+        Scene scene = new Scene(fxmlLoader.load());
+        controller = fxmlLoader.getController();
+        tempi.fase("Rubrica.fxml");
+        
+        //applico i fogli di stile prima della visualizzazione, che altrimenti li applicherebbe comunque
+        scene.getRoot().applyCss();
+        tempi.fase("CSS");
+        
         stage.setScene(scene);
         stage.show();
         scene.getRoot().requestFocus();
+        tempi.fase("finestra");
+        
+        //il primo impulso di animazione segue la visualizzazione della finestra
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                tempi.fase("primo frame");
+                System.out.println(tempi.riepilogo());
+                
+                precaricaFXML("Contatto");
+                if(isAddestramento())
+                    Platform.runLater(App::terminaAddestramento);
+            }
+        }.start();
+    }
+    
+    /**
+     * @brief Indica se l'applicazione è stata avviata in modalità di addestramento.
+     * 
+     * In questa modalità l'avvio non deve leggere né scrivere i file dell'utente, come la rubrica salvata,
+     * perché viene eseguito dalla build sulla macchina di chi la lancia.
+     * 
+     * @return {@code true} se è impostata la proprietà di sistema "rubrica.addestramento", {@code false} altrimenti
+     */
+    public static boolean isAddestramento() {
+        return Boolean.getBoolean(ADDESTRAMENTO);
+    }
+    
+    /**
+     * @brief Termina l'avvio in modalità di addestramento, dopo aver usato i file fxml precaricati.
+     */
+    private static void terminaAddestramento() {
+        try {
+            caricaFXML("Contatto");
+        } catch (IOException e) {
+            System.err.println("Errore durante il caricamento di Contatto.fxml: " + e.getMessage());
+        }
+        Platform.exit();
+    }
+
+    /**
+     * @brief Metodo standard per la chiusura del programma
+     * 
+     * Questo metodo salva le modifiche della rubrica non ancora scritte su file
+     */
+    @Override
+    public void stop() {
+        if(controller != null)
+            controller.chiudi();
     }
 
     /**
@@ -72,6 +162,64 @@ public class App extends Application {
     public static FXMLLoader getFXML(String fxml){
         return new FXMLLoader(App.class.getResource(fxml+".fxml"));
     }
+    
+    /**
+     * @brief Avvia in background il caricamento di un file fxml, che verrà restituito da {@code caricaFXML}
+     * 
+     * Il caricamento in background carica le classi e crea i nodi e il controller del file, che non
+     * devono quindi usare il thread dell'interfaccia durante l'inizializzazione.
+     * 
+     * @param fxml Nome del file fxml da caricare
+     */
+    public static void precaricaFXML(String fxml){
+        
+        FutureTask<FXMLLoader> caricamento = new FutureTask<>(() -> {
+            FXMLLoader f = getFXML(fxml);
+            f.load();
+            return f;
+        });
+        if(precaricati.putIfAbsent(fxml, caricamento) != null) //caricamento già in corso
+            return;
+        
+        Thread thread = new Thread(caricamento, "rubrica-precaricamento-" + fxml);
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * @brief Metodo per l'ottenimento di un file fxml già caricato
+     * 
+     * Se il file è stato precaricato viene restituito il caricamento in background (attendendone la fine)
+     * e ne viene avviato un altro per l'invocazione successiva; altrimenti il file viene caricato subito.
+     * 
+     * @param fxml Nome del file fxml da ottenere
+     * 
+     * @return L'oggetto FXMLLoader associato al file fxml, di cui sono già disponibili nodo e controller
+     * 
+     * @throws IOException Eccezione del caricamento del file fxml
+     */
+    public static FXMLLoader caricaFXML(String fxml) throws IOException {
+        
+        FutureTask<FXMLLoader> caricamento = precaricati.remove(fxml);
+        if(caricamento == null){ //file non precaricato
+            FXMLLoader f = getFXML(fxml);
+            f.load();
+            return f;
+        }
+        
+        try {
+            return caricamento.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Caricamento di " + fxml + ".fxml interrotto");
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException("Errore durante il caricamento di " + fxml + ".fxml", e.getCause());
+        } finally {
+            precaricaFXML(fxml);
+        }
+    }
 
     /**
      * @brief Metodo standard di java
@@ -0,0 +1,23 @@
+/**
+ * @file Avvio.java
+ *
+ * @brief Punto di ingresso del jar eseguibile dell'applicazione.
+ *
+ * Se la classe principale di un jar estende {@code Application}, la JVM richiede i moduli di JavaFX
+ * sul module path e rifiuta l'avvio con JavaFX sul classpath, come nel jar unico del profilo "appcds".
+ * Questa classe non estende {@code Application} e si limita ad avviare {@link App}.
+ */
+
+package com.mycompany.progettorubrica;
+
+public class Avvio {
+
+    /**
+     * @brief Avvia l'applicazione.
+     *
+     * @param args eventuali argomenti passati da riga-comando
+     */
+    public static void main(String[] args) {
+        App.main(args);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * @file TempiAvvio.java
+ *
+ * @brief Misura della durata delle fasi di avvio dell'applicazione.
+ *
+ * Ogni fase termina quando viene segnata e dura dalla fine della fase precedente; la prima fase
+ * parte dall'avvio della JVM. Al termine dell'avvio il riepilogo viene stampato su una sola riga,
+ * così i tempi delle diverse postazioni possono essere confrontati direttamente.
+ */
+
+package com.mycompany.progettorubrica;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+final class TempiAvvio {
+
+    /**
+     * Nomi delle fasi segnate, nell'ordine.
+     */
+    private final List<String> fasi = new ArrayList<>();
+
+    /**
+     * Durata delle fasi segnate, in millisecondi.
+     */
+    private final List<Long> durate = new ArrayList<>();
+
+    /**
+     * Istante di fine dell'ultima fase, in nanosecondi.
+     */
+    private long ultimaFase;
+
+    /**
+     * @brief Costruttore della misura, che parte dall'avvio della JVM.
+     */
+    TempiAvvio() {
+        long dallAvvioJVM = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        this.ultimaFase = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(dallAvvioJVM);
+    }
+
+    /**
+     * @brief Segna la fine di una fase dell'avvio.
+     *
+     * @param nome Il nome della fase
+     */
+    void fase(String nome) {
+        long adesso = System.nanoTime();
+        fasi.add(nome);
+        durate.add(TimeUnit.NANOSECONDS.toMillis(adesso - ultimaFase));
+        ultimaFase = adesso;
+    }
+
+    /**
+     * @brief Restituisce il riepilogo delle fasi segnate.
+     *
+     * @return Il tempo totale dall'avvio della JVM e la durata di ogni fase
+     */
+    String riepilogo() {
+
+        long totale = 0;
+        StringBuilder dettaglio = new StringBuilder();
+        for (int i = 0; i < fasi.size(); i++) {
+            totale += durate.get(i);
+            dettaglio.append(i == 0 ? "" : ", ").append(fasi.get(i)).append(' ').append(durate.get(i)).append(" ms");
+        }
+        return "Avvio in " + totale + " ms: " + dettaglio;
+    }
+}
@@ -21,10 +21,9 @@ package controller;
 import gestioneRubrica.Avviso;
 import gestioneRubrica.Contatto;
 import gestioneRubrica.Rubrica;
+import gestioneRubrica.ValidatoreContatto;
 import java.net.URL;
-import java.util.Collections;
 import java.util.ResourceBundle;
-import java.util.regex.Pattern;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.fxml.FXML;
@@ -162,7 +161,7 @@ public class ContattoController implements Initializable {
 
         //gestione eventi da tastiera
         contactPane.setOnKeyPressed(event -> {
-            if (event.getCode() == javafx.scene.input.KeyCode.ENTER) //gestione evento tasto ENTER
+            if (event.getCode() == javafx.scene.input.KeyCode.ENTER && confirmButton.isVisible()) //gestione evento tasto ENTER
                 confirmButton.fire(); // Simula un click sul bottone confirm
 
             else if(event.getCode() == javafx.scene.input.KeyCode.ESCAPE && exitButton.isVisible())  //gestione evento tasto ESCAPE
@@ -255,6 +254,25 @@ public class ContattoController implements Initializable {
         
     }
 
+    /**
+     * @brief Configura il controller per la sola visualizzazione di un contatto.
+     *
+     * @param c il contatto da visualizzare, ad esempio letto da un archivio in consultazione.
+     *
+     * Il contatto non appartiene alla rubrica gestita, quindi il bottone di modifica viene nascosto.
+     *
+     * @pre c non deve essere null.
+     *
+     * @post il controller conterrà le informazioni del contatto, senza possibilità di modificarle
+     */
+    public void setController(Contatto c) {
+
+        setController(c, null, null);
+
+        //rendo invisibile il bottone di modifica
+        modifyButton.setVisible(false);
+    }
+
     /**
      * @brief Gestisce l'interazione con i campi di testo
      *
@@ -281,57 +299,6 @@ public class ContattoController implements Initializable {
 
     }
     
-    /**
-     * @brief Controllo numero di telefono
-     * 
-     * Questo metodo permette il controllo di una stringa per accertarsi sia un numero di telefono
-     * 
-     * @param number La stringa da controllare
-     * @return Il risultato del controllo, [@code false} in caso negativo, ovvero se la stringa non è un numero di telefono; {@code true} altrimenti
-     */
-    private boolean numberControl(String number){
-        
-        
-          if(number.isEmpty()){ //controllo che la stringa sia vuota
-            return true;
-        }
-        
-        
-        if(number.length() != 10) //controllo della lunghezza della stringa
-            return false;
-        
-        
-        for(int i = 0 ; i < 10 ; i++){ //controllo che i caratteri della stringa siano numeri
-            if(!Character.isDigit(number.charAt(i)))
-                return false;
-        }
-        
-        return true;
-    
-    
-    }
-    
-    /**
-     * @brief Controllo nominativo inserito
-     * 
-     * Questo metodo permette di controllare che le stringhe nome e cognome siano un nominativo valido, ovvero contenenti solo lettere
-     * 
-     * @param name La stringa nome da controllare
-     * @param surname La stringa cognome da controllare
-     * 
-     * @pre Almeno una tra le stringhe passate non deve essere vuota
-     * @pre Le stringhe non devono essere null
-     * 
-     * @post Ritorno risultato del controllo
-     * 
-     * @return Il risultato del controllo
-     */
-    private boolean nominativeControl(String name, String surname){
-        if (!name.isEmpty() && !Character.isLetter(name.charAt(0))) //controllo primo carattere del nome
-            return false;
-        return !( !surname.isEmpty() && !Character.isLetter(surname.charAt(0)) ); //controllo primo carattere del cognome
-    }
-
     /**
      * @brief Conferma le modifiche al contatto.
      *
@@ -362,19 +329,14 @@ public class ContattoController implements Initializable {
            
 
         
-        if (!nominativeControl(nameField.getText(), surnameField.getText())) {
+        if (!ValidatoreContatto.nominativoValido(nameField.getText(), surnameField.getText())) {
             Avviso.errore("Errore","Errore Nominativi","Nominativi inseriti erroneamente");
             flag = false;
         }
 
                 
     
-        if (!(numberControl(number1Field.getText())
-        && numberControl(number2Field.getText())
-        && numberControl(number3Field.getText())
-        && mailControl(email1Field.getText())
-        && mailControl(email2Field.getText())
-        && mailControl(email3Field.getText()))){
+        if (!ValidatoreContatto.recapitiValidi(numeriInseriti(), emailInserite())){
             Avviso.errore("Errore","Errore Recapiti","Recapiti inseriti erroneamente");
             flag = false;
         }
@@ -426,47 +388,34 @@ public class ContattoController implements Initializable {
             return;
         }   
         
+        //controllo che il contatto appartenga alla rubrica (non è in sola visualizzazione)
+        if (rubricaPointer == null) {
+            System.out.println("Contatto in sola visualizzazione.");
+            return;
+        }
+        
         //controllo nominativi
-        if (!nominativeControl(nameField.getText(), surnameField.getText())) { 
+        if (!ValidatoreContatto.nominativoValido(nameField.getText(), surnameField.getText())) { 
                 Avviso.errore("Errore", "Errore Nominativi","Nominativi modificati erroneamente");
                 return;
             }
         
         //controllo recapiti
-        if (!(numberControl(number1Field.getText()) 
-            && numberControl(number2Field.getText())
-            && numberControl(number3Field.getText())
-            && mailControl(email1Field.getText())
-            && mailControl(email2Field.getText())
-            && mailControl(email3Field.getText()))){
+        String[] numeri = numeriInseriti();
+        String[] emails = emailInserite();
+        if (!ValidatoreContatto.recapitiValidi(numeri, emails)){
     
             Avviso.errore("Errore", "Errore Recapiti","Recapiti modificati erroneamente");
             return;
         }
             
-        //creo contatto temporaneo per controllo omonimia
-        Contatto temp = new Contatto();
-        temp.setNome(nameField.getText());
-        temp.setCognome(surnameField.getText());
-
-        //controllo la modifica effettuata
-        if(!(contactPointer.getNome().equals(nameField.getText()) && contactPointer.getCognome().equals(surnameField.getText()))
-            && rubricaPointer.getContactList().contains(temp)){
+        //modifico nominativo e recapiti tramite la rubrica, che controlla l'omonimia sull'indice dei nominativi,
+        //riordina il contatto e registra la modifica nel giornale con una sola scrittura
+        if(!rubricaPointer.modificaContatto(contactPointer, nameField.getText(), surnameField.getText(), numeri, emails)){
             Avviso.info("Avviso", "Omonimia", "Contatto già esistente in rubrica");
             return;
         }       
 
-        //modifico contatto e riordino rubrica
-        contactPointer.setNome(nameField.getText());
-        contactPointer.setCognome(surnameField.getText());
-        contactPointer.setEmail1(email1Field.getText());
-        contactPointer.setEmail2(email2Field.getText());
-        contactPointer.setEmail3(email3Field.getText());
-        contactPointer.setNumero1(number1Field.getText());
-        contactPointer.setNumero2(number2Field.getText());
-        contactPointer.setNumero3(number3Field.getText());
-
-        Collections.sort(rubricaPointer.getContactList());
         //disabilito tutti i campi una volta assegnati i loro valori
         disableModify(true);
 
@@ -493,25 +442,20 @@ public class ContattoController implements Initializable {
     }
     
     /**
-     * @brief Controllo indirizzo posta elettronica
+     * @brief Restituisce i numeri di telefono inseriti nei campi di testo.
      * 
-     * Questo metodo permette di controllare che la stringa passata sia concorde con le regole generali
-     * di un indirizzo mail
+     * @return Il contenuto dei tre campi dei numeri
+     */
+    private String[] numeriInseriti(){
+        return new String[]{number1Field.getText(), number2Field.getText(), number3Field.getText()};
+    }
+    
+    /**
+     * @brief Restituisce gli indirizzi email inseriti nei campi di testo.
      * 
-     * @param mail La stringa da controllare
-     * @return Il risultato del controllo
+     * @return Il contenuto dei tre campi degli indirizzi email
      */
-    private boolean mailControl(String mail){
-        if (mail.isEmpty()) //controllo che la stringa sia vuota
-            return true;
-        
-        //genero una stringa contenente le regole generali di un indirizzo e-mail
-        String emailRegex = "^[a-zA-Z-.0-9]+@[a-z]+[.]+[a-zA-Z]{2,}$"; 
-       
-        //creo un oggetto di tipo Pattern per rendere utilizzabile e confrontabile la stringa emailRegex
-        Pattern pattern = Pattern.compile(emailRegex);
-      
-        //controllo che la stringa segua le regole definite in emailRegex
-        return pattern.matcher(mail).matches();
+    private String[] emailInserite(){
+        return new String[]{email1Field.getText(), email2Field.getText(), email3Field.getText()};
     }
 }
@@ -14,34 +14,50 @@
 package controller;
 
 import com.mycompany.progettorubrica.App;
+import gestioneRubrica.ArchivioColonnare;
+import gestioneRubrica.ArchivioContatti;
+import gestioneRubrica.ArchivioMappato;
 import gestioneRubrica.Avviso;
 import gestioneRubrica.Contatto;
+import gestioneRubrica.EsportatoreRubrica;
+import gestioneRubrica.ImportatoreRubrica;
+import gestioneRubrica.MonitorAvanzamento;
+import gestioneRubrica.PersistenzaRubrica;
 import gestioneRubrica.Rubrica;
+import gestioneRubrica.SalvataggioAutomatico;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 public class RubricaController implements Initializable {
 
@@ -51,6 +67,13 @@ public class RubricaController implements Initializable {
     @FXML
     private StackPane contattoPane;
     
+    /**
+     * Interfaccia del contatto inclusa nel pannello del contatto, caricata una sola volta e riutilizzata
+     * per ogni contatto visualizzato.
+     */
+    @FXML
+    private StackPane contatto;
+    
     /**
      * Tabella visualizzazione dei contatti.
      */
@@ -93,6 +116,12 @@ public class RubricaController implements Initializable {
     @FXML
     private javafx.scene.control.Button exportButton;
     
+    /**
+     * Bottone per l'apertura in consultazione di uno snapshot e per la sua chiusura.
+     */
+    @FXML
+    private javafx.scene.control.Button consultaButton;
+    
     /**
      * Bottone per la ricerca di contatti all'interno della rubrica.
      */
@@ -116,15 +145,75 @@ public class RubricaController implements Initializable {
      */
     @FXML
     private javafx.scene.control.Button exitButton;
+    
+    /**
+     * Barra di avanzamento di importazione ed esportazione, visibile solo durante l'operazione.
+     */
+    @FXML
+    private HBox progressBox;
+    
+    /**
+     * Indicatore dell'avanzamento dell'operazione in corso.
+     */
+    @FXML
+    private ProgressBar progressBar;
+    
+    /**
+     * Etichetta con il numero di contatti elaborati dall'operazione in corso.
+     */
+    @FXML
+    private Label progressLabel;
+    
+    /**
+     * Bottone per l'annullamento dell'operazione in corso.
+     */
+    @FXML
+    private javafx.scene.control.Button cancelButton;
+    
+    /**
+     * Operazione di importazione o esportazione in corso, o null se non ce ne sono.
+     */
+    private Task<?> operazioneInCorso;
+    
+    /**
+     * Attesa dopo l'ultimo carattere digitato prima di aggiornare la ricerca (debounce).
+     */
+    private PauseTransition attesaRicerca;
             
     /**
      * Puntatore alla rubrica gestita.
      */
     private Rubrica rubricaPointer;
     
+    /**
+     * Intervallo minimo, in millisecondi, tra due salvataggi completi della rubrica.
+     */
+    private static final long INTERVALLO_SALVATAGGIO = 30 * 1000;
+    
+    /**
+     * Salvataggio della rubrica gestita (snapshot e giornale delle modifiche), o null se non è stato possibile aprirlo.
+     */
+    private PersistenzaRubrica persistenza;
+    
+    /**
+     * Salvataggio automatico in background della rubrica gestita, o null se la rubrica non viene salvata.
+     */
+    private SalvataggioAutomatico salvataggio;
+    
+    /**
+     * Numero massimo di risultati della ricerca nell'archivio in consultazione.
+     */
+    private static final int MASSIMO_RISULTATI = 10000;
+    
+    /**
+     * Archivio in consultazione, mostrato nella tabella al posto della rubrica, o null se non ce n'è uno aperto.
+     */
+    private ArchivioContatti archivioConsultato;
+    
     /**
      * Puntatore al controller visualizzato sul "pannello del contatto".
      */
+    @FXML
     ContattoController contattoController;
 
     /**
@@ -143,14 +232,21 @@ public class RubricaController implements Initializable {
         //rendo invisibile il pannello del contatto
         contattoPane.setVisible(false);
         
-        //creo la rubrica su cui lavorare
-        this.rubricaPointer = new Rubrica();
+        //apro la rubrica salvata, riapplicando le modifiche registrate nel giornale dopo l'ultimo salvataggio;
+        //l'avvio di addestramento della build usa una rubrica vuota e non salvata, senza toccare i file dell'utente
+        this.rubricaPointer = App.isAddestramento() ? new Rubrica() : apriRubricaSalvata();
+        //le ricerche ampie vengono calcolate in background e pubblicate sul thread dell'interfaccia
+        rubricaPointer.setThreadRicerca(Platform::runLater);
         
          
        //lego le colonne della tabella ai campi nome e cognome dei contatti della rubrica 
         nomeClm.setCellValueFactory(s -> { return new SimpleStringProperty(s.getValue().getNome()); });
         cognomeClm.setCellValueFactory(new PropertyValueFactory("cognome"));  
-        rubricaList.setItems(rubricaPointer.getContactList());
+        //le viste legate alla tabella sono già ordinate per cognome e nome e non sono modificabili, quindi
+        //un ordinamento dalle intestazioni non avrebbe effetto: le colonne non sono ordinabili
+        cognomeClm.setSortable(false);
+        nomeClm.setSortable(false);
+        rubricaList.setItems(rubricaPointer.getVistaRicerca());
         
         //permetto la selezione multipla di contatti all'interno della tabella (CTRL + clickMouse)
         rubricaList.getSelectionModel().setSelectionMode(javafx.scene.control.SelectionMode.MULTIPLE);
@@ -159,15 +255,16 @@ public class RubricaController implements Initializable {
         resetResearch.visibleProperty().bind(Bindings.createBooleanBinding(
                 () -> (!researchField.getText().isEmpty()), researchField.textProperty()));
         
+        //ricerca durante la digitazione: ogni carattere riavvia l'attesa, quindi viene eseguita solo l'ultima ricerca
+        attesaRicerca = new PauseTransition(Duration.millis(150));
+        attesaRicerca.setOnFinished(event -> aggiornaRicerca());
+        researchField.textProperty().addListener((obs, vecchioTesto, nuovoTesto) -> attesaRicerca.playFromStart());
+        
        
         //gestisco L'evento di selezione singola e multipla dei contatti e lo associo alla tabella
         EventHandler<MouseEvent> ClickHandler = event ->{
             if(!event.isControlDown())
-                try {
-                    openContact(null); //apre lo studente
-            } catch (IOException ex) {
-                Logger.getLogger(RubricaController.class.getName()).log(Level.SEVERE, null, ex);
-            }
+                openContact(null); //apre il contatto
 
         };
         rubricaList.setOnMouseClicked(ClickHandler);
@@ -198,9 +295,9 @@ public class RubricaController implements Initializable {
     @FXML
     private void add(javafx.event.ActionEvent event) throws IOException {
         
-        //Operazioni per apertura finestra di creazione
-        FXMLLoader f = App.getFXML("Contatto");
-        Parent root = f.load();
+        //Operazioni per apertura finestra di creazione, con il file fxml caricato in background dopo l'avvio
+        FXMLLoader f = App.caricaFXML("Contatto");
+        Parent root = f.getRoot();
         Stage stage = new Stage();
         Scene scene = new Scene(root);
         stage.setScene(scene);
@@ -229,14 +326,70 @@ public class RubricaController implements Initializable {
     @FXML
     private void research(javafx.event.ActionEvent event) {
     
-    if(!researchField.getText().isEmpty()) //controllo che la barra ricerca sia vuota
+    //aggiorno subito la ricerca, senza attendere la fine della digitazione
+    attesaRicerca.stop();
+    aggiornaRicerca();
+ 
+    }
+    
+    /**
+     * @brief Aggiorna la vista legata alla tabella con il testo del campo di ricerca.
+     * 
+     * Con la barra di ricerca vuota viene visualizzata tutta la rubrica. Se il testo estende la ricerca precedente,
+     * vengono filtrati solo i risultati già visualizzati.
+     */
+    private void aggiornaRicerca() {
+        
+        if(archivioConsultato != null){ //in consultazione la ricerca avviene nell'archivio
+            ricercaNellArchivio(researchField.getText());
+            return;
+        }
+        
+        rubricaPointer.impostaRicerca(researchField.getText());
         
-            rubricaList.setItems(rubricaPointer.ricercaContatti(researchField.getText()).getContactList()); //visualizzo tutta la rubrica
+        //la vista cambia ad ogni restringimento o allargamento della ricerca
+        if(rubricaList.getItems() != rubricaPointer.getVistaRicerca())
+            rubricaList.setItems(rubricaPointer.getVistaRicerca());
+    }
     
-        else
+    /**
+     * @brief Cerca nell'archivio in consultazione i contatti il cui nome o cognome inizia con il testo indicato.
+     * 
+     * Con il testo vuoto viene visualizzato l'intero archivio, letto a pagine durante lo scorrimento.
+     * Altrimenti l'archivio viene scorso in background, annullando la ricerca precedente ancora in corso.
+     * 
+     * @param testo Il testo da cercare
+     */
+    private void ricercaNellArchivio(String testo) {
         
-            rubricaList.setItems(rubricaPointer.getContactList()); //visualizzo la sottoRubrica
- 
+        //in consultazione l'unica operazione in background è la ricerca
+        if(operazioneInCorso != null)
+            operazioneInCorso.cancel(false);
+        
+        if(testo.isEmpty()){
+            rubricaList.setItems(archivioConsultato.getVista());
+            return;
+        }
+        
+        ArchivioContatti archivio = archivioConsultato;
+        OperazioneFile<List<Contatto>> ricerca = new OperazioneFile<List<Contatto>>() {
+            @Override
+            protected List<Contatto> call() {
+                return archivio.cercaPrefisso(testo, MASSIMO_RISULTATI, this);
+            }
+        };
+        
+        //i risultati vengono mostrati solo se l'archivio è ancora in consultazione
+        ricerca.setOnSucceeded(e -> {
+            if(archivioConsultato == archivio)
+                rubricaList.setItems(FXCollections.observableArrayList(ricerca.getValue()));
+        });
+        ricerca.setOnFailed(e -> {
+            System.err.println("Errore durante la ricerca nell'archivio: " + ricerca.getException().getMessage());
+            Avviso.errore("Errore", "Errore ricerca", "Errore durante la lettura dell'archivio");
+        });
+        
+        avviaOperazione(ricerca, "ricerca");
     }
     
     /**
@@ -253,8 +406,9 @@ public class RubricaController implements Initializable {
         //resetta il testo del campo di ricerca
         researchField.setText("");
         
-        //resetta la visualizzazione della lista
-        rubricaList.setItems(rubricaPointer.getContactList());
+        //resetta il filtro della vista visualizzata
+        attesaRicerca.stop();
+        aggiornaRicerca();
         
         Platform.runLater(() -> { //Cambia il focus all'apertura della schermata
         researchField.requestFocus();
@@ -298,11 +452,12 @@ public class RubricaController implements Initializable {
     /**
      * @brief Apre i dettagli di un contatto selezionato.
      * 
-     * @param event evento che attiva l'apertura del contatto
+     * L'interfaccia del contatto, inclusa in Rubrica.fxml, viene caricata una sola volta insieme alla scena:
+     * ad ogni apertura il suo controller viene collegato al contatto selezionato, senza ricaricare il file fxml.
      * 
-     * @throws IOException
+     * @param event evento che attiva l'apertura del contatto
      */
-    private void openContact(javafx.event.ActionEvent event) throws IOException {
+    private void openContact(javafx.event.ActionEvent event) {
     
         Contatto temp = (Contatto) rubricaList.getSelectionModel().getSelectedItem(); //Carica il contatto selezionato dalla tabella
                 
@@ -311,17 +466,15 @@ public class RubricaController implements Initializable {
         
         contattoPane.setVisible(true); //rendo visibile il pannello del contatto
 
-        //carico il nodo Parent dal file fxml del contatto
-        FXMLLoader loader = App.getFXML("Contatto"); 
-        StackPane contactPane = loader.load();
-
-        //creo e inizializzo il controller
-        ContattoController controller = loader.getController();
-        controller.setController(temp, rubricaPointer, rubricaList);
+        //collego il controller al contatto: i contatti dell'archivio in consultazione non sono modificabili
+        if(archivioConsultato != null)
+            contattoController.setController(temp);
+        else
+            contattoController.setController(temp, rubricaPointer, rubricaList);
 
-        //Ripulisco il pannello del contatto e visualizzo l'interfaccia del contatto
-        contattoPane.getChildren().clear();
-        contattoPane.getChildren().add(contactPane);
+        //visualizzo l'interfaccia del contatto, se il pannello è stato ripulito
+        if(contattoPane.getChildren().isEmpty())
+            contattoPane.getChildren().add(contatto);
   
     }
 
@@ -352,11 +505,28 @@ public class RubricaController implements Initializable {
          //controllo che il file non sia null
          if(file != null){
 
-
-             rubricaPointer.esportaRubrica(file.getAbsolutePath()); //esporto la rubrica usando come nome il path completo
-
-             Avviso.info("Avviso", null,"La rubrica è stata esportata con successo");
-
+             String nomefile = file.getAbsolutePath(); //esporto la rubrica usando come nome il path completo
+             
+             //copia dei contatti: la rubrica può essere modificata mentre l'esportazione prosegue in background
+             List<Contatto> contatti = new ArrayList<>(rubricaPointer.getContactList());
+             
+             OperazioneFile<Long> esportazione = new OperazioneFile<Long>() {
+                 @Override
+                 protected Long call() throws IOException {
+                     EsportatoreRubrica esportatore = new EsportatoreRubrica();
+                     esportatore.setMonitor(this);
+                     return esportatore.esporta(contatti, nomefile);
+                 }
+             };
+             
+             esportazione.setOnSucceeded(e -> Avviso.info("Avviso", null,"La rubrica è stata esportata con successo"));
+             esportazione.setOnFailed(e -> {
+                 System.err.println("Errore durante la scrittura del file: " + esportazione.getException().getMessage());
+                 Avviso.errore("Errore", "Errore esportazione", "Errore durante la scrittura del file");
+             });
+             esportazione.setOnCancelled(e -> System.out.println("Esportazione annullata"));
+             
+             avviaOperazione(esportazione, "esportazione");
 
          }else{
 
@@ -387,28 +557,50 @@ public class RubricaController implements Initializable {
         //controllo che il file non sia null
         if (file != null) { 
             
-            try {
-                
-       //creo la rubrica da importare
-        Rubrica nuovaRubrica = rubricaPointer.importaRubrica(file.getAbsolutePath());
+        String nomefile = file.getAbsolutePath();
         
-        if(nuovaRubrica.getContactList().isEmpty()){//controllo che il file contenga una rubrica non vuota
-            Avviso.info("Avviso", null, "Il file scelto contiene una rubrica vuota");
-            return;
-        }
-        //indico la nuova rubrica come quella principale
-        rubricaPointer = nuovaRubrica;
+        //creo la rubrica da importare in background: i file più grandi vengono letti in parallelo
+        OperazioneFile<Rubrica> importazione = new OperazioneFile<Rubrica>() {
+            @Override
+            protected Rubrica call() throws IOException {
+                ImportatoreRubrica importatore = new ImportatoreRubrica(ImportatoreRubrica.numeroThreadPer(nomefile));
+                importatore.setMonitor(this);
+                importatore.setValidazione(true); //stesse regole dell'aggiunta di un contatto
+                return importatore.importa(nomefile);
+            }
+        };
+        
+        //la rubrica principale viene sostituita sul thread dell'interfaccia, a importazione conclusa
+        importazione.setOnSucceeded(e -> {
+            
+            Rubrica nuovaRubrica = importazione.getValue();
+            
+            if(nuovaRubrica.getContactList().isEmpty()){//controllo che il file contenga una rubrica non vuota
+                Avviso.info("Avviso", null, "Il file scelto contiene una rubrica vuota");
+                return;
+            }
+            //indico la nuova rubrica come quella principale
+            rubricaPointer = nuovaRubrica;
+            rubricaPointer.setThreadRicerca(Platform::runLater);
 
-        //lego la tabella alla nuova lista di contatti
-        rubricaList.setItems(rubricaPointer.getContactList());
+            //la rubrica importata sostituisce quella salvata solo ora, così un annullamento non modifica i file;
+            //il nuovo snapshot viene scritto in background
+            if(salvataggio != null)
+                salvataggio.sostituisci(nuovaRubrica);
 
-            
-        Avviso.info("Avviso", null, "La rubrica è stata importata con successo");
-    } catch (IOException e) {
+            //lego la tabella alla vista della nuova rubrica, mantenendo la ricerca in corso
+            aggiornaRicerca();
+            contattoPane.getChildren().clear();
+
+            Avviso.info("Avviso", null, "La rubrica è stata importata con successo");
+        });
+        importazione.setOnFailed(e -> {
+            System.err.println("Errore durante l'importazione del file: " + importazione.getException().getMessage());
+            Avviso.errore("Errore", "Errore importazione", "Errore durante la lettura del file");
+        });
+        importazione.setOnCancelled(e -> System.out.println("Importazione annullata"));
         
-        System.err.println("Errore durante l'importazione del file: " + e.getMessage());
-     
-    }
+        avviaOperazione(importazione, "importazione");
 
         } else {
     
@@ -418,6 +610,267 @@ public class RubricaController implements Initializable {
      
     }
 
+    /**
+     * @brief Apre in consultazione uno snapshot o un file CSV della rubrica, o chiude l'archivio già aperto.
+     * 
+     * Lo snapshot viene mappato in memoria senza caricarlo (vedi {@code ArchivioMappato}) e mostrato nella tabella
+     * al posto della rubrica: la tabella legge a pagine solo i contatti visualizzati, quindi anche un archivio di
+     * milioni di contatti può essere scorso senza occupare lo heap. Un file CSV viene invece letto in background
+     * e conservato in forma compatta, per colonne (vedi {@code ArchivioColonnare}), senza un oggetto per contatto.
+     * Durante la consultazione i contatti non possono essere aggiunti, rimossi o modificati e la ricerca avviene nell'archivio.
+     * 
+     * @param event L'evento che ha generato l'operazione
+     */
+    @FXML
+    private void consultaArchivio(javafx.event.ActionEvent event) {
+        
+        if(archivioConsultato != null){ //chiusura dell'archivio e ritorno alla rubrica
+            chiudiConsultazione();
+            return;
+        }
+        
+        FileChooser fileChooser = new FileChooser(); //creo l'oggetto FileChooser
+        FileChooser.ExtensionFilter filter = new FileChooser.ExtensionFilter("Snapshot (*.snapshot)", "*.snapshot");
+        FileChooser.ExtensionFilter filterCSV = new FileChooser.ExtensionFilter("CSV Files (*.csv)", "*.csv");
+        fileChooser.getExtensionFilters().addAll(filter, filterCSV);
+        
+        File file = fileChooser.showOpenDialog(null);
+        if(file == null){
+            System.out.println("Selezione del file annullata.");
+            return;
+        }
+        
+        String nomefile = file.getAbsolutePath();
+        if(nomefile.toLowerCase().endsWith(".csv")){
+            consultaCSV(nomefile);
+            return;
+        }
+        
+        try {
+            apriConsultazione(ArchivioMappato.apri(nomefile));
+        } catch (IOException e) {
+            System.err.println("Errore durante l'apertura dello snapshot: " + e.getMessage());
+            Avviso.errore("Errore", "Errore apertura", "Il file scelto non è uno snapshot valido della rubrica");
+        }
+    }
+    
+    /**
+     * @brief Importa in background un file CSV e lo apre in consultazione in forma compatta.
+     * 
+     * I contatti vengono letti, validati, ordinati e privati dei duplicati come in un'importazione, ma ogni contatto
+     * viene copiato subito nelle colonne di un {@code ArchivioColonnare} (vedi {@code ImportatoreRubrica.importaArchivio}):
+     * non viene creata una rubrica con i suoi indici. La rubrica non viene modificata.
+     * 
+     * @param nomefile Il nome del file CSV
+     */
+    private void consultaCSV(String nomefile) {
+        
+        OperazioneFile<ArchivioColonnare> lettura = new OperazioneFile<ArchivioColonnare>() {
+            @Override
+            protected ArchivioColonnare call() throws IOException {
+                ImportatoreRubrica importatore = new ImportatoreRubrica();
+                importatore.setMonitor(this);
+                importatore.setValidazione(true); //stesse regole dell'importazione
+                return importatore.importaArchivio(nomefile);
+            }
+        };
+        
+        lettura.setOnSucceeded(e -> {
+            if(lettura.getValue().dimensione() == 0){ //controllo che il file contenga una rubrica non vuota
+                Avviso.info("Avviso", null, "Il file scelto contiene una rubrica vuota");
+                return;
+            }
+            apriConsultazione(lettura.getValue());
+        });
+        lettura.setOnFailed(e -> {
+            System.err.println("Errore durante la lettura del file: " + lettura.getException().getMessage());
+            Avviso.errore("Errore", "Errore apertura", "Errore durante la lettura del file");
+        });
+        lettura.setOnCancelled(e -> System.out.println("Consultazione annullata"));
+        
+        avviaOperazione(lettura, "consultazione");
+    }
+    
+    /**
+     * @brief Mostra un archivio nella tabella al posto della rubrica, disabilitando le operazioni che la modificano.
+     * 
+     * @param archivio L'archivio da consultare
+     */
+    private void apriConsultazione(ArchivioContatti archivio) {
+        
+        archivioConsultato = archivio;
+        
+        //disabilito le operazioni che modificano la rubrica
+        addButton.setDisable(true);
+        removeButton.setDisable(true);
+        importButton.setDisable(true);
+        exportButton.setDisable(true);
+        consultaButton.setText("Chiudi");
+        contattoPane.getChildren().clear();
+        
+        attesaRicerca.stop();
+        aggiornaRicerca();
+    }
+    
+    /**
+     * @brief Chiude l'archivio in consultazione e mostra nuovamente la rubrica.
+     */
+    private void chiudiConsultazione() {
+        
+        if(operazioneInCorso != null) //annullo la ricerca nell'archivio in corso
+            operazioneInCorso.cancel(false);
+        
+        //un archivio in memoria non ha file da chiudere
+        if(archivioConsultato instanceof Closeable){
+            try {
+                ((Closeable) archivioConsultato).close();
+            } catch (IOException e) {
+                System.err.println("Errore durante la chiusura dello snapshot: " + e.getMessage());
+            }
+        }
+        archivioConsultato = null;
+        
+        addButton.setDisable(false);
+        removeButton.setDisable(false);
+        importButton.setDisable(false);
+        exportButton.setDisable(false);
+        consultaButton.setText("Consulta");
+        contattoPane.getChildren().clear();
+        
+        attesaRicerca.stop();
+        aggiornaRicerca();
+    }
+    
+    /**
+     * @brief Apre la rubrica salvata nella cartella dell'utente.
+     * 
+     * La rubrica viene salvata nel file "rubrica.snapshot" della cartella ".rubrica" dell'utente: 
+     * lo snapshot contiene l'intera rubrica, il giornale accanto ad esso le modifiche successive.
+     * Se i file non possono essere letti, si lavora su una rubrica vuota che non viene salvata,
+     * così i file esistenti non vengono sovrascritti.
+     * 
+     * @return La rubrica salvata, o una rubrica vuota
+     */
+    private Rubrica apriRubricaSalvata() {
+        
+        try {
+            File cartella = new File(System.getProperty("user.home"), ".rubrica");
+            if(!cartella.isDirectory() && !cartella.mkdirs())
+                throw new IOException("Impossibile creare la cartella " + cartella);
+            
+            persistenza = new PersistenzaRubrica(new File(cartella, "rubrica.snapshot").getAbsolutePath());
+            Rubrica salvata = persistenza.apri();
+            
+            //gli snapshot completi vengono scritti in background, al più una volta per intervallo
+            salvataggio = new SalvataggioAutomatico(persistenza, salvata, INTERVALLO_SALVATAGGIO, Platform::runLater);
+            return salvata;
+            
+        } catch (IOException e) {
+            
+            persistenza = null;
+            salvataggio = null;
+            System.err.println("Errore durante l'apertura della rubrica salvata: " + e.getMessage());
+            Avviso.errore("Errore", "Errore apertura", "Non è stato possibile aprire la rubrica salvata: le modifiche non verranno salvate");
+            return new Rubrica();
+        }
+    }
+    
+    /**
+     * @brief Salva le modifiche in sospeso della rubrica e chiude i file di salvataggio.
+     * 
+     * Viene invocato alla chiusura dell'applicazione, sul thread dell'interfaccia.
+     */
+    public void chiudi() {
+        
+        if(archivioConsultato != null)
+            chiudiConsultazione();
+        
+        if(salvataggio == null)
+            return;
+        
+        try {
+            salvataggio.close();
+        } catch (IOException e) {
+            System.err.println("Errore durante il salvataggio della rubrica: " + e.getMessage());
+        }
+        salvataggio = null;
+    }
+    
+    /**
+     * @brief Annulla l'operazione di importazione o esportazione in corso.
+     * 
+     * L'operazione si interrompe al successivo controllo di avanzamento; un'importazione annullata
+     * lascia invariata la rubrica, un'esportazione annullata elimina il file parzialmente scritto.
+     * 
+     * @param event L'evento che ha generato l'annullamento
+     */
+    @FXML
+    private void cancelTask(javafx.event.ActionEvent event) {
+        
+        if(operazioneInCorso != null)
+            operazioneInCorso.cancel(false); //senza interrompere il thread, che chiuderebbe il canale del file
+    }
+    
+    /**
+     * @brief Avvia in background un'operazione di importazione o esportazione.
+     * 
+     * Durante l'operazione viene mostrata la barra di avanzamento e i bottoni di importazione, esportazione
+     * e consultazione vengono disabilitati; al termine la barra viene nascosta e i bottoni riabilitati
+     * (importazione ed esportazione solo se non c'è un archivio in consultazione).
+     * 
+     * @param operazione L'operazione da avviare
+     * @param nome Il nome dell'operazione, usato per il thread
+     */
+    private void avviaOperazione(OperazioneFile<?> operazione, String nome) {
+        
+        operazioneInCorso = operazione;
+        
+        //lego la barra di avanzamento all'operazione
+        progressBar.progressProperty().bind(operazione.progressProperty());
+        progressLabel.textProperty().bind(operazione.messageProperty());
+        progressBox.setManaged(true);
+        progressBox.setVisible(true);
+        importButton.setDisable(true);
+        exportButton.setDisable(true);
+        consultaButton.setDisable(archivioConsultato == null);
+        
+        //al termine dell'operazione (con qualsiasi esito) ripristino l'interfaccia
+        operazione.runningProperty().addListener((obs, eraInCorso, inCorso) -> {
+            if(!inCorso && operazioneInCorso == operazione){
+                operazioneInCorso = null;
+                progressBar.progressProperty().unbind();
+                progressLabel.textProperty().unbind();
+                progressBox.setVisible(false);
+                progressBox.setManaged(false);
+                importButton.setDisable(archivioConsultato != null);
+                exportButton.setDisable(archivioConsultato != null);
+                consultaButton.setDisable(false);
+            }
+        });
+        
+        Thread thread = new Thread(operazione, "rubrica-" + nome);
+        thread.setDaemon(true); //l'operazione non impedisce la chiusura dell'applicazione
+        thread.start();
+    }
+    
+    /**
+     * @brief Operazione su file eseguita in background, che riporta il proprio avanzamento all'interfaccia.
+     * 
+     * @param <V> Il tipo del risultato dell'operazione
+     */
+    private abstract static class OperazioneFile<V> extends Task<V> implements MonitorAvanzamento {
+        
+        @Override
+        public void avanzamento(long righe, long lavoroSvolto, long lavoroTotale) {
+            updateProgress(lavoroSvolto, lavoroTotale);
+            updateMessage(righe + " contatti");
+        }
+        
+        @Override
+        public boolean isAnnullato() {
+            return isCancelled();
+        }
+    }
     
 /**
  * @brief Chiude la finestra attualmente visualizzata.
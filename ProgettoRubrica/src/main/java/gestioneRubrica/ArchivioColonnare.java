@@ -0,0 +1,453 @@
+/**
+ * @file ArchivioColonnare.java
+ *
+ * @brief Archivio compatto dei contatti in memoria, organizzato per colonne: una colonna per ogni campo.
+ *
+ * Ognuno degli otto campi (cognome, nome, tre numeri e tre indirizzi email) ha la propria colonna, formata da
+ * un array di byte con i valori di tutti i contatti codificati in UTF-8, uno dopo l'altro, e da un array di int
+ * con la posizione in cui termina il valore di ogni contatto: il valore del contatto i occupa i byte
+ * da {@code fine[i - 1]} (0 per il primo contatto) a {@code fine[i]}, quindi un campo vuoto non occupa byte.
+ * Rispetto a un oggetto {@code Contatto}, che con le stringhe e gli array associati occupa più di 100 byte
+ * oltre al testo, il costo fisso di un contatto è di 32 byte (una posizione per colonna).
+ *
+ * Il cognome e il nome, usati dalla ricerca binaria e dalla ricerca per prefisso, vengono letti dalle sole
+ * colonne dei nominativi; un oggetto {@code Contatto} viene creato solo quando è richiesto da {@code get}.
+ * Ogni colonna può contenere fino a 2 GB di dati.
+ *
+ * @see gestioneRubrica.ArchivioContatti
+ * @see gestioneRubrica.ImportatoreRubrica
+ */
+
+package gestioneRubrica;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class ArchivioColonnare implements ArchivioContatti {
+
+    /**
+     * Colonna dei cognomi.
+     */
+    private static final int COGNOME = 0;
+
+    /**
+     * Colonna dei nomi.
+     */
+    private static final int NOME = 1;
+
+    /**
+     * Numero massimo di byte dei dati di una colonna.
+     */
+    private static final int MASSIMO_DATI = Integer.MAX_VALUE - 8;
+
+    /**
+     * Codifica dei campi vuoti, condivisa.
+     */
+    private static final byte[] VUOTO = new byte[0];
+
+    /**
+     * Dati delle colonne: i valori di ogni campo codificati in UTF-8, uno dopo l'altro.
+     */
+    private final byte[][] dati;
+
+    /**
+     * Numero di byte occupati nei dati di ogni colonna.
+     */
+    private final int[] occupati;
+
+    /**
+     * Posizioni delle colonne: per ogni contatto, la fine (esclusa) del suo valore nei dati della colonna.
+     */
+    private final int[][] fine;
+
+    /**
+     * Numero di contatti dell'archivio.
+     */
+    private int dimensione;
+
+    /**
+     * @brief Costruttore dell'archivio, inizialmente vuoto.
+     */
+    public ArchivioColonnare() {
+
+        this.dati = new byte[LettoreCSV.NUMERO_CAMPI][];
+        this.occupati = new int[LettoreCSV.NUMERO_CAMPI];
+        this.fine = new int[LettoreCSV.NUMERO_CAMPI][];
+        for (int colonna = 0; colonna < LettoreCSV.NUMERO_CAMPI; colonna++) {
+            dati[colonna] = new byte[256];
+            fine[colonna] = new int[16];
+        }
+        this.dimensione = 0;
+    }
+
+    /**
+     * @brief Aggiunge un contatto in fondo all'archivio.
+     *
+     * Il contatto viene copiato: le sue modifiche successive non si riflettono sull'archivio.
+     *
+     * @param c Il contatto da aggiungere
+     *
+     * @pre I contatti devono essere aggiunti nell'ordine della rubrica e senza omonimi,
+     *      oppure riordinati al termine degli inserimenti con {@code ordina}
+     *
+     * @throws IllegalArgumentException Eccezione lanciata se una colonna non può contenere il contatto
+     */
+    public void aggiungi(Contatto c) {
+
+        String[] numeri = c.getNumeri();
+        String[] emails = c.getEmails();
+        byte[][] campi = {
+            codifica(c.getCognome()), codifica(c.getNome()),
+            codifica(numeri[0]), codifica(numeri[1]), codifica(numeri[2]),
+            codifica(emails[0]), codifica(emails[1]), codifica(emails[2])
+        };
+
+        //controllo dello spazio prima di scrivere, così le colonne restano allineate
+        for (int colonna = 0; colonna < campi.length; colonna++) {
+            if (campi[colonna].length > MASSIMO_DATI - occupati[colonna])
+                throw new IllegalArgumentException("Contatto troppo grande per l'archivio");
+        }
+
+        if (dimensione == fine[0].length) {
+            for (int colonna = 0; colonna < campi.length; colonna++)
+                fine[colonna] = Arrays.copyOf(fine[colonna], dimensione * 2);
+        }
+
+        //accodamento del valore di ogni campo nella propria colonna
+        for (int colonna = 0; colonna < campi.length; colonna++) {
+            byte[] campo = campi[colonna];
+            riserva(colonna, campo.length);
+            System.arraycopy(campo, 0, dati[colonna], occupati[colonna], campo.length);
+            occupati[colonna] += campo.length;
+            fine[colonna][dimensione] = occupati[colonna];
+        }
+        dimensione++;
+    }
+
+    @Override
+    public int dimensione() {
+        return dimensione;
+    }
+
+    @Override
+    public Contatto get(int indice) {
+
+        Contatto c = new Contatto();
+        c.setCognome(leggi(COGNOME, indice));
+        c.setNome(leggi(NOME, indice));
+        c.setNumero1(leggi(2, indice));
+        c.setNumero2(leggi(3, indice));
+        c.setNumero3(leggi(4, indice));
+        c.setEmail1(leggi(5, indice));
+        c.setEmail2(leggi(6, indice));
+        c.setEmail3(leggi(7, indice));
+        return c;
+    }
+
+    @Override
+    public String getCognome(int indice) {
+        return leggi(COGNOME, indice);
+    }
+
+    @Override
+    public String getNome(int indice) {
+        return leggi(NOME, indice);
+    }
+
+    /**
+     * @brief Restituisce la memoria occupata dai dati dell'archivio.
+     *
+     * @return Il numero di byte allocati per i dati e per le posizioni delle colonne
+     */
+    public long getByteOccupati() {
+
+        long totale = 0;
+        for (int colonna = 0; colonna < LettoreCSV.NUMERO_CAMPI; colonna++)
+            totale += dati[colonna].length + (long) fine[colonna].length * Integer.BYTES;
+        return totale;
+    }
+
+    /**
+     * @brief Riduce la memoria allocata alla sola memoria necessaria per i contatti presenti.
+     *
+     * Va invocato al termine degli inserimenti; l'archivio resta comunque modificabile.
+     */
+    public void compatta() {
+
+        for (int colonna = 0; colonna < LettoreCSV.NUMERO_CAMPI; colonna++) {
+            dati[colonna] = Arrays.copyOf(dati[colonna], occupati[colonna]);
+            fine[colonna] = Arrays.copyOf(fine[colonna], Math.max(dimensione, 1));
+        }
+    }
+
+    /**
+     * @brief Porta i contatti nell'ordine della rubrica e scarta i nominativi ripetuti.
+     *
+     * Permette di riempire l'archivio con contatti in ordine qualsiasi, ad esempio durante la lettura di un file.
+     * L'ordinamento è stabile e, tra i contatti con lo stesso nominativo, viene conservato quello aggiunto per primo,
+     * come nell'importazione nella rubrica. I nominativi vengono confrontati direttamente sulle colonne
+     * (vedi {@code confrontaNominativi}), quindi l'ordinamento usa solo due array di int delle posizioni;
+     * le colonne vengono poi riscritte nel nuovo ordine una alla volta.
+     *
+     * @return Il numero di contatti scartati perché con un nominativo già presente
+     */
+    int ordina() {
+
+        boolean ordinato = true;
+        for (int i = 1; i < dimensione && ordinato; i++)
+            ordinato = confrontaNominativi(i - 1, i) <= 0;
+
+        int[] ordine = new int[dimensione];
+        for (int i = 0; i < dimensione; i++)
+            ordine[i] = i;
+        if (!ordinato)
+            ordinaPosizioni(ordine);
+
+        //i contatti con lo stesso nominativo sono equivalenti e quindi consecutivi:
+        //il confronto è limitato al gruppo di contatti equivalenti già conservati
+        int conservati = 0;
+        int inizioGruppo = 0;
+        for (int k = 0; k < dimensione; k++) {
+
+            int i = ordine[k];
+            if (conservati > 0 && confrontaNominativi(ordine[conservati - 1], i) != 0)
+                inizioGruppo = conservati;
+
+            boolean ripetuto = false;
+            for (int g = inizioGruppo; g < conservati && !ripetuto; g++)
+                ripetuto = campiUguali(COGNOME, ordine[g], i) && campiUguali(NOME, ordine[g], i);
+
+            if (!ripetuto)
+                ordine[conservati++] = i;
+        }
+
+        int scartati = dimensione - conservati;
+        if (ordinato && scartati == 0) //archivio già ordinato e senza ripetizioni
+            return 0;
+
+        for (int colonna = 0; colonna < LettoreCSV.NUMERO_CAMPI; colonna++)
+            riordina(colonna, ordine, conservati);
+        dimensione = conservati;
+        return scartati;
+    }
+
+    /**
+     * @brief Decodifica il valore di un campo.
+     *
+     * @param colonna La colonna del campo
+     * @param indice La posizione del contatto
+     *
+     * @return Il valore del campo, oppure la costante "" se è vuoto
+     */
+    private String leggi(int colonna, int indice) {
+
+        if (indice < 0 || indice >= dimensione)
+            throw new IndexOutOfBoundsException("Indice: " + indice + ", dimensione: " + dimensione);
+
+        int da = inizio(colonna, indice);
+        int a = fine[colonna][indice];
+        return a == da ? "" : new String(dati[colonna], da, a - da, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @brief Garantisce lo spazio per un valore nei dati di una colonna, raddoppiandone la capacità se necessario.
+     *
+     * @param colonna La colonna
+     * @param lunghezza Il numero di byte da scrivere
+     *
+     * @pre occupati[colonna] + lunghezza <= MASSIMO_DATI
+     */
+    private void riserva(int colonna, int lunghezza) {
+
+        int necessari = occupati[colonna] + lunghezza;
+        if (necessari <= dati[colonna].length)
+            return;
+
+        long capacita = Math.max((long) dati[colonna].length * 2, necessari);
+        dati[colonna] = Arrays.copyOf(dati[colonna], (int) Math.min(capacita, MASSIMO_DATI));
+    }
+
+    /**
+     * @brief Riscrive una colonna con i valori dei contatti nell'ordine indicato.
+     *
+     * @param colonna La colonna da riscrivere
+     * @param ordine Le posizioni attuali dei contatti, nel nuovo ordine
+     * @param numero Il numero di contatti da conservare, i primi di ordine
+     */
+    private void riordina(int colonna, int[] ordine, int numero) {
+
+        byte[] vecchi = dati[colonna];
+        int[] vecchieFini = fine[colonna];
+
+        int totale = 0;
+        for (int k = 0; k < numero; k++) {
+            int i = ordine[k];
+            totale += vecchieFini[i] - inizio(colonna, i);
+        }
+
+        byte[] nuovi = new byte[totale];
+        int[] nuoveFini = new int[Math.max(numero, 1)];
+        int pos = 0;
+        for (int k = 0; k < numero; k++) {
+            int i = ordine[k];
+            int da = inizio(colonna, i);
+            System.arraycopy(vecchi, da, nuovi, pos, vecchieFini[i] - da);
+            pos += vecchieFini[i] - da;
+            nuoveFini[k] = pos;
+        }
+
+        dati[colonna] = nuovi;
+        occupati[colonna] = totale;
+        fine[colonna] = nuoveFini;
+    }
+
+    /**
+     * @brief Ordina in modo stabile le posizioni dei contatti secondo i loro nominativi.
+     *
+     * Fusione iterativa (merge sort) sulle posizioni, senza creare oggetti per i contatti.
+     *
+     * @param ordine Le posizioni da ordinare
+     */
+    private void ordinaPosizioni(int[] ordine) {
+
+        int n = ordine.length;
+        int[] appoggio = new int[n];
+
+        for (int larghezza = 1; larghezza < n; larghezza *= 2) {
+            for (int da = 0; da < n; da += 2 * larghezza) {
+
+                int meta = Math.min(da + larghezza, n);
+                int a = Math.min(da + 2 * larghezza, n);
+                int i = da;
+                int j = meta;
+                int k = da;
+
+                //a parità di nominativo viene preso prima il contatto della prima metà
+                while (i < meta && j < a) {
+                    if (confrontaNominativi(ordine[j], ordine[i]) < 0)
+                        appoggio[k++] = ordine[j++];
+                    else
+                        appoggio[k++] = ordine[i++];
+                }
+                while (i < meta)
+                    appoggio[k++] = ordine[i++];
+                while (j < a)
+                    appoggio[k++] = ordine[j++];
+            }
+            System.arraycopy(appoggio, 0, ordine, 0, n);
+        }
+    }
+
+    /**
+     * @brief Confronta i nominativi di due contatti con lo stesso criterio di {@code Contatto.compareTo}.
+     *
+     * @param i La posizione del primo contatto
+     * @param j La posizione del secondo contatto
+     *
+     * @return un valore negativo, zero o positivo se il primo contatto precede, equivale o segue il secondo
+     */
+    private int confrontaNominativi(int i, int j) {
+
+        int report = confrontaCampi(COGNOME, i, j);
+        if (report == 0)
+            return confrontaCampi(NOME, i, j);
+
+        if (inizio(COGNOME, i) == fine[COGNOME][i]) //se il primo contatto non ha cognome
+            return 1;
+        if (inizio(COGNOME, j) == fine[COGNOME][j]) //se il secondo contatto non ha cognome
+            return -1;
+        return report;
+    }
+
+    /**
+     * @brief Confronta i valori di un campo di due contatti senza distinzione tra maiuscole e minuscole.
+     *
+     * Il risultato ha lo stesso segno di {@code String.compareToIgnoreCase}. Il confronto avviene sui byte
+     * della colonna finché i caratteri sono ASCII, che in UTF-8 occupano un byte ciascuno; dal primo carattere
+     * non ASCII i due valori vengono decodificati e confrontati come stringhe.
+     *
+     * @param colonna La colonna del campo
+     * @param i La posizione del primo contatto
+     * @param j La posizione del secondo contatto
+     *
+     * @return un valore negativo, zero o positivo se il primo valore precede, equivale o segue il secondo
+     */
+    private int confrontaCampi(int colonna, int i, int j) {
+
+        byte[] d = dati[colonna];
+        int p1 = inizio(colonna, i);
+        int f1 = fine[colonna][i];
+        int p2 = inizio(colonna, j);
+        int f2 = fine[colonna][j];
+
+        for (; p1 < f1 && p2 < f2; p1++, p2++) {
+
+            byte b1 = d[p1];
+            byte b2 = d[p2];
+            if (b1 < 0 || b2 < 0) //carattere non ASCII
+                return leggi(colonna, i).compareToIgnoreCase(leggi(colonna, j));
+
+            if (b1 != b2) {
+                char c1 = Character.toUpperCase((char) b1);
+                char c2 = Character.toUpperCase((char) b2);
+                if (c1 != c2) {
+                    c1 = Character.toLowerCase(c1);
+                    c2 = Character.toLowerCase(c2);
+                    if (c1 != c2)
+                        return c1 - c2;
+                }
+            }
+        }
+
+        //il valore più corto precede l'altro
+        return (f1 - p1) - (f2 - p2);
+    }
+
+    /**
+     * @brief Indica se due contatti hanno lo stesso valore in un campo.
+     *
+     * @param colonna La colonna del campo
+     * @param i La posizione del primo contatto
+     * @param j La posizione del secondo contatto
+     *
+     * @return {@code true} se i due valori hanno gli stessi byte, {@code false} altrimenti
+     */
+    private boolean campiUguali(int colonna, int i, int j) {
+
+        int da1 = inizio(colonna, i);
+        int da2 = inizio(colonna, j);
+        int lunghezza = fine[colonna][i] - da1;
+        if (lunghezza != fine[colonna][j] - da2)
+            return false;
+
+        byte[] d = dati[colonna];
+        for (int k = 0; k < lunghezza; k++) {
+            if (d[da1 + k] != d[da2 + k])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @brief Restituisce l'inizio del valore di un campo nei dati della colonna.
+     *
+     * @param colonna La colonna del campo
+     * @param indice La posizione del contatto
+     *
+     * @return La posizione del primo byte del valore
+     */
+    private int inizio(int colonna, int indice) {
+        return indice == 0 ? 0 : fine[colonna][indice - 1];
+    }
+
+    /**
+     * @brief Codifica un campo in UTF-8.
+     *
+     * @param s Il campo da codificare
+     *
+     * @return I byte del campo, vuoti per un campo vuoto o null
+     */
+    private static byte[] codifica(String s) {
+        return s == null || s.isEmpty() ? VUOTO : s.getBytes(StandardCharsets.UTF_8);
+    }
+}
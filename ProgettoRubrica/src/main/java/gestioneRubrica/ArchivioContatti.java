@@ -0,0 +1,164 @@
+/**
+ * @file ArchivioContatti.java
+ *
+ * @brief Interfaccia per l'accesso in sola lettura a un insieme ordinato di contatti memorizzato in forma compatta.
+ *
+ * A differenza della lista dei contatti di {@code Rubrica}, un archivio non mantiene un oggetto {@code Contatto}
+ * per ogni elemento: i contatti vengono creati su richiesta, quando vengono letti.
+ * I contatti sono nello stesso ordine della rubrica (vedi {@code Contatto.compareTo}).
+ *
+ * @see gestioneRubrica.ArchivioColonnare
+ * @see gestioneRubrica.ArchivioMappato
+ * @see gestioneRubrica.Rubrica
+ */
+
+package gestioneRubrica;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import javafx.collections.ObservableList;
+
+public interface ArchivioContatti {
+
+    /**
+     * @brief Restituisce il numero di contatti dell'archivio.
+     *
+     * @return Il numero di contatti
+     */
+    int dimensione();
+
+    /**
+     * @brief Crea il contatto in una posizione dell'archivio.
+     *
+     * Ogni invocazione restituisce un nuovo oggetto: le sue modifiche non si riflettono sull'archivio.
+     *
+     * @param indice La posizione del contatto
+     *
+     * @pre 0 <= indice < dimensione()
+     *
+     * @return Il contatto letto dall'archivio
+     */
+    Contatto get(int indice);
+
+    /**
+     * @brief Restituisce il cognome del contatto in una posizione, senza creare il contatto.
+     *
+     * @param indice La posizione del contatto
+     *
+     * @pre 0 <= indice < dimensione()
+     *
+     * @return Il cognome del contatto
+     */
+    String getCognome(int indice);
+
+    /**
+     * @brief Restituisce il nome del contatto in una posizione, senza creare il contatto.
+     *
+     * @param indice La posizione del contatto
+     *
+     * @pre 0 <= indice < dimensione()
+     *
+     * @return Il nome del contatto
+     */
+    String getNome(int indice);
+
+    /**
+     * @brief Cerca un nominativo nell'archivio tramite ricerca binaria.
+     *
+     * @param nome Il nome da cercare
+     * @param cognome Il cognome da cercare
+     *
+     * @return La posizione del contatto con il nominativo indicato, oppure -1 se non è presente
+     */
+    default int cerca(String nome, String cognome) {
+
+        Contatto cercato = new Contatto();
+        cercato.setNome(nome);
+        cercato.setCognome(cognome);
+
+        int low = 0;
+        int high = dimensione();
+        while (low < high) { //ricerca del primo contatto non minore di quello cercato
+            int mid = (low + high) >>> 1;
+            Contatto c = new Contatto();
+            c.setCognome(getCognome(mid));
+            c.setNome(getNome(mid));
+            if (c.compareTo(cercato) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        //scansione dei nominativi equivalenti, che differiscono solo per maiuscole e minuscole
+        for (int i = low; i < dimensione(); i++) {
+            String cognomeLetto = getCognome(i);
+            String nomeLetto = getNome(i);
+            if (!cognomeLetto.equalsIgnoreCase(cognome) || !nomeLetto.equalsIgnoreCase(nome))
+                break;
+            if (cognomeLetto.equals(cognome) && nomeLetto.equals(nome))
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @brief Cerca i contatti il cui nome o cognome inizia con una stringa.
+     *
+     * La ricerca scorre i nominativi dell'archivio senza creare i contatti che non corrispondono,
+     * con lo stesso criterio di {@code Rubrica.corrispondenzaPrefisso}.
+     *
+     * @param s La stringa di ricerca
+     * @param massimo Il numero massimo di contatti da restituire
+     *
+     * @return I contatti corrispondenti, nell'ordine dell'archivio
+     */
+    default List<Contatto> cercaPrefisso(String s, int massimo) {
+        return cercaPrefisso(s, massimo, null);
+    }
+
+    /**
+     * @brief Cerca i contatti il cui nome o cognome inizia con una stringa, segnalando l'avanzamento.
+     *
+     * @param s La stringa di ricerca
+     * @param massimo Il numero massimo di contatti da restituire
+     * @param monitor Il monitor dell'avanzamento, o null; l'avanzamento è espresso in contatti esaminati
+     *
+     * @return I contatti corrispondenti, nell'ordine dell'archivio
+     *
+     * @throws CancellationException Eccezione lanciata se il monitor segnala l'annullamento della ricerca
+     */
+    default List<Contatto> cercaPrefisso(String s, int massimo, MonitorAvanzamento monitor) {
+
+        String prefisso = IndicePrefissi.normalizza(s);
+        List<Contatto> trovati = new ArrayList<>();
+
+        for (int i = 0; i < dimensione() && trovati.size() < massimo; i++) {
+
+            //controllo dell'annullamento ogni 65536 contatti esaminati
+            if (monitor != null && (i & 0xFFFF) == 0) {
+                if (monitor.isAnnullato())
+                    throw new CancellationException("Ricerca annullata");
+                monitor.avanzamento(trovati.size(), i, dimensione());
+            }
+
+            if (IndicePrefissi.normalizza(getCognome(i)).startsWith(prefisso) || IndicePrefissi.normalizza(getNome(i)).startsWith(prefisso))
+                trovati.add(get(i));
+        }
+
+        return trovati;
+    }
+
+    /**
+     * @brief Restituisce una vista in sola lettura dei contatti dell'archivio, utilizzabile da una tabella.
+     *
+     * La vista contiene i contatti nell'ordine dell'archivio, che è quello della rubrica,
+     * e li legge a pagine solo quando vengono richiesti (vedi {@link VistaArchivio}).
+     *
+     * @return La vista dei contatti
+     */
+    default ObservableList<Contatto> getVista() {
+        return new VistaArchivio(this);
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * @file ArchivioMappato.java
+ *
+ * @brief Archivio dei contatti in sola lettura, mappato in memoria direttamente dallo snapshot della rubrica.
+ *
+ * Il file dello snapshot (vedi {@link SnapshotRubrica}) viene mappato in memoria senza leggerlo: i record restano
+ * fuori dallo heap, nella cache del sistema operativo, e vengono letti solo quando un contatto viene richiesto.
+ * L'indice in fondo allo snapshot fornisce la posizione di ogni record, quindi l'accesso a un contatto
+ * non richiede di scorrere i precedenti. L'occupazione dello heap e le pause del garbage collector
+ * non dipendono quindi dal numero di contatti, anche per rubriche di decine di milioni di contatti.
+ *
+ * Il file viene mappato in segmenti da 1 GB, perché una singola mappatura non può superare i 2 GB;
+ * i record e le posizioni a cavallo di due segmenti vengono letti un byte alla volta.
+ * All'apertura viene verificata la sola intestazione: il checksum, che richiede la lettura
+ * dell'intero file, può essere verificato con {@code verifica}.
+ *
+ * @see gestioneRubrica.ArchivioContatti
+ * @see gestioneRubrica.SnapshotRubrica
+ */
+
+package gestioneRubrica;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+public class ArchivioMappato implements ArchivioContatti, Closeable {
+
+    /**
+     * Numero di bit della posizione all'interno di un segmento.
+     */
+    private static final int BIT_SEGMENTO = 30;
+
+    /**
+     * Dimensione di un segmento della mappatura (1 GB).
+     */
+    private static final long DIMENSIONE_SEGMENTO = 1L << BIT_SEGMENTO;
+
+    /**
+     * Canale del file mappato.
+     */
+    private final FileChannel canale;
+
+    /**
+     * Segmenti della mappatura in memoria del file.
+     */
+    private final MappedByteBuffer[] segmenti;
+
+    /**
+     * Dimensione del file.
+     */
+    private final long dimensioneFile;
+
+    /**
+     * Numero di contatti dell'archivio.
+     */
+    private final int dimensione;
+
+    /**
+     * Posizione nel file dell'indice dei record, che segue l'ultimo record.
+     */
+    private final long inizioIndice;
+
+    /**
+     * @brief Costruttore di un archivio già mappato.
+     *
+     * @param canale Il canale del file
+     * @param segmenti I segmenti della mappatura
+     * @param dimensioneFile La dimensione del file
+     * @param dimensione Il numero di contatti
+     */
+    private ArchivioMappato(FileChannel canale, MappedByteBuffer[] segmenti, long dimensioneFile, int dimensione) {
+        this.canale = canale;
+        this.segmenti = segmenti;
+        this.dimensioneFile = dimensioneFile;
+        this.dimensione = dimensione;
+        this.inizioIndice = dimensioneFile - Long.BYTES - (long) dimensione * Long.BYTES;
+    }
+
+    /**
+     * @brief Apre uno snapshot della rubrica come archivio mappato in memoria.
+     *
+     * @param nomefile Il nome del file dello snapshot
+     *
+     * @return L'archivio, che va chiuso al termine dell'utilizzo
+     *
+     * @throws IOException Eccezione lanciata se il file non può essere letto, non è uno snapshot
+     *         o ha una versione non supportata
+     */
+    public static ArchivioMappato apri(String nomefile) throws IOException {
+
+        FileChannel canale = FileChannel.open(Paths.get(nomefile), StandardOpenOption.READ);
+        try {
+
+            long dimensioneFile = canale.size();
+            MappedByteBuffer[] segmenti = new MappedByteBuffer[(int) ((dimensioneFile + DIMENSIONE_SEGMENTO - 1) >>> BIT_SEGMENTO)];
+            for (int i = 0; i < segmenti.length; i++) {
+                long inizio = (long) i << BIT_SEGMENTO;
+                segmenti[i] = canale.map(FileChannel.MapMode.READ_ONLY, inizio, Math.min(DIMENSIONE_SEGMENTO, dimensioneFile - inizio));
+            }
+
+            if (segmenti.length == 0)
+                throw new IOException("Il file non è uno snapshot della rubrica");
+            int numero = SnapshotRubrica.verificaIntestazione(segmenti[0], dimensioneFile);
+            return new ArchivioMappato(canale, segmenti, dimensioneFile, numero);
+
+        } catch (IOException | RuntimeException e) {
+            canale.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int dimensione() {
+        return dimensione;
+    }
+
+    @Override
+    public Contatto get(int indice) {
+
+        String[] campi = new String[LettoreCSV.NUMERO_CAMPI];
+        leggi(indice, campi, campi.length);
+
+        Contatto c = new Contatto();
+        c.setCognome(campi[0]);
+        c.setNome(campi[1]);
+        c.setNumero1(campi[2]);
+        c.setNumero2(campi[3]);
+        c.setNumero3(campi[4]);
+        c.setEmail1(campi[5]);
+        c.setEmail2(campi[6]);
+        c.setEmail3(campi[7]);
+        return c;
+    }
+
+    @Override
+    public String getCognome(int indice) {
+
+        String[] campi = new String[1];
+        leggi(indice, campi, 1);
+        return campi[0];
+    }
+
+    @Override
+    public String getNome(int indice) {
+
+        String[] campi = new String[2];
+        leggi(indice, campi, 2);
+        return campi[1];
+    }
+
+    /**
+     * @brief Verifica il checksum dello snapshot, leggendo l'intero file.
+     *
+     * @throws IOException Eccezione lanciata se il checksum non corrisponde al contenuto del file
+     */
+    public void verifica() throws IOException {
+
+        CRC32 controllo = new CRC32();
+        long fine = dimensioneFile - Long.BYTES;
+        for (int i = 0; i < segmenti.length && ((long) i << BIT_SEGMENTO) < fine; i++) {
+            ByteBuffer contenuto = segmenti[i].duplicate();
+            contenuto.position(0);
+            contenuto.limit((int) Math.min(contenuto.capacity(), fine - ((long) i << BIT_SEGMENTO)));
+            controllo.update(contenuto);
+        }
+
+        if (controllo.getValue() != leggiLong(fine))
+            throw new IOException("Snapshot danneggiato: checksum non valido");
+    }
+
+    /**
+     * @brief Chiude il file dell'archivio.
+     *
+     * La mappatura in memoria viene rilasciata dal garbage collector: i contatti già letti restano validi,
+     * ma l'archivio non deve essere più utilizzato.
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la chiusura del file
+     */
+    @Override
+    public void close() throws IOException {
+        canale.close();
+    }
+
+    /**
+     * @brief Decodifica i primi campi di un record.
+     *
+     * @param indice La posizione del contatto
+     * @param campi L'array in cui scrivere i campi decodificati
+     * @param quanti Il numero di campi da decodificare, a partire dal cognome
+     */
+    private void leggi(int indice, String[] campi, int quanti) {
+
+        if (indice < 0 || indice >= dimensione)
+            throw new IndexOutOfBoundsException("Indice: " + indice + ", dimensione: " + dimensione);
+
+        long pos = SnapshotRubrica.DIMENSIONE_INTESTAZIONE + leggiLong(inizioIndice + (long) indice * Long.BYTES);
+        if (pos < SnapshotRubrica.DIMENSIONE_INTESTAZIONE)
+            throw danneggiato();
+
+        for (int i = 0; i < quanti; i++) {
+
+            //lettura della lunghezza del campo
+            int n = 0;
+            int spostamento = 0;
+            byte b;
+            do {
+                if (pos >= inizioIndice)
+                    throw danneggiato();
+                b = leggiByte(pos++);
+                n |= (b & 0x7F) << spostamento;
+                spostamento += 7;
+            } while (b < 0);
+
+            if (n < 0 || n > inizioIndice - pos)
+                throw danneggiato();
+
+            campi[i] = n == 0 ? "" : leggiStringa(pos, n);
+            pos += n;
+        }
+    }
+
+    /**
+     * @brief Decodifica una stringa UTF-8 del file.
+     *
+     * @param pos La posizione del primo byte
+     * @param n Il numero di byte
+     *
+     * @return La stringa decodificata
+     */
+    private String leggiStringa(long pos, int n) {
+
+        byte[] byteCampo = new byte[n];
+        ByteBuffer segmento = segmenti[(int) (pos >>> BIT_SEGMENTO)];
+        int inizio = (int) (pos & (DIMENSIONE_SEGMENTO - 1));
+
+        if (inizio + n <= segmento.capacity()) { //campo contenuto in un solo segmento
+            for (int i = 0; i < n; i++)
+                byteCampo[i] = segmento.get(inizio + i);
+        } else {
+            for (int i = 0; i < n; i++)
+                byteCampo[i] = leggiByte(pos + i);
+        }
+        return new String(byteCampo, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @brief Legge un long (big endian) del file.
+     *
+     * @param pos La posizione del primo byte
+     *
+     * @return Il valore letto
+     */
+    private long leggiLong(long pos) {
+
+        ByteBuffer segmento = segmenti[(int) (pos >>> BIT_SEGMENTO)];
+        int inizio = (int) (pos & (DIMENSIONE_SEGMENTO - 1));
+        if (inizio + Long.BYTES <= segmento.capacity())
+            return segmento.getLong(inizio);
+
+        //valore a cavallo di due segmenti
+        long valore = 0;
+        for (int i = 0; i < Long.BYTES; i++)
+            valore = (valore << 8) | (leggiByte(pos + i) & 0xFF);
+        return valore;
+    }
+
+    /**
+     * @brief Legge un byte del file.
+     *
+     * @param pos La posizione del byte
+     *
+     * @return Il byte letto
+     */
+    private byte leggiByte(long pos) {
+        return segmenti[(int) (pos >>> BIT_SEGMENTO)].get((int) (pos & (DIMENSIONE_SEGMENTO - 1)));
+    }
+
+    /**
+     * @brief Crea l'eccezione per un record che supera i limiti dei dati.
+     *
+     * @return L'eccezione da lanciare
+     */
+    private static UncheckedIOException danneggiato() {
+        return new UncheckedIOException(new IOException("Snapshot danneggiato: record incompleto"));
+    }
+}
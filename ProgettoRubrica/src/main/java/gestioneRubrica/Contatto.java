@@ -43,6 +43,21 @@ public class Contatto implements Comparable<Contatto> {
      */
     private String[] emails;
 
+    /**
+     * Nome normalizzato (minuscolo e senza accenti), ricalcolato solo quando cambia il nome.
+     */
+    private String chiaveNome;
+
+    /**
+     * Cognome normalizzato (minuscolo e senza accenti), ricalcolato solo quando cambia il cognome.
+     */
+    private String chiaveCognome;
+
+    /**
+     * Codice hash del nominativo, calcolato al primo utilizzo (0 se non ancora calcolato).
+     */
+    private int hash;
+
     
     /**
      * @brief Costruttore predefinito della classe Contatto,
@@ -56,6 +71,8 @@ public class Contatto implements Comparable<Contatto> {
        
         this.nome = "";
         this.cognome = "";
+        this.chiaveNome = "";
+        this.chiaveCognome = "";
         numeri = new String[3];
         emails = new String[3];
     
@@ -76,6 +93,8 @@ public class Contatto implements Comparable<Contatto> {
      */
     public void setNome(String nome) {
         this.nome = nome;
+        this.chiaveNome = IndicePrefissi.normalizza(nome);
+        this.hash = 0;
     }
 
     /**
@@ -85,6 +104,32 @@ public class Contatto implements Comparable<Contatto> {
      */
     public void setCognome(String cognome) {
         this.cognome = cognome;
+        this.chiaveCognome = IndicePrefissi.normalizza(cognome);
+        this.hash = 0;
+    }
+
+    /**
+     * @brief Imposta il nome del contatto insieme alla sua chiave normalizzata, già calcolata.
+     *
+     * @param nome Il nome del contatto.
+     * @param chiave Il nome normalizzato, come restituito da {@code IndicePrefissi.normalizza}.
+     */
+    void impostaNome(String nome, String chiave) {
+        this.nome = nome;
+        this.chiaveNome = chiave;
+        this.hash = 0;
+    }
+
+    /**
+     * @brief Imposta il cognome del contatto insieme alla sua chiave normalizzata, già calcolata.
+     *
+     * @param cognome Il cognome del contatto.
+     * @param chiave Il cognome normalizzato, come restituito da {@code IndicePrefissi.normalizza}.
+     */
+    void impostaCognome(String cognome, String chiave) {
+        this.cognome = cognome;
+        this.chiaveCognome = chiave;
+        this.hash = 0;
     }
 
     /**
@@ -177,6 +222,37 @@ public class Contatto implements Comparable<Contatto> {
         return emails;
     }
 
+    /**
+     * @brief Restituisce il nome normalizzato del contatto, usato dalla ricerca.
+     *
+     * @return Il nome in minuscolo e senza accenti.
+     */
+    String getChiaveNome() {
+        return chiaveNome;
+    }
+
+    /**
+     * @brief Restituisce il cognome normalizzato del contatto, usato dalla ricerca.
+     *
+     * @return Il cognome in minuscolo e senza accenti.
+     */
+    String getChiaveCognome() {
+        return chiaveCognome;
+    }
+
+    /**
+     * @brief Verifica se il nome o il cognome del contatto iniziano con un prefisso.
+     *
+     * Il confronto avviene sulle chiavi normalizzate già calcolate, senza creare nuovi oggetti.
+     *
+     * @param prefisso Il prefisso, già normalizzato (minuscolo e senza accenti).
+     *
+     * @return {@code true} se il nome o il cognome normalizzati iniziano con il prefisso, {@code false} altrimenti.
+     */
+    public boolean corrispondePrefisso(String prefisso) {
+        return chiaveNome.startsWith(prefisso) || chiaveCognome.startsWith(prefisso);
+    }
+
    
    
     /**
@@ -214,14 +290,20 @@ public class Contatto implements Comparable<Contatto> {
     /**
     * @brief Calcola il codice hash per l'oggetto corrente.
     * 
-    * Il codice hash è calcolato combinando i campi "cognome" e "nome" dell'oggetto
-    * e utilizzando il metodo `hashCode` della classe String.
+    * Il codice hash è calcolato combinando i codici hash dei campi "cognome" e "nome" dell'oggetto,
+    * senza creare stringhe intermedie. Nominativi diversi possono comunque avere lo stesso codice.
+    * Il valore viene memorizzato e ricalcolato solo dopo una modifica del nome o del cognome.
     * 
     * @return il codice hash dell'oggetto
     */
     @Override
     public int hashCode(){
-        return (this.cognome + this.nome).hashCode();
+        int h = hash;
+        if(h == 0){
+            h = 31 * cognome.hashCode() + nome.hashCode();
+            hash = h;
+        }
+        return h;
     }
     
     /**
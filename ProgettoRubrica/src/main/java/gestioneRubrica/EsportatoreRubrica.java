@@ -0,0 +1,274 @@
+/**
+ * @file EsportatoreRubrica.java
+ *
+ * @brief Esportatore di una rubrica su file CSV.
+ *
+ * Questa classe codifica le righe della rubrica in UTF-8 direttamente in un buffer di byte riutilizzato,
+ * che viene scritto sul file tramite {@code FileChannel} solo quando è pieno.
+ * A differenza di {@code PrintWriter}, gli errori di scrittura non vengono ignorati ma propagati al chiamante.
+ * Come per lo snapshot (vedi {@link SnapshotRubrica}), il file viene scritto in un file temporaneo che sostituisce
+ * quello indicato solo a scrittura completata: un errore o un annullamento lasciano intatto il file precedente.
+ *
+ * @see gestioneRubrica.Rubrica
+ */
+
+package gestioneRubrica;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+public class EsportatoreRubrica {
+
+    /**
+     * Dimensione del buffer di scrittura (64 KB).
+     */
+    private static final int DIMENSIONE_BUFFER = 64 * 1024;
+
+    /**
+     * Numero di righe scritte tra due segnalazioni di avanzamento.
+     */
+    private static final int PASSO_AVANZAMENTO = 8192;
+
+    /**
+     * Intestazione del file: la riga "RUBRICA" e la riga dei nomi dei campi.
+     */
+    private static final String INTESTAZIONE = "RUBRICA" + System.lineSeparator()
+            + "COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3" + System.lineSeparator();
+
+    /**
+     * Buffer di scrittura, riutilizzato per tutte le righe.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Canale del file in scrittura.
+     */
+    private FileChannel canale;
+
+    /**
+     * Numero di contatti scritti durante l'ultima esportazione.
+     */
+    private long righeScritte;
+
+    /**
+     * Numero di byte scritti durante l'ultima esportazione.
+     */
+    private long byteScritti;
+
+    /**
+     * Monitor a cui segnalare l'avanzamento, o null se non richiesto.
+     */
+    private MonitorAvanzamento monitor;
+
+    /**
+     * @brief Costruttore dell'esportatore.
+     */
+    public EsportatoreRubrica() {
+        this.buffer = ByteBuffer.allocateDirect(DIMENSIONE_BUFFER);
+    }
+
+    /**
+     * @brief Imposta il monitor a cui segnalare l'avanzamento dell'esportazione.
+     *
+     * L'avanzamento è espresso in contatti scritti sul totale della lista; il monitor viene consultato anche per
+     * interrompere l'esportazione.
+     *
+     * @param monitor Il monitor da usare, o null per non segnalare l'avanzamento
+     */
+    public void setMonitor(MonitorAvanzamento monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * @brief Esporta una lista di contatti su file.
+     *
+     * Il file, codificato in UTF-8, contiene la riga "RUBRICA", la riga di intestazione e una riga per contatto,
+     * con i campi separati da ';'. Un file già esistente viene sostituito solo a scrittura completata.
+     *
+     * @param contatti I contatti da esportare, nell'ordine in cui devono comparire nel file
+     * @param nomefile Il nome del file su cui esportare
+     *
+     * @pre nomefile deve essere una stringa non vuota
+     *
+     * @post Il file contiene tutti i contatti della lista; in caso di errore o di annullamento il file precedente,
+     *       se esiste, resta invariato
+     *
+     * @return Il numero di contatti scritti
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     * @throws CancellationException Eccezione lanciata se il monitor segnala l'annullamento dell'esportazione
+     */
+    public long esporta(List<Contatto> contatti, String nomefile) throws IOException {
+
+        righeScritte = 0;
+        byteScritti = 0;
+        buffer.clear();
+
+        Path destinazione = Paths.get(nomefile).toAbsolutePath();
+        Path temporaneo = destinazione.resolveSibling(destinazione.getFileName() + ".tmp");
+        try (FileChannel fc = FileChannel.open(temporaneo,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            canale = fc;
+            scrivi(INTESTAZIONE);
+
+            for (Contatto c : contatti) { //scrittura di una riga per contatto
+
+                scrivi(c.getCognome());
+                scrivi(';');
+                scrivi(c.getNome());
+                scrivi(';');
+
+                String[] numeri = c.getNumeri();
+                scrivi(numeri[0]);
+                scrivi(';');
+                scrivi(numeri[1]);
+                scrivi(';');
+                scrivi(numeri[2]);
+                scrivi(';');
+
+                String[] emails = c.getEmails();
+                scrivi(emails[0]);
+                scrivi(';');
+                scrivi(emails[1]);
+                scrivi(';');
+                scrivi(emails[2]);
+                scrivi(System.lineSeparator());
+
+                righeScritte++;
+
+                if (monitor != null && righeScritte % PASSO_AVANZAMENTO == 0)
+                    segnala(contatti.size());
+            }
+
+            svuota();
+            fc.force(false);
+
+            if (monitor != null) //a scrittura completata l'esportazione non può più essere annullata
+                monitor.avanzamento(righeScritte, righeScritte, contatti.size());
+
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaneo); //il file incompleto non deve sostituire una rubrica valida
+            throw e;
+        } finally {
+            canale = null;
+        }
+
+        try {
+            Files.move(temporaneo, destinazione, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) { //file system senza sostituzione atomica
+            Files.move(temporaneo, destinazione, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return righeScritte;
+    }
+
+    /**
+     * @brief Segnala al monitor l'avanzamento dell'esportazione.
+     *
+     * @param totale Il numero totale di contatti da scrivere
+     *
+     * @throws CancellationException Eccezione lanciata se il monitor segnala l'annullamento dell'esportazione
+     */
+    private void segnala(long totale) {
+
+        if (monitor.isAnnullato())
+            throw new CancellationException("Esportazione annullata");
+
+        monitor.avanzamento(righeScritte, righeScritte, totale);
+    }
+
+    /**
+     * @brief Codifica una stringa in UTF-8 nel buffer di scrittura.
+     *
+     * I surrogati non accoppiati vengono sostituiti con '?', come avviene con {@code String.getBytes}.
+     *
+     * @param s La stringa da codificare
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    private void scrivi(String s) throws IOException {
+
+        for (int i = 0; i < s.length(); i++) {
+
+            char ch = s.charAt(i);
+
+            if (buffer.remaining() < 4) //spazio sufficiente per il carattere più lungo
+                svuota();
+
+            if (ch < 0x80) {
+                buffer.put((byte) ch);
+            } else if (ch < 0x800) {
+                buffer.put((byte) (0xC0 | (ch >> 6)));
+                buffer.put((byte) (0x80 | (ch & 0x3F)));
+            } else if (Character.isHighSurrogate(ch) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(ch, s.charAt(++i));
+                buffer.put((byte) (0xF0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(ch)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (ch >> 12)));
+                buffer.put((byte) (0x80 | ((ch >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (ch & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * @brief Inserisce un carattere ASCII nel buffer di scrittura.
+     *
+     * @param ch Il carattere da inserire
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    private void scrivi(char ch) throws IOException {
+
+        if (!buffer.hasRemaining())
+            svuota();
+
+        buffer.put((byte) ch);
+    }
+
+    /**
+     * @brief Scrive sul file il contenuto del buffer e lo svuota.
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    private void svuota() throws IOException {
+
+        buffer.flip();
+        while (buffer.hasRemaining())
+            byteScritti += canale.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * @brief Restituisce il numero di contatti scritti durante l'ultima esportazione.
+     *
+     * @return Il numero di righe di contatti scritte
+     */
+    public long getRigheScritte() {
+        return righeScritte;
+    }
+
+    /**
+     * @brief Restituisce il numero di byte scritti durante l'ultima esportazione.
+     *
+     * @return Il numero di byte scritti, intestazione compresa
+     */
+    public long getByteScritti() {
+        return byteScritti;
+    }
+}
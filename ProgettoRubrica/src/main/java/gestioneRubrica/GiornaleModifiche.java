@@ -0,0 +1,538 @@
+/**
+ * @file GiornaleModifiche.java
+ *
+ * @brief Giornale in sola aggiunta delle modifiche apportate alla rubrica dopo l'ultimo snapshot.
+ *
+ * Ogni aggiunta, rimozione e modifica viene accodata al file come un record di poche centinaia di byte,
+ * invece di riscrivere l'intera rubrica. Alla riapertura i record vengono riapplicati, nell'ordine,
+ * alla rubrica caricata dallo snapshot.
+ *
+ * Struttura del file (interi in big endian):
+ * - intestazione: i byte "RUBRGIOR", la versione del formato (int) e il checksum (long) dello snapshot
+ *   a cui si riferiscono le modifiche;
+ * - record: la lunghezza (int) del contenuto, il tipo (byte), il contenuto e il CRC32 (int) di tipo e contenuto.
+ *   Il contenuto è formato da campi UTF-8 preceduti dalla propria lunghezza, codificata come nello snapshot:
+ *   aggiunta: gli otto campi del contatto; rimozione: cognome e nome; modifica: vecchio cognome, vecchio nome
+ *   e gli otto campi aggiornati del contatto.
+ *
+ * Un record incompleto o danneggiato in fondo al file (ad esempio per un'interruzione durante la scrittura)
+ * viene scartato insieme a quelli successivi. Un giornale che si riferisce a uno snapshot diverso
+ * da quello caricato contiene modifiche già incluse nello snapshot e viene ignorato.
+ *
+ * @see gestioneRubrica.PersistenzaRubrica
+ * @see gestioneRubrica.SnapshotRubrica
+ */
+
+package gestioneRubrica;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.zip.CRC32;
+
+class GiornaleModifiche implements Closeable {
+
+    /**
+     * Byte iniziali che identificano un giornale delle modifiche.
+     */
+    static final byte[] FIRMA = "RUBRGIOR".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Versione del formato scritta da questa classe.
+     */
+    static final int VERSIONE = 1;
+
+    /**
+     * Dimensione dell'intestazione: firma, versione e checksum dello snapshot.
+     */
+    static final int DIMENSIONE_INTESTAZIONE = 20;
+
+    /**
+     * Tipo del record di aggiunta di un contatto.
+     */
+    private static final byte AGGIUNTA = 1;
+
+    /**
+     * Tipo del record di rimozione di un contatto.
+     */
+    private static final byte RIMOZIONE = 2;
+
+    /**
+     * Tipo del record di modifica di un contatto.
+     */
+    private static final byte MODIFICA = 3;
+
+    /**
+     * Canale del file, aperto in lettura e in scrittura in coda.
+     */
+    private final FileChannel canale;
+
+    /**
+     * Buffer in cui vengono preparati i record di un'operazione, scritti poi con un'unica scrittura.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Posizione nel buffer del record in preparazione.
+     */
+    private int inizioRecord;
+
+    /**
+     * Dimensione del file.
+     */
+    private long dimensione;
+
+    /**
+     * Numero di record del file.
+     */
+    private int numeroRecord;
+
+    /**
+     * @brief Costruttore di un giornale già aperto.
+     *
+     * @param canale Il canale del file
+     * @param dimensione La dimensione del file, a cui vengono accodati i nuovi record
+     * @param numeroRecord Il numero di record già presenti
+     */
+    private GiornaleModifiche(FileChannel canale, long dimensione, int numeroRecord) {
+        this.canale = canale;
+        this.buffer = ByteBuffer.allocate(4096);
+        this.dimensione = dimensione;
+        this.numeroRecord = numeroRecord;
+    }
+
+    /**
+     * @brief Crea un giornale vuoto, sostituendo quello eventualmente presente.
+     *
+     * @param nomefile Il nome del file del giornale
+     * @param base Il checksum dello snapshot a cui si riferiranno le modifiche, 0 se lo snapshot non esiste
+     *
+     * @return Il giornale, pronto per registrare le modifiche
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    static GiornaleModifiche crea(String nomefile, long base) throws IOException {
+        return crea(nomefile, base, new byte[0], 0);
+    }
+
+    /**
+     * @brief Crea un giornale che contiene alcuni record già registrati, sostituendo quello eventualmente presente.
+     *
+     * Viene usato dalla compattazione in background: i record registrati mentre veniva scritto lo snapshot
+     * non sono inclusi in esso e vengono copiati nel nuovo giornale.
+     * Il file viene scritto in un file temporaneo e sostituisce quello precedente solo a scrittura completata.
+     *
+     * @param nomefile Il nome del file del giornale
+     * @param base Il checksum dello snapshot a cui si riferiranno le modifiche, 0 se lo snapshot non esiste
+     * @param record I record da copiare nel nuovo giornale (vedi {@code leggiCoda})
+     * @param numeroRecord Il numero di record contenuti in {@code record}
+     *
+     * @return Il giornale, pronto per registrare le modifiche in coda ai record copiati
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    static GiornaleModifiche crea(String nomefile, long base, byte[] record, int numeroRecord) throws IOException {
+
+        Path destinazione = Paths.get(nomefile).toAbsolutePath();
+        Path temporaneo = destinazione.resolveSibling(destinazione.getFileName() + ".tmp");
+
+        ByteBuffer contenuto = ByteBuffer.allocate(DIMENSIONE_INTESTAZIONE + record.length);
+        contenuto.put(FIRMA);
+        contenuto.putInt(VERSIONE);
+        contenuto.putLong(base);
+        contenuto.put(record);
+        contenuto.flip();
+
+        try (FileChannel fc = FileChannel.open(temporaneo,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (contenuto.hasRemaining())
+                fc.write(contenuto);
+            fc.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaneo);
+            throw e;
+        }
+
+        try {
+            Files.move(temporaneo, destinazione, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) { //file system senza sostituzione atomica
+            Files.move(temporaneo, destinazione, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return new GiornaleModifiche(FileChannel.open(destinazione, StandardOpenOption.READ, StandardOpenOption.WRITE),
+                DIMENSIONE_INTESTAZIONE + record.length, numeroRecord);
+    }
+
+    /**
+     * @brief Apre un giornale esistente e ne riapplica le modifiche a una rubrica.
+     *
+     * Se il file non esiste o si riferisce a uno snapshot diverso, viene creato un giornale vuoto.
+     * I record incompleti o danneggiati in fondo al file vengono eliminati.
+     *
+     * @param nomefile Il nome del file del giornale
+     * @param base Il checksum dello snapshot da cui è stata caricata la rubrica, 0 se lo snapshot non esiste
+     * @param rubrica La rubrica caricata dallo snapshot, a cui applicare le modifiche
+     *
+     * @pre Alla rubrica non deve essere collegato il giornale stesso, altrimenti le modifiche verrebbero registrate di nuovo
+     *
+     * @return Il giornale, pronto per registrare le nuove modifiche in coda a quelle presenti
+     *
+     * @throws IOException Eccezione lanciata se il file non può essere letto o non è un giornale della rubrica
+     */
+    static GiornaleModifiche apri(String nomefile, long base, Rubrica rubrica) throws IOException {
+
+        Path percorso = Paths.get(nomefile);
+        if (!Files.exists(percorso))
+            return crea(nomefile, base);
+
+        byte[] dati = Files.readAllBytes(percorso);
+        ByteBuffer file = ByteBuffer.wrap(dati);
+
+        if (dati.length < DIMENSIONE_INTESTAZIONE || !Arrays.equals(Arrays.copyOf(dati, FIRMA.length), FIRMA))
+            throw new IOException("Il file non è un giornale della rubrica");
+
+        int versione = file.getInt(FIRMA.length);
+        if (versione != VERSIONE)
+            throw new IOException("Versione del giornale non supportata: " + versione);
+
+        if (file.getLong(FIRMA.length + Integer.BYTES) != base) //modifiche già incluse in un altro snapshot
+            return crea(nomefile, base);
+
+        //riapplicazione dei record completi e integri
+        CRC32 crc = new CRC32();
+        int pos = DIMENSIONE_INTESTAZIONE;
+        int numeroRecord = 0;
+        while (dati.length - pos >= Integer.BYTES + 1 + Integer.BYTES) {
+
+            int lunghezza = file.getInt(pos);
+            if (lunghezza < 0 || lunghezza > dati.length - pos - Integer.BYTES - 1 - Integer.BYTES)
+                break;
+
+            crc.reset();
+            crc.update(dati, pos + Integer.BYTES, 1 + lunghezza);
+            if ((int) crc.getValue() != file.getInt(pos + Integer.BYTES + 1 + lunghezza))
+                break;
+
+            applica(dati, dati[pos + Integer.BYTES], pos + Integer.BYTES + 1, pos + Integer.BYTES + 1 + lunghezza, rubrica);
+            pos += Integer.BYTES + 1 + lunghezza + Integer.BYTES;
+            numeroRecord++;
+        }
+
+        FileChannel canale = FileChannel.open(percorso, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (pos < dati.length) { //eliminazione della coda incompleta
+            canale.truncate(pos);
+            canale.force(false);
+        }
+        return new GiornaleModifiche(canale, pos, numeroRecord);
+    }
+
+    /**
+     * @brief Registra l'aggiunta di uno o più contatti.
+     *
+     * @param aggiunti I contatti aggiunti
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    void registraAggiunte(Collection<Contatto> aggiunti) throws IOException {
+
+        for (Contatto c : aggiunti) {
+            iniziaRecord(AGGIUNTA);
+            scriviContatto(c);
+            terminaRecord();
+        }
+        scrivi();
+    }
+
+    /**
+     * @brief Registra la rimozione di uno o più contatti.
+     *
+     * @param rimossi I contatti rimossi
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    void registraRimozioni(Collection<Contatto> rimossi) throws IOException {
+
+        for (Contatto c : rimossi) {
+            iniziaRecord(RIMOZIONE);
+            scriviCampo(c.getCognome());
+            scriviCampo(c.getNome());
+            terminaRecord();
+        }
+        scrivi();
+    }
+
+    /**
+     * @brief Registra la modifica di un contatto.
+     *
+     * @param vecchioCognome Il cognome del contatto prima della modifica
+     * @param vecchioNome Il nome del contatto prima della modifica
+     * @param c Il contatto modificato
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    void registraModifica(String vecchioCognome, String vecchioNome, Contatto c) throws IOException {
+
+        iniziaRecord(MODIFICA);
+        scriviCampo(vecchioCognome);
+        scriviCampo(vecchioNome);
+        scriviContatto(c);
+        terminaRecord();
+        scrivi();
+    }
+
+    /**
+     * @brief Restituisce la dimensione del giornale.
+     *
+     * @return Il numero di byte del file, intestazione compresa
+     */
+    long getDimensione() {
+        return dimensione;
+    }
+
+    /**
+     * @brief Restituisce il numero di modifiche registrate.
+     *
+     * @return Il numero di record del file
+     */
+    int getNumeroRecord() {
+        return numeroRecord;
+    }
+
+    /**
+     * @brief Legge i record registrati a partire da una posizione del file.
+     *
+     * @param da La posizione del primo record da leggere, ottenuta da {@code getDimensione}
+     *
+     * @return I byte dei record, dalla posizione indicata alla fine del file
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    byte[] leggiCoda(long da) throws IOException {
+
+        ByteBuffer coda = ByteBuffer.allocate((int) (dimensione - da));
+        while (coda.hasRemaining()) {
+            if (canale.read(coda, da + coda.position()) < 0)
+                throw new IOException("Giornale troncato durante la lettura");
+        }
+        return coda.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        canale.close();
+    }
+
+    /**
+     * @brief Applica un record alla rubrica.
+     *
+     * Le modifiche che non trovano il contatto a cui si riferiscono (o che creerebbero un omonimo) vengono ignorate,
+     * come avverrebbe ripetendo la stessa operazione sulla rubrica.
+     *
+     * @param dati Il contenuto del file
+     * @param tipo Il tipo del record
+     * @param da La posizione del contenuto del record
+     * @param a La posizione successiva alla fine del contenuto
+     * @param rubrica La rubrica da modificare
+     *
+     * @throws IOException Eccezione lanciata se il contenuto del record non è valido
+     */
+    private static void applica(byte[] dati, byte tipo, int da, int a, Rubrica rubrica) throws IOException {
+
+        int[] pos = {da};
+        switch (tipo) {
+
+            case AGGIUNTA:
+                rubrica.aggiungiContatto(leggiContatto(dati, pos, a));
+                break;
+
+            case RIMOZIONE: {
+                String cognome = leggiCampo(dati, pos, a);
+                Contatto c = rubrica.cercaNominativo(leggiCampo(dati, pos, a), cognome);
+                if (c != null)
+                    rubrica.rimuoviContatto(Collections.singletonList(c));
+                break;
+            }
+
+            case MODIFICA: {
+                String vecchioCognome = leggiCampo(dati, pos, a);
+                Contatto c = rubrica.cercaNominativo(leggiCampo(dati, pos, a), vecchioCognome);
+                Contatto modificato = leggiContatto(dati, pos, a);
+                if (c != null)
+                    rubrica.modificaContatto(c, modificato.getNome(), modificato.getCognome(), modificato.getNumeri(), modificato.getEmails());
+                break;
+            }
+
+            default:
+                throw new IOException("Giornale danneggiato: tipo di record sconosciuto " + tipo);
+        }
+    }
+
+    /**
+     * @brief Decodifica gli otto campi di un contatto.
+     *
+     * @param dati Il contenuto del file
+     * @param pos La posizione del primo campo, aggiornata dopo la lettura
+     * @param fine La posizione successiva alla fine del record
+     *
+     * @return Il contatto decodificato
+     *
+     * @throws IOException Eccezione lanciata se un campo supera la fine del record
+     */
+    private static Contatto leggiContatto(byte[] dati, int[] pos, int fine) throws IOException {
+
+        Contatto c = new Contatto();
+        c.setCognome(leggiCampo(dati, pos, fine));
+        c.setNome(leggiCampo(dati, pos, fine));
+        c.setNumero1(leggiCampo(dati, pos, fine));
+        c.setNumero2(leggiCampo(dati, pos, fine));
+        c.setNumero3(leggiCampo(dati, pos, fine));
+        c.setEmail1(leggiCampo(dati, pos, fine));
+        c.setEmail2(leggiCampo(dati, pos, fine));
+        c.setEmail3(leggiCampo(dati, pos, fine));
+        return c;
+    }
+
+    /**
+     * @brief Decodifica un campo preceduto dalla sua lunghezza.
+     *
+     * @param dati Il contenuto del file
+     * @param pos La posizione della lunghezza del campo, aggiornata dopo la lettura
+     * @param fine La posizione successiva alla fine del record
+     *
+     * @return Il campo decodificato
+     *
+     * @throws IOException Eccezione lanciata se il campo supera la fine del record
+     */
+    private static String leggiCampo(byte[] dati, int[] pos, int fine) throws IOException {
+
+        //lettura della lunghezza del campo
+        int p = pos[0];
+        int n = 0;
+        int spostamento = 0;
+        byte b;
+        do {
+            if (p >= fine)
+                throw new IOException("Giornale danneggiato: record incompleto");
+            b = dati[p++];
+            n |= (b & 0x7F) << spostamento;
+            spostamento += 7;
+        } while (b < 0);
+
+        if (n < 0 || n > fine - p)
+            throw new IOException("Giornale danneggiato: record incompleto");
+
+        pos[0] = p + n;
+        return n == 0 ? "" : new String(dati, p, n, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @brief Inizia un nuovo record nel buffer, lasciando lo spazio per la lunghezza.
+     *
+     * @param tipo Il tipo del record
+     */
+    private void iniziaRecord(byte tipo) {
+
+        riserva(Integer.BYTES + 1);
+        inizioRecord = buffer.position();
+        buffer.putInt(0);
+        buffer.put(tipo);
+    }
+
+    /**
+     * @brief Completa il record in preparazione con la lunghezza e il checksum.
+     */
+    private void terminaRecord() {
+
+        int lunghezza = buffer.position() - inizioRecord - Integer.BYTES - 1;
+        buffer.putInt(inizioRecord, lunghezza);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), inizioRecord + Integer.BYTES, 1 + lunghezza);
+        riserva(Integer.BYTES);
+        buffer.putInt((int) crc.getValue());
+        numeroRecord++;
+    }
+
+    /**
+     * @brief Scrive nel buffer gli otto campi di un contatto.
+     *
+     * @param c Il contatto da scrivere
+     */
+    private void scriviContatto(Contatto c) {
+
+        String[] numeri = c.getNumeri();
+        String[] emails = c.getEmails();
+        scriviCampo(c.getCognome());
+        scriviCampo(c.getNome());
+        scriviCampo(numeri[0]);
+        scriviCampo(numeri[1]);
+        scriviCampo(numeri[2]);
+        scriviCampo(emails[0]);
+        scriviCampo(emails[1]);
+        scriviCampo(emails[2]);
+    }
+
+    /**
+     * @brief Scrive nel buffer un campo preceduto dalla sua lunghezza.
+     *
+     * @param s Il campo da scrivere
+     */
+    private void scriviCampo(String s) {
+
+        byte[] campo = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+
+        riserva(5 + campo.length);
+        int n = campo.length;
+        while (n >= 0x80) {
+            buffer.put((byte) (n | 0x80));
+            n >>>= 7;
+        }
+        buffer.put((byte) n);
+        buffer.put(campo);
+    }
+
+    /**
+     * @brief Garantisce nel buffer lo spazio per il numero di byte indicato, ingrandendolo se necessario.
+     *
+     * @param byteNecessari Il numero di byte da scrivere
+     */
+    private void riserva(int byteNecessari) {
+
+        if (buffer.remaining() < byteNecessari) {
+            ByteBuffer nuovo = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + byteNecessari));
+            buffer.flip();
+            nuovo.put(buffer);
+            buffer = nuovo;
+        }
+    }
+
+    /**
+     * @brief Accoda al file i record preparati nel buffer e attende che siano scritti sul disco.
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    private void scrivi() throws IOException {
+
+        buffer.flip();
+        try {
+            long posizione = dimensione;
+            while (buffer.hasRemaining())
+                posizione += canale.write(buffer, posizione);
+            canale.force(false);
+            dimensione = posizione;
+        } finally {
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,604 @@
+/**
+ * @file ImportatoreRubrica.java
+ *
+ * @brief Motore di importazione massiva di una rubrica da file CSV.
+ *
+ * Questa classe legge il file riga per riga e, per ogni riga:
+ * -costruisce il contatto corrispondente;
+ * -se la validazione è attiva, scarta i contatti non validi secondo {@link ValidatoreContatto};
+ * -scarta i nominativi già letti, conservando la prima occorrenza;
+ * -verifica se l'ordine dei contatti letti è già quello della rubrica.
+ * Al termine della lettura i contatti vengono ordinati una sola volta, oppure per nulla se il file
+ * era già ordinato (come avviene sempre per i file prodotti da {@code esportaRubrica}),
+ * e pubblicati nella nuova rubrica con un'unica operazione.
+ * Per i file molto grandi la lettura può essere suddivisa tra più thread.
+ *
+ * @see gestioneRubrica.Rubrica
+ */
+
+package gestioneRubrica;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ImportatoreRubrica {
+
+    /**
+     * @brief Contatti letti da una porzione del file, già ordinati e senza duplicati interni.
+     */
+    private static final class Blocco {
+
+        private final List<Contatto> contatti = new ArrayList<>();
+
+        private long righe;
+
+        private long duplicati;
+
+        private long nonValidi;
+
+        private boolean ordinato = true;
+    }
+
+    /**
+     * Dimensione (in byte) oltre la quale conviene leggere un file in parallelo.
+     */
+    private static final long SOGLIA_PARALLELA = 8L * 1024 * 1024;
+
+    /**
+     * Numero di righe lette tra due segnalazioni di avanzamento.
+     */
+    private static final int PASSO_AVANZAMENTO = 8192;
+
+    /**
+     * Numero di thread usati per la lettura del file: con un solo thread la lettura è sequenziale.
+     */
+    private final int numeroThread;
+
+    /**
+     * Monitor a cui segnalare l'avanzamento, o null se non richiesto.
+     */
+    private MonitorAvanzamento monitor;
+
+    /**
+     * Dimensione del file in corso di importazione.
+     */
+    private long dimensioneFile;
+
+    /**
+     * Righe lette finora da tutti i thread, per la segnalazione dell'avanzamento.
+     */
+    private final AtomicLong righeSegnalate = new AtomicLong();
+
+    /**
+     * Byte letti finora da tutti i thread, per la segnalazione dell'avanzamento.
+     */
+    private final AtomicLong byteSegnalati = new AtomicLong();
+
+    /**
+     * Impostato quando la lettura di una porzione del file fallisce, per interrompere la lettura delle altre.
+     */
+    private volatile boolean letturaInterrotta;
+
+    /**
+     * Stima dei byte di heap risparmiati condividendo cognomi e nomi ripetuti durante l'ultima importazione.
+     */
+    private final AtomicLong byteRisparmiati = new AtomicLong();
+
+    /**
+     * Numero di righe di contatti lette durante l'ultima importazione.
+     */
+    private long righeLette;
+
+    /**
+     * Numero di righe scartate perché relative a nominativi già letti.
+     */
+    private long duplicati;
+
+    /**
+     * Numero di righe scartate perché relative a contatti non validi.
+     */
+    private long nonValidi;
+
+    /**
+     * Indica se i contatti non validi vengono scartati.
+     */
+    private boolean validazione;
+
+    /**
+     * Indica se i contatti dell'ultima importazione erano già ordinati nel file.
+     */
+    private boolean ordinato;
+
+    /**
+     * @brief Costruttore dell'importatore sequenziale.
+     */
+    public ImportatoreRubrica() {
+        this(1);
+    }
+
+    /**
+     * @brief Costruttore dell'importatore con un numero di thread specifico.
+     *
+     * Con più di un thread il file viene suddiviso in porzioni allineate all'inizio delle righe,
+     * lette e ordinate in parallelo su un {@code ForkJoinPool} e infine fuse in un'unica lista ordinata.
+     * Il risultato è identico a quello dell'importazione sequenziale.
+     *
+     * @param numeroThread Il numero di thread da usare
+     *
+     * @throws IllegalArgumentException Eccezione per la gestione di un numero di thread minore di 1
+     */
+    public ImportatoreRubrica(int numeroThread) {
+
+        if (numeroThread < 1)
+            throw new IllegalArgumentException("Numero di thread non valido: " + numeroThread);
+
+        this.numeroThread = numeroThread;
+    }
+
+    /**
+     * @brief Calcola il numero di thread consigliato per importare un file.
+     *
+     * @param nomefile Il nome del file da importare
+     *
+     * @return Il numero di processori disponibili per i file più grandi di 8 MB, altrimenti 1
+     *
+     * @throws IOException Eccezione per la gestione di errori durante l'accesso al file
+     */
+    public static int numeroThreadPer(String nomefile) throws IOException {
+
+        return Files.size(Paths.get(nomefile)) >= SOGLIA_PARALLELA
+                ? Runtime.getRuntime().availableProcessors() : 1;
+    }
+
+    /**
+     * @brief Imposta il monitor a cui segnalare l'avanzamento dell'importazione.
+     *
+     * L'avanzamento è espresso in byte letti sul totale del file; il monitor viene consultato anche per
+     * interrompere l'importazione.
+     *
+     * @param monitor Il monitor da usare, o null per non segnalare l'avanzamento
+     */
+    public void setMonitor(MonitorAvanzamento monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * @brief Attiva o disattiva lo scarto dei contatti non validi secondo {@link ValidatoreContatto}.
+     *
+     * Il controllo avviene durante la lettura, su ogni thread, prima dello scarto dei duplicati.
+     * È disattivato per impostazione predefinita, così le rubriche esportate vengono sempre reimportate per intero.
+     *
+     * @param validazione {@code true} per scartare i contatti non validi, {@code false} per accettarli
+     */
+    public void setValidazione(boolean validazione) {
+        this.validazione = validazione;
+    }
+
+    /**
+     * @brief Importa la rubrica contenuta in un file CSV.
+     *
+     * Il file, codificato in UTF-8, deve iniziare con la riga "RUBRICA", seguita da una riga di intestazione e da una riga per contatto,
+     * con i campi separati da ';' nell'ordine: cognome, nome, tre numeri e tre indirizzi email.
+     * I campi mancanti in fondo alla riga sono considerati vuoti, le righe vuote vengono ignorate.
+     * La lettura è affidata a {@link LettoreCSV}.
+     *
+     * @param nomefile Il nome del file da cui importare la rubrica
+     *
+     * @pre nomefile deve essere una stringa non vuota
+     *
+     * @post I contatti del file sono caricati, ordinati e senza duplicati, nella rubrica restituita
+     *
+     * @return La rubrica importata, vuota se il file non contiene una rubrica
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     * @throws CancellationException Eccezione lanciata se il monitor segnala l'annullamento dell'importazione
+     */
+    public Rubrica importa(String nomefile) throws IOException {
+
+        azzeraContatori();
+
+        Rubrica temp = new Rubrica(); //creazione oggetto rubrica
+        long[] limiti;
+
+        //lettura del file a finestre, decodificato come UTF-8
+        try (LettoreCSV lettore = new LettoreCSV(nomefile)) {
+
+            if (!leggiIntestazione(lettore))
+                return temp; // Ritorna una rubrica vuota in caso di errore
+
+            if (numeroThread == 1) { //lettura sequenziale del resto del file
+
+                Blocco blocco = leggiBlocco(lettore);
+                righeLette = blocco.righe;
+                duplicati = blocco.duplicati;
+                nonValidi = blocco.nonValidi;
+                ordinato = blocco.ordinato;
+
+                //pubblicazione dei contatti nella rubrica con un'unica operazione
+                temp.caricaContattiOrdinati(blocco.contatti);
+                return temp;
+            }
+
+            //suddivisione dei dati in porzioni di dimensione simile, allineate all'inizio delle righe
+            long inizioDati = lettore.getPosizione();
+            long lunghezza = lettore.getDimensione() - inizioDati;
+            limiti = new long[numeroThread + 1];
+            limiti[0] = inizioDati;
+            for (int i = 1; i < numeroThread; i++)
+                limiti[i] = Math.max(limiti[i - 1], lettore.allineaARiga(inizioDati + lunghezza * i / numeroThread));
+            limiti[numeroThread] = lettore.getDimensione();
+        }
+
+        List<Blocco> blocchi = leggiInParallelo(nomefile, limiti);
+
+        //pubblicazione dei contatti fusi nella rubrica con un'unica operazione
+        temp.caricaContattiOrdinati(fondi(blocchi));
+        return temp;
+    }
+
+    /**
+     * @brief Importa i contatti di un file CSV in un archivio compatto, senza creare una rubrica.
+     *
+     * Il formato del file e le regole di validazione, ordinamento e scarto dei duplicati sono quelli di {@code importa}.
+     * Ogni contatto letto viene copiato subito nelle colonne dell'archivio (vedi {@link ArchivioColonnare})
+     * e non viene conservato: non vengono creati la lista dei contatti, l'insieme dei nominativi e gli indici
+     * della rubrica. Al termine della lettura l'archivio viene ordinato e privato dei duplicati confrontando
+     * i nominativi direttamente sulle colonne. La lettura è sequenziale, indipendentemente dal numero di thread.
+     *
+     * @param nomefile Il nome del file da cui importare i contatti
+     *
+     * @pre nomefile deve essere una stringa non vuota
+     *
+     * @return L'archivio dei contatti, ordinati e senza duplicati, vuoto se il file non contiene una rubrica
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     * @throws CancellationException Eccezione lanciata se il monitor segnala l'annullamento dell'importazione
+     */
+    public ArchivioColonnare importaArchivio(String nomefile) throws IOException {
+
+        azzeraContatori();
+        ArchivioColonnare archivio = new ArchivioColonnare();
+
+        try (LettoreCSV lettore = new LettoreCSV(nomefile)) {
+
+            if (!leggiIntestazione(lettore))
+                return archivio;
+
+            long posizioneSegnalata = lettore.getPosizione();
+            Contatto precedente = null;
+            Contatto c;
+            while ((c = lettore.leggiContatto()) != null) { //ciclo di lettura dei contatti
+
+                righeLette++;
+
+                if (monitor != null && righeLette % PASSO_AVANZAMENTO == 0) { //segnalazione periodica dell'avanzamento
+                    segnala(PASSO_AVANZAMENTO, lettore.getPosizione() - posizioneSegnalata);
+                    posizioneSegnalata = lettore.getPosizione();
+                }
+
+                if (validazione && !ValidatoreContatto.valido(c)) { //scarto dei contatti non validi
+                    nonValidi++;
+                    continue;
+                }
+
+                //controllo che l'ordine del file sia quello della rubrica
+                if (ordinato && precedente != null && precedente.compareTo(c) > 0)
+                    ordinato = false;
+
+                archivio.aggiungi(c);
+                precedente = c;
+            }
+
+            if (monitor != null)
+                segnala(righeLette % PASSO_AVANZAMENTO, lettore.getPosizione() - posizioneSegnalata);
+        }
+
+        //unico ordinamento, solo se necessario, e scarto dei nominativi già letti
+        duplicati = archivio.ordina();
+        archivio.compatta();
+        return archivio;
+    }
+
+    /**
+     * @brief Azzera i contatori dell'importazione precedente.
+     */
+    private void azzeraContatori() {
+
+        righeLette = 0;
+        duplicati = 0;
+        nonValidi = 0;
+        ordinato = true;
+        righeSegnalate.set(0);
+        byteSegnalati.set(0);
+        byteRisparmiati.set(0);
+        letturaInterrotta = false;
+    }
+
+    /**
+     * @brief Legge le due righe iniziali del file: la riga "RUBRICA" e la riga di intestazione.
+     *
+     * @param lettore Il lettore del file, posizionato all'inizio
+     *
+     * @return {@code true} se il file contiene una rubrica, {@code false} altrimenti
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    private boolean leggiIntestazione(LettoreCSV lettore) throws IOException {
+
+        String firstLine = lettore.leggiRiga();
+
+        // Controllo se la prima parola è "RUBRICA"
+        if (firstLine == null || !firstLine.trim().equalsIgnoreCase("RUBRICA"))
+            return false;
+
+        //legge la riga di intestazione
+        lettore.leggiRiga();
+        dimensioneFile = lettore.getDimensione();
+        byteSegnalati.set(lettore.getPosizione()); //le intestazioni sono già state lette
+        return true;
+    }
+
+    /**
+     * @brief Legge le porzioni del file in parallelo su un {@code ForkJoinPool}.
+     *
+     * Al primo errore (o annullamento) di una porzione le porzioni non ancora iniziate vengono annullate
+     * e quelle in corso si interrompono alla successiva segnalazione dell'avanzamento, senza leggere il resto del file.
+     *
+     * @param nomefile Il nome del file da leggere
+     * @param limiti Le posizioni di inizio delle porzioni, seguite dalla dimensione del file
+     *
+     * @return I blocchi letti, nell'ordine delle porzioni del file
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     * @throws CancellationException Eccezione lanciata se il monitor segnala l'annullamento dell'importazione
+     */
+    private List<Blocco> leggiInParallelo(String nomefile, long[] limiti) throws IOException {
+
+        ForkJoinPool pool = new ForkJoinPool(numeroThread);
+        AtomicReference<RuntimeException> primoErrore = new AtomicReference<>();
+        try {
+            List<ForkJoinTask<Blocco>> attivita = new ArrayList<>();
+            for (int i = 0; i < limiti.length - 1; i++) {
+                long inizio = limiti[i];
+                long fine = limiti[i + 1];
+                attivita.add(pool.submit(() -> {
+                    try (LettoreCSV lettore = new LettoreCSV(nomefile, inizio, fine, LettoreCSV.DIMENSIONE_FINESTRA)) {
+                        return leggiBlocco(lettore);
+                    } catch (IOException | RuntimeException e) {
+                        //interruzione delle altre porzioni, conservando l'errore che l'ha causata
+                        RuntimeException errore = e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+                        if (primoErrore.compareAndSet(null, errore)) {
+                            letturaInterrotta = true;
+                            pool.shutdownNow();
+                        }
+                        throw errore;
+                    }
+                }));
+            }
+
+            List<Blocco> blocchi = new ArrayList<>();
+            for (ForkJoinTask<Blocco> a : attivita)
+                blocchi.add(a.join());
+            return blocchi;
+
+        } catch (RuntimeException e) {
+            //viene rilanciato l'errore originale, non l'interruzione o l'annullamento delle porzioni successive
+            RuntimeException errore = primoErrore.get() != null ? primoErrore.get() : e;
+            if (errore instanceof UncheckedIOException)
+                throw ((UncheckedIOException) errore).getCause();
+            throw errore;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @brief Legge i contatti restanti di un lettore.
+     *
+     * I nominativi già letti vengono scartati conservando la prima occorrenza; i contatti accettati
+     * vengono ordinati (in modo stabile) solo se non erano già nell'ordine della rubrica.
+     *
+     * @param lettore Il lettore da cui leggere i contatti
+     *
+     * @return Il blocco dei contatti letti
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    private Blocco leggiBlocco(LettoreCSV lettore) throws IOException {
+
+        Blocco blocco = new Blocco();
+        long posizioneSegnalata = lettore.getPosizione();
+
+        //insieme delle stringhe canoniche, eliminato al termine della lettura del blocco
+        PoolStringhe pool = new PoolStringhe();
+        lettore.setPool(pool);
+        List<Contatto> letti = blocco.contatti; //contatti accettati, nell'ordine del file
+        Set<Contatto> nominativi = new HashSet<>(); //nominativi già letti
+
+        Contatto c;
+        while ((c = lettore.leggiContatto()) != null) { //ciclo di lettura dei contatti
+
+            blocco.righe++;
+
+            if (blocco.righe % PASSO_AVANZAMENTO == 0) {
+                if (letturaInterrotta) //lettura di un'altra porzione fallita
+                    throw new CancellationException("Lettura interrotta");
+                if (monitor != null) { //segnalazione periodica dell'avanzamento
+                    segnala(PASSO_AVANZAMENTO, lettore.getPosizione() - posizioneSegnalata);
+                    posizioneSegnalata = lettore.getPosizione();
+                }
+            }
+
+            if (validazione && !ValidatoreContatto.valido(c)) { //scarto dei contatti non validi
+                blocco.nonValidi++;
+                continue;
+            }
+
+            if (!nominativi.add(c)) { //scarto dei nominativi già letti
+                blocco.duplicati++;
+                continue;
+            }
+
+            //controllo che l'ordine del file sia quello della rubrica
+            if (blocco.ordinato && !letti.isEmpty() && letti.get(letti.size() - 1).compareTo(c) > 0)
+                blocco.ordinato = false;
+
+            letti.add(c);
+        }
+
+        if (monitor != null)
+            segnala(blocco.righe % PASSO_AVANZAMENTO, lettore.getPosizione() - posizioneSegnalata);
+
+        lettore.setPool(null);
+        byteRisparmiati.addAndGet(pool.getByteRisparmiati());
+
+        if (!blocco.ordinato) //unico ordinamento (stabile), solo se il file non era già ordinato
+            letti.sort(null);
+
+        return blocco;
+    }
+
+    /**
+     * @brief Aggiorna i contatori di avanzamento comuni a tutti i thread e li segnala al monitor.
+     *
+     * @param righe Le righe lette dall'ultima segnalazione
+     * @param byteLetti I byte letti dall'ultima segnalazione
+     *
+     * @throws CancellationException Eccezione lanciata se il monitor segnala l'annullamento dell'importazione
+     */
+    private void segnala(long righe, long byteLetti) {
+
+        if (monitor.isAnnullato())
+            throw new CancellationException("Importazione annullata");
+
+        monitor.avanzamento(righeSegnalate.addAndGet(righe), byteSegnalati.addAndGet(byteLetti), dimensioneFile);
+    }
+
+    /**
+     * @brief Fonde i blocchi ordinati in un'unica lista ordinata e senza duplicati.
+     *
+     * La fusione a k vie estrae sempre il contatto minore tra le teste dei blocchi; a parità di ordinamento
+     * viene estratto prima il contatto del blocco precedente nel file, così che l'ordine e la scelta delle occorrenze
+     * da conservare coincidano con quelli della lettura sequenziale.
+     * I duplicati tra blocchi diversi sono contatti equivalenti, e quindi consecutivi nella fusione:
+     * il confronto è limitato al gruppo di contatti equivalenti appena estratti.
+     *
+     * @param blocchi I blocchi da fondere, nell'ordine delle porzioni del file
+     *
+     * @return La lista fusa
+     */
+    private List<Contatto> fondi(List<Blocco> blocchi) {
+
+        int totale = 0;
+        boolean bordiOrdinati = true;
+        Contatto ultimo = null;
+        for (Blocco b : blocchi) {
+            righeLette += b.righe;
+            duplicati += b.duplicati;
+            nonValidi += b.nonValidi;
+            ordinato &= b.ordinato;
+            totale += b.contatti.size();
+            if (!b.contatti.isEmpty()) {
+                if (ultimo != null && ultimo.compareTo(b.contatti.get(0)) > 0)
+                    bordiOrdinati = false;
+                ultimo = b.contatti.get(b.contatti.size() - 1);
+            }
+        }
+        ordinato &= bordiOrdinati;
+
+        int[] cursori = new int[blocchi.size()];
+        PriorityQueue<Integer> coda = new PriorityQueue<>((a, b) -> {
+            int r = blocchi.get(a).contatti.get(cursori[a]).compareTo(blocchi.get(b).contatti.get(cursori[b]));
+            return r != 0 ? r : Integer.compare(a, b);
+        });
+        for (int i = 0; i < blocchi.size(); i++) {
+            if (!blocchi.get(i).contatti.isEmpty())
+                coda.add(i);
+        }
+
+        List<Contatto> risultato = new ArrayList<>(totale);
+        List<Contatto> gruppo = new ArrayList<>(); //contatti equivalenti appena estratti
+
+        while (!coda.isEmpty()) {
+
+            int i = coda.poll();
+            List<Contatto> contatti = blocchi.get(i).contatti;
+            Contatto c = contatti.get(cursori[i]++);
+            if (cursori[i] < contatti.size())
+                coda.add(i);
+
+            if (!gruppo.isEmpty() && gruppo.get(0).compareTo(c) != 0)
+                gruppo.clear();
+
+            if (gruppo.contains(c)) { //nominativo già letto in un blocco precedente
+                duplicati++;
+                continue;
+            }
+
+            gruppo.add(c);
+            risultato.add(c);
+        }
+
+        return risultato;
+    }
+
+    /**
+     * @brief Restituisce il numero di righe di contatti lette durante l'ultima importazione.
+     *
+     * @return Il numero di righe lette
+     */
+    public long getRigheLette() {
+        return righeLette;
+    }
+
+    /**
+     * @brief Restituisce il numero di righe scartate perché duplicate durante l'ultima importazione.
+     *
+     * @return Il numero di duplicati scartati
+     */
+    public long getDuplicati() {
+        return duplicati;
+    }
+
+    /**
+     * @brief Restituisce il numero di righe scartate perché non valide durante l'ultima importazione.
+     *
+     * @return Il numero di contatti non validi scartati, sempre 0 se la validazione non è attiva
+     */
+    public long getNonValidi() {
+        return nonValidi;
+    }
+
+    /**
+     * @brief Indica se il file dell'ultima importazione era già ordinato.
+     *
+     * @return {@code true} se non è stato necessario ordinare i contatti, {@code false} altrimenti
+     */
+    public boolean isOrdinato() {
+        return ordinato;
+    }
+
+    /**
+     * @brief Restituisce la memoria risparmiata condividendo cognomi e nomi ripetuti durante l'ultima importazione.
+     *
+     * I valori ripetuti vengono condivisi tramite un insieme di stringhe canoniche di capacità limitata,
+     * creato per ogni porzione del file letta ed eliminato al termine della lettura.
+     *
+     * @return La stima dei byte di heap che le stringhe condivise avrebbero occupato
+     */
+    public long getByteRisparmiati() {
+        return byteRisparmiati.get();
+    }
+}
@@ -0,0 +1,335 @@
+/**
+ * @file IndicePrefissi.java
+ *
+ * @brief Indice ordinato dei nominativi normalizzati per la ricerca per prefisso.
+ *
+ * Questa classe mantiene, per ogni contatto della rubrica, due chiavi normalizzate (nome e cognome)
+ * in un array ordinato. La ricerca dei contatti il cui nome o cognome inizia con un prefisso
+ * avviene tramite ricerca binaria del primo elemento utile, seguita dalla scansione dei soli elementi corrispondenti:
+ * il costo è O(log n + k), dove k è il numero di corrispondenze.
+ * L'indice viene letto dal primo livello della ricerca durante la digitazione (vedi {@link RicercaIncrementale})
+ * e da {@code Rubrica.ricercaContatti}.
+ *
+ * @see gestioneRubrica.Rubrica
+ */
+
+package gestioneRubrica;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+
+class IndicePrefissi {
+
+    /**
+     * @brief Coppia chiave-contatto, usata solo per l'ordinamento durante l'inserimento multiplo.
+     */
+    private static final class Voce {
+
+        private final String chiave;
+
+        private final Contatto contatto;
+
+        private Voce(String chiave, Contatto contatto){
+            this.chiave = chiave;
+            this.contatto = contatto;
+        }
+    }
+
+    /**
+     * Chiavi normalizzate, mantenute in ordine crescente.
+     */
+    private String[] chiavi;
+
+    /**
+     * Contatti associati alle chiavi, nella stessa posizione della chiave corrispondente.
+     */
+    private Contatto[] contatti;
+
+    /**
+     * Numero di voci presenti nell'indice.
+     */
+    private int dimensione;
+
+    /**
+     * @brief Costruttore dell'indice, inizialmente vuoto.
+     */
+    IndicePrefissi(){
+        this.chiavi = new String[16];
+        this.contatti = new Contatto[16];
+        this.dimensione = 0;
+    }
+
+    /**
+     * @brief Normalizza una stringa per la ricerca per prefisso.
+     *
+     * Gli accenti vengono rimossi tramite la decomposizione canonica (NFD), così "Nicolò" corrisponde a "nicolo";
+     * la conversione in minuscolo non dipende dalla lingua del sistema. Le stringhe ASCII,
+     * che non possono contenere accenti, non vengono decomposte.
+     *
+     * @param s La stringa da normalizzare
+     *
+     * @return La stringa convertita in minuscolo e senza accenti
+     */
+    static String normalizza(String s){
+
+        boolean ascii = true;
+        for(int i = 0; i < s.length() && ascii; i++)
+            ascii = s.charAt(i) < 0x80;
+
+        if(!ascii){ //rimozione dei segni diacritici separati dalla decomposizione
+            String scomposta = Normalizer.normalize(s, Normalizer.Form.NFD);
+            StringBuilder sb = new StringBuilder(scomposta.length());
+            for(int i = 0; i < scomposta.length(); i++){
+                char ch = scomposta.charAt(i);
+                if(Character.getType(ch) != Character.NON_SPACING_MARK)
+                    sb.append(ch);
+            }
+            s = sb.toString();
+        }
+
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @brief Inserisce nell'indice le chiavi di un contatto.
+     *
+     * @param c Il contatto da indicizzare
+     *
+     * @pre c non deve essere già presente nell'indice
+     */
+    void aggiungi(Contatto c){
+        inserisci(c.getChiaveNome(), c);
+        inserisci(c.getChiaveCognome(), c);
+    }
+
+    /**
+     * @brief Aggiorna le chiavi di un contatto rinominato.
+     *
+     * Ogni voce viene spostata dalla vecchia alla nuova posizione traslando le sole voci comprese tra le due,
+     * invece di eliminarla e reinserirla spostando ogni volta la coda degli array.
+     *
+     * @param c Il contatto, con il nuovo nominativo
+     * @param vecchiaChiaveNome La chiave del nome precedente
+     * @param vecchiaChiaveCognome La chiave del cognome precedente
+     *
+     * @pre c deve essere presente nell'indice con le chiavi precedenti
+     */
+    void rinomina(Contatto c, String vecchiaChiaveNome, String vecchiaChiaveCognome){
+        sposta(vecchiaChiaveNome, c.getChiaveNome(), c);
+        sposta(vecchiaChiaveCognome, c.getChiaveCognome(), c);
+    }
+
+    /**
+     * @brief Inserisce nell'indice le chiavi di un insieme di contatti.
+     *
+     * Le nuove voci vengono ordinate tra loro e fuse con quelle esistenti in un'unica passata,
+     * evitando uno spostamento degli array per ogni singola voce.
+     *
+     * @param nuovi I contatti da indicizzare
+     *
+     * @pre I contatti non devono essere già presenti nell'indice
+     */
+    void aggiungiTutti(Collection<Contatto> nuovi){
+
+        //creazione e ordinamento delle sole nuove voci: prima tutti i cognomi, poi tutti i nomi,
+        //così per contatti già ordinati i cognomi formano una sequenza quasi ordinata che l'ordinamento sfrutta
+        int n = nuovi.size();
+        Voce[] voci = new Voce[n * 2];
+        int m = 0;
+        for(Contatto c : nuovi){
+            voci[m] = new Voce(c.getChiaveCognome(), c);
+            voci[n + m++] = new Voce(c.getChiaveNome(), c);
+        }
+        m = n * 2;
+        //le chiavi ripetute sono spesso la stessa stringa condivisa, il cui confronto è immediato
+        Arrays.sort(voci, (v1, v2) -> v1.chiave == v2.chiave ? 0 : v1.chiave.compareTo(v2.chiave));
+
+        //fusione delle voci esistenti con le nuove
+        String[] nuoveChiavi = new String[Math.max(16, dimensione + m)];
+        Contatto[] nuoviContatti = new Contatto[nuoveChiavi.length];
+        int a = 0, b = 0, k = 0;
+        while(a < dimensione || b < m){
+            if(b == m || (a < dimensione && chiavi[a].compareTo(voci[b].chiave) <= 0)){
+                nuoveChiavi[k] = chiavi[a];
+                nuoviContatti[k++] = contatti[a++];
+            }
+            else{
+                nuoveChiavi[k] = voci[b].chiave;
+                nuoviContatti[k++] = voci[b++].contatto;
+            }
+        }
+
+        chiavi = nuoveChiavi;
+        contatti = nuoviContatti;
+        dimensione = k;
+    }
+
+    /**
+     * @brief Rimuove dall'indice le chiavi di un contatto.
+     *
+     * Le voci sono individuate tramite le chiavi del nominativo attuale del contatto:
+     * il metodo va quindi invocato prima di modificarne nome o cognome.
+     *
+     * @param c Il contatto da rimuovere, o un contatto con lo stesso nominativo
+     */
+    void rimuovi(Contatto c){
+        elimina(c.getChiaveNome(), c);
+        elimina(c.getChiaveCognome(), c);
+    }
+
+    /**
+     * @brief Rimuove dall'indice le voci di più contatti con un'unica passata sugli array.
+     *
+     * @param rimossi L'insieme dei contatti da rimuovere
+     */
+    void rimuoviTutti(Set<Contatto> rimossi){
+
+        //compattazione degli array conservando l'ordine delle voci rimanenti
+        int k = 0;
+        for(int i = 0; i < dimensione; i++){
+            if(!rimossi.contains(contatti[i])){
+                chiavi[k] = chiavi[i];
+                contatti[k++] = contatti[i];
+            }
+        }
+        Arrays.fill(chiavi, k, dimensione, null);
+        Arrays.fill(contatti, k, dimensione, null);
+        dimensione = k;
+    }
+
+    /**
+     * @brief Raccoglie i contatti il cui nome o cognome inizia con il prefisso indicato.
+     *
+     * @param prefisso Il prefisso già normalizzato
+     * @param risultato La collezione in cui inserire i contatti trovati; un contatto il cui nome e cognome
+     *                  corrispondono entrambi viene proposto due volte, la collezione deve quindi scartare i doppioni
+     */
+    void cerca(String prefisso, Collection<Contatto> risultato){
+
+        //scansione delle sole voci che iniziano con il prefisso, a partire dalla prima individuata per ricerca binaria
+        for(int i = primaNonMinore(prefisso); i < dimensione && chiavi[i].startsWith(prefisso); i++)
+            risultato.add(contatti[i]);
+    }
+
+    /**
+     * @brief Conta le voci il cui nome o cognome inizia con il prefisso indicato, senza scorrerle.
+     *
+     * Le voci corrispondenti sono contigue: il loro numero si ricava con due ricerche binarie, in tempo O(log n).
+     *
+     * @param prefisso Il prefisso già normalizzato
+     *
+     * @return Il numero di voci corrispondenti; un contatto il cui nome e cognome corrispondono entrambi viene contato due volte
+     */
+    int conta(String prefisso){
+        //le chiavi che iniziano con il prefisso precedono il prefisso seguito dal carattere massimo
+        return primaNonMinore(prefisso + Character.MAX_VALUE) - primaNonMinore(prefisso);
+    }
+
+    /**
+     * @brief Svuota l'indice.
+     */
+    void svuota(){
+        Arrays.fill(chiavi, 0, dimensione, null);
+        Arrays.fill(contatti, 0, dimensione, null);
+        dimensione = 0;
+    }
+
+    /**
+     * @brief Inserisce una voce nella posizione ordinata.
+     *
+     * @param chiave La chiave normalizzata
+     * @param c Il contatto associato
+     */
+    private void inserisci(String chiave, Contatto c){
+
+        if(dimensione == chiavi.length){ //ampliamento degli array
+            chiavi = Arrays.copyOf(chiavi, dimensione * 2);
+            contatti = Arrays.copyOf(contatti, dimensione * 2);
+        }
+
+        int pos = primaNonMinore(chiave);
+        System.arraycopy(chiavi, pos, chiavi, pos + 1, dimensione - pos);
+        System.arraycopy(contatti, pos, contatti, pos + 1, dimensione - pos);
+        chiavi[pos] = chiave;
+        contatti[pos] = c;
+        dimensione++;
+    }
+
+    /**
+     * @brief Elimina la voce con la chiave indicata associata ad un contatto uguale a {@code c}.
+     *
+     * @param chiave La chiave normalizzata
+     * @param c Il contatto da eliminare
+     */
+    private void elimina(String chiave, Contatto c){
+
+        for(int i = primaNonMinore(chiave); i < dimensione && chiavi[i].equals(chiave); i++){
+            if(contatti[i].equals(c)){
+                System.arraycopy(chiavi, i + 1, chiavi, i, dimensione - i - 1);
+                System.arraycopy(contatti, i + 1, contatti, i, dimensione - i - 1);
+                dimensione--;
+                chiavi[dimensione] = null;
+                contatti[dimensione] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @brief Sposta la voce di un contatto dalla vecchia chiave alla nuova posizione ordinata.
+     *
+     * @param vecchia La chiave attuale della voce
+     * @param nuova La nuova chiave
+     * @param c Il contatto associato alla voce
+     */
+    private void sposta(String vecchia, String nuova, Contatto c){
+
+        //la voce è individuata per identità: il nominativo del contatto è già cambiato
+        int da = primaNonMinore(vecchia);
+        while(da < dimensione && chiavi[da].equals(vecchia) && contatti[da] != c)
+            da++;
+        if(da == dimensione || contatti[da] != c){ //voce non presente
+            inserisci(nuova, c);
+            return;
+        }
+
+        int a = primaNonMinore(nuova);
+        if(a > da){ //traslazione verso sinistra delle voci comprese tra le due posizioni
+            a--;
+            System.arraycopy(chiavi, da + 1, chiavi, da, a - da);
+            System.arraycopy(contatti, da + 1, contatti, da, a - da);
+        }
+        else{ //traslazione verso destra
+            System.arraycopy(chiavi, a, chiavi, a + 1, da - a);
+            System.arraycopy(contatti, a, contatti, a + 1, da - a);
+        }
+        chiavi[a] = nuova;
+        contatti[a] = c;
+    }
+
+    /**
+     * @brief Ricerca binaria della prima voce con chiave non minore di quella indicata.
+     *
+     * @param chiave La chiave da cercare
+     *
+     * @return La posizione della prima voce non minore di {@code chiave}
+     */
+    private int primaNonMinore(String chiave){
+
+        int low = 0;
+        int high = dimensione;
+
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(chiavi[mid].compareTo(chiave) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return low;
+    }
+}
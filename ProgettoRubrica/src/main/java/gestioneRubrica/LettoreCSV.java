@@ -0,0 +1,402 @@
+/**
+ * @file LettoreCSV.java
+ *
+ * @brief Lettore di file CSV della rubrica basato su letture posizionate del file.
+ *
+ * Questa classe legge il file tramite {@code FileChannel}, una finestra alla volta, in un array di byte
+ * riutilizzato per l'intera lettura. Il file non viene mappato in memoria: una mappatura resta attiva finché
+ * il buffer non viene raccolto dal garbage collector, anche dopo la chiusura del canale, e su Windows impedirebbe
+ * di sovrascrivere il file appena letto (ad esempio esportando la rubrica sullo stesso file).
+ * Le righe e i campi vengono individuati cercando
+ * direttamente i byte ';' e '\n' (che in UTF-8 non compaiono mai all'interno di caratteri multi-byte),
+ * senza espressioni regolari e senza creare stringhe intermedie per l'intera riga.
+ * I soli campi non vuoti vengono decodificati da UTF-8; i campi vuoti condividono la costante "".
+ * Se è impostato un {@code PoolStringhe}, cognomi e nomi ripetuti condividono un'unica stringa.
+ *
+ * @see gestioneRubrica.ImportatoreRubrica
+ */
+
+package gestioneRubrica;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class LettoreCSV implements Closeable {
+
+    /**
+     * Dimensione predefinita della finestra di file letta alla volta (1 MB).
+     */
+    static final int DIMENSIONE_FINESTRA = 1024 * 1024;
+
+    /**
+     * Numero di campi di una riga della rubrica: cognome, nome, tre numeri e tre indirizzi email.
+     */
+    static final int NUMERO_CAMPI = 8;
+
+    /**
+     * Canale di lettura del file.
+     */
+    private final FileChannel canale;
+
+    /**
+     * Dimensione del file in byte.
+     */
+    private final long dimensione;
+
+    /**
+     * Posizione nel file oltre la quale non iniziano righe da leggere.
+     */
+    private final long fine;
+
+    /**
+     * Dimensione della finestra da leggere.
+     */
+    private int dimensioneFinestra;
+
+    /**
+     * Finestra del file attualmente letta, riutilizzata ad ogni lettura; null prima della prima lettura.
+     */
+    private byte[] finestra;
+
+    /**
+     * Numero di byte validi nella finestra.
+     */
+    private int limite;
+
+    /**
+     * Posizione nel file del primo byte della finestra.
+     */
+    private long inizioFinestra;
+
+    /**
+     * Posizione nel file del prossimo byte da leggere.
+     */
+    private long posizione;
+
+    /**
+     * Inizio (incluso) dell'ultima riga letta, relativo alla finestra.
+     */
+    private int inizioRiga;
+
+    /**
+     * Fine (esclusa, senza terminatore di riga) dell'ultima riga letta, relativa alla finestra.
+     */
+    private int fineRiga;
+
+    /**
+     * Campi dell'ultima riga interpretata, riutilizzati ad ogni riga.
+     */
+    private final String[] campi;
+
+    /**
+     * Insieme delle stringhe canoniche per cognomi e nomi, o null se non usato.
+     */
+    private PoolStringhe pool;
+
+    /**
+     * @brief Apre il file indicato per la lettura.
+     *
+     * @param nomefile Il nome del file da leggere
+     *
+     * @throws IOException Eccezione per la gestione di errori durante l'apertura del file
+     */
+    public LettoreCSV(String nomefile) throws IOException {
+        this(nomefile, DIMENSIONE_FINESTRA);
+    }
+
+    /**
+     * @brief Apre il file indicato per la lettura, con una dimensione di finestra specifica.
+     *
+     * @param nomefile Il nome del file da leggere
+     * @param dimensioneFinestra La dimensione della finestra da leggere alla volta
+     *
+     * @throws IOException Eccezione per la gestione di errori durante l'apertura del file
+     */
+    public LettoreCSV(String nomefile, int dimensioneFinestra) throws IOException {
+
+        this(nomefile, 0, Long.MAX_VALUE, dimensioneFinestra);
+
+        //salto dell'eventuale BOM UTF-8 iniziale
+        if (dimensione >= 3) {
+            leggi(0);
+            if (finestra[0] == (byte) 0xEF && finestra[1] == (byte) 0xBB && finestra[2] == (byte) 0xBF)
+                posizione = 3;
+        }
+    }
+
+    /**
+     * @brief Apre il file indicato per la lettura delle sole righe che iniziano in un intervallo di byte.
+     *
+     * Questo costruttore permette di leggere in parallelo porzioni diverse dello stesso file.
+     *
+     * @param nomefile Il nome del file da leggere
+     * @param inizio La posizione da cui iniziare la lettura
+     * @param fine La posizione oltre la quale non iniziano righe da leggere
+     * @param dimensioneFinestra La dimensione della finestra da leggere alla volta
+     *
+     * @pre inizio deve coincidere con l'inizio di una riga (vedi {@code allineaARiga})
+     *
+     * @throws IOException Eccezione per la gestione di errori durante l'apertura del file
+     */
+    public LettoreCSV(String nomefile, long inizio, long fine, int dimensioneFinestra) throws IOException {
+
+        this.canale = FileChannel.open(Paths.get(nomefile), StandardOpenOption.READ);
+        this.dimensione = canale.size();
+        this.fine = Math.min(fine, dimensione);
+        this.dimensioneFinestra = dimensioneFinestra;
+        this.campi = new String[NUMERO_CAMPI];
+        this.posizione = inizio;
+    }
+
+    /**
+     * @brief Calcola l'inizio della prima riga che comincia in una posizione non minore di quella indicata.
+     *
+     * @param da La posizione da allineare
+     *
+     * @return La posizione allineata all'inizio di una riga, oppure la dimensione del file se non ci sono altre righe
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    public long allineaARiga(long da) throws IOException {
+
+        if (da <= 0)
+            return 0;
+
+        //ricerca del primo terminatore di riga a partire dal byte precedente la posizione
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long pos = da - 1;
+        while (pos < dimensione) {
+            buffer.clear();
+            int letti = canale.read(buffer, pos);
+            if (letti <= 0)
+                break;
+            for (int i = 0; i < letti; i++) {
+                if (buffer.get(i) == '\n')
+                    return pos + i + 1;
+            }
+            pos += letti;
+        }
+
+        return dimensione;
+    }
+
+    /**
+     * @brief Legge la prossima riga del file come testo.
+     *
+     * Questo metodo è pensato per le righe di intestazione del file.
+     *
+     * @return La riga letta, senza terminatore, oppure {@code null} se il file è terminato
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    public String leggiRiga() throws IOException {
+
+        if (!prossimaRiga())
+            return null;
+
+        return decodifica(inizioRiga, fineRiga);
+    }
+
+    /**
+     * @brief Legge il prossimo contatto del file.
+     *
+     * Le righe vuote vengono ignorate; i campi mancanti in fondo alla riga sono considerati vuoti
+     * e gli eventuali campi in eccesso vengono ignorati.
+     *
+     * @return Il contatto letto, oppure {@code null} se il file è terminato
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    public Contatto leggiContatto() throws IOException {
+
+        do {
+            if (!prossimaRiga())
+                return null;
+        } while (inizioRiga == fineRiga); //righe vuote
+
+        //individuazione dei campi tramite ricerca diretta del separatore
+        Contatto c = new Contatto();
+        int campo = 0;
+        int inizioCampo = inizioRiga;
+        for (int i = inizioRiga; i <= fineRiga && campo < NUMERO_CAMPI; i++) {
+            if (i == fineRiga || finestra[i] == ';') {
+                if (campo < 2 && pool != null && i > inizioCampo)
+                    condividi(c, campo, inizioCampo, i); //cognome e nome tramite le stringhe canoniche
+                else
+                    campi[campo] = decodifica(inizioCampo, i);
+                campo++;
+                inizioCampo = i + 1;
+            }
+        }
+        while (campo < NUMERO_CAMPI)
+            campi[campo++] = "";
+
+        if (campi[0] != null)
+            c.setCognome(campi[0]);
+        if (campi[1] != null)
+            c.setNome(campi[1]);
+        c.setNumero1(campi[2]);
+        c.setNumero2(campi[3]);
+        c.setNumero3(campi[4]);
+        c.setEmail1(campi[5]);
+        c.setEmail2(campi[6]);
+        c.setEmail3(campi[7]);
+        campi[0] = null;
+        campi[1] = null;
+        return c;
+    }
+
+    /**
+     * @brief Imposta l'insieme di stringhe canoniche da usare per cognomi e nomi.
+     *
+     * @param pool L'insieme da usare, o null per creare una nuova stringa per ogni campo
+     */
+    void setPool(PoolStringhe pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @brief Restituisce la posizione di lettura nel file.
+     *
+     * @return Il numero di byte del file già letti
+     */
+    public long getPosizione() {
+        return posizione;
+    }
+
+    /**
+     * @brief Restituisce la dimensione del file.
+     *
+     * @return La dimensione del file in byte
+     */
+    public long getDimensione() {
+        return dimensione;
+    }
+
+    /**
+     * @brief Chiude il file.
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la chiusura del file
+     */
+    @Override
+    public void close() throws IOException {
+        canale.close();
+    }
+
+    /**
+     * @brief Individua la prossima riga del file all'interno della finestra letta.
+     *
+     * Se la riga attraversa il confine della finestra, la finestra viene riletta a partire dall'inizio della riga,
+     * raddoppiandone la dimensione nel caso in cui la riga non vi sia contenuta per intero.
+     *
+     * @post inizioRiga e fineRiga delimitano la riga letta, senza terminatore "\n" o "\r\n"
+     *
+     * @return {@code true} se è stata letta una riga, {@code false} se il file è terminato
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    private boolean prossimaRiga() throws IOException {
+
+        if (posizione >= fine)
+            return false;
+
+        if (finestra == null || posizione >= inizioFinestra + limite)
+            leggi(posizione);
+
+        int inizio = (int) (posizione - inizioFinestra);
+
+        while (true) {
+
+            int i = inizio;
+            while (i < limite && finestra[i] != '\n') //ricerca del terminatore di riga
+                i++;
+
+            if (i < limite || inizioFinestra + limite == dimensione) { //riga completa o ultima riga del file
+
+                inizioRiga = inizio;
+                fineRiga = i;
+                posizione = inizioFinestra + i + (i < limite ? 1 : 0);
+
+                if (fineRiga > inizioRiga && finestra[fineRiga - 1] == '\r')
+                    fineRiga--;
+
+                return true;
+            }
+
+            //la riga prosegue oltre la finestra: nuova lettura a partire dall'inizio della riga
+            if (inizio == 0) {
+                if (dimensioneFinestra > Integer.MAX_VALUE / 2)
+                    throw new IOException("Riga troppo lunga nel file");
+                dimensioneFinestra *= 2;
+            }
+            leggi(inizioFinestra + inizio);
+            inizio = 0;
+        }
+    }
+
+    /**
+     * @brief Legge una finestra del file, riutilizzando l'array della finestra precedente se è abbastanza grande.
+     *
+     * @param da La posizione nel file da cui inizia la finestra
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura, anche se il file si accorcia
+     */
+    private void leggi(long da) throws IOException {
+
+        int lunghezza = (int) Math.min(dimensioneFinestra, dimensione - da);
+        if (finestra == null || finestra.length < lunghezza)
+            finestra = new byte[Math.min(dimensioneFinestra, (int) Math.min(Integer.MAX_VALUE, dimensione))];
+
+        //lettura posizionata, ripetuta finché la finestra non è completa
+        ByteBuffer buffer = ByteBuffer.wrap(finestra, 0, lunghezza);
+        while (buffer.hasRemaining()) {
+            if (canale.read(buffer, da + buffer.position()) < 0)
+                throw new IOException("File modificato durante la lettura");
+        }
+
+        inizioFinestra = da;
+        limite = lunghezza;
+    }
+
+    /**
+     * @brief Imposta il cognome o il nome di un contatto tramite l'insieme delle stringhe canoniche.
+     *
+     * @param c Il contatto in lettura
+     * @param campo Il campo da impostare: 0 per il cognome, 1 per il nome
+     * @param da Inizio (incluso) del campo, relativo alla finestra
+     * @param a Fine (esclusa) del campo, relativa alla finestra
+     */
+    private void condividi(Contatto c, int campo, int da, int a) {
+
+        int posizione = pool.cerca(finestra, da, a - da);
+
+        if (posizione < 0) { //insieme pieno: nuova stringa
+            campi[campo] = new String(finestra, da, a - da, StandardCharsets.UTF_8);
+        } else if (campo == 0) {
+            c.impostaCognome(pool.getValore(posizione), pool.getNormalizzata(posizione));
+        } else {
+            c.impostaNome(pool.getValore(posizione), pool.getNormalizzata(posizione));
+        }
+    }
+
+    /**
+     * @brief Decodifica da UTF-8 una porzione della finestra.
+     *
+     * @param da Inizio (incluso) della porzione, relativo alla finestra
+     * @param a Fine (esclusa) della porzione, relativa alla finestra
+     *
+     * @return La stringa decodificata, oppure la costante "" se la porzione è vuota
+     */
+    private String decodifica(int da, int a) {
+
+        if (a == da)
+            return "";
+
+        return new String(finestra, da, a - da, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * @file MonitorAvanzamento.java
+ *
+ * @brief Interfaccia per il monitoraggio e l'annullamento delle operazioni lunghe sulla rubrica.
+ *
+ * Importazione ed esportazione segnalano periodicamente il proprio avanzamento tramite questa interfaccia
+ * e controllano se l'operazione è stata annullata. I metodi possono essere invocati da thread diversi
+ * da quello dell'interfaccia grafica, anche contemporaneamente durante l'importazione parallela.
+ *
+ * @see gestioneRubrica.ImportatoreRubrica
+ * @see gestioneRubrica.EsportatoreRubrica
+ */
+
+package gestioneRubrica;
+
+public interface MonitorAvanzamento {
+
+    /**
+     * @brief Segnala l'avanzamento dell'operazione.
+     *
+     * @param righe Il numero di contatti elaborati finora
+     * @param lavoroSvolto La quantità di lavoro svolto (ad esempio i byte letti)
+     * @param lavoroTotale La quantità di lavoro totale, nella stessa unità di {@code lavoroSvolto}
+     */
+    void avanzamento(long righe, long lavoroSvolto, long lavoroTotale);
+
+    /**
+     * @brief Indica se l'operazione è stata annullata.
+     *
+     * Quando il metodo restituisce {@code true}, l'operazione si interrompe lanciando
+     * {@code java.util.concurrent.CancellationException}.
+     *
+     * @return {@code true} se l'operazione deve essere interrotta, {@code false} altrimenti
+     */
+    boolean isAnnullato();
+}
@@ -0,0 +1,43 @@
+/**
+ * @file OsservatoreRubrica.java
+ *
+ * @brief Interfaccia per ricevere le modifiche apportate ai contatti di una rubrica.
+ *
+ * La rubrica notifica ogni aggiunta, rimozione e modifica effettuata tramite i propri metodi,
+ * dopo averla applicata. Ogni operazione della rubrica produce una sola notifica, anche quando
+ * coinvolge più contatti: chi registra le modifiche su file può quindi scriverle con un'unica scrittura.
+ * I metodi vengono invocati sul thread che modifica la rubrica.
+ *
+ * @see gestioneRubrica.Rubrica
+ * @see gestioneRubrica.PersistenzaRubrica
+ */
+
+package gestioneRubrica;
+
+import java.util.Collection;
+
+public interface OsservatoreRubrica {
+
+    /**
+     * @brief Notifica l'aggiunta di uno o più contatti.
+     *
+     * @param aggiunti I contatti aggiunti alla rubrica
+     */
+    void contattiAggiunti(Collection<Contatto> aggiunti);
+
+    /**
+     * @brief Notifica la rimozione di uno o più contatti.
+     *
+     * @param rimossi I contatti rimossi dalla rubrica
+     */
+    void contattiRimossi(Collection<Contatto> rimossi);
+
+    /**
+     * @brief Notifica la modifica di un contatto.
+     *
+     * @param vecchioCognome Il cognome del contatto prima della modifica
+     * @param vecchioNome Il nome del contatto prima della modifica
+     * @param c Il contatto modificato, con nominativo e recapiti aggiornati
+     */
+    void contattoModificato(String vecchioCognome, String vecchioNome, Contatto c);
+}
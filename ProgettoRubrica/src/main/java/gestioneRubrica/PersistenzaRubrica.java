@@ -0,0 +1,401 @@
+/**
+ * @file PersistenzaRubrica.java
+ *
+ * @brief Salvataggio incrementale della rubrica tramite uno snapshot e un giornale delle modifiche.
+ *
+ * La rubrica viene salvata per intero in uno snapshot binario (vedi {@link SnapshotRubrica}); ogni modifica
+ * successiva viene accodata al giornale (vedi {@link GiornaleModifiche}), con una scrittura di poche centinaia
+ * di byte. Alla riapertura il giornale viene riapplicato allo snapshot. Quando il giornale supera
+ * una soglia proporzionale alla dimensione dello snapshot, i due vengono compattati: la rubrica viene salvata
+ * in un nuovo snapshot e il giornale riparte vuoto.
+ *
+ * Il giornale ha lo stesso nome dello snapshot con l'estensione ".giornale".
+ *
+ * La compattazione avviene in due fasi: la copia dei campi dei contatti, sul thread che modifica la rubrica,
+ * e la scrittura dello snapshot, che può avvenire in background (vedi {@link SalvataggioAutomatico}).
+ * Le modifiche registrate nel giornale durante la scrittura vengono copiate nel nuovo giornale.
+ *
+ * @see gestioneRubrica.Rubrica
+ */
+
+package gestioneRubrica;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+
+public class PersistenzaRubrica implements OsservatoreRubrica, Closeable {
+
+    /**
+     * @brief Stato della rubrica catturato all'inizio di una compattazione.
+     */
+    static final class Compattazione {
+
+        private final String[] campi;
+
+        private final GiornaleModifiche giornale;
+
+        private final long inizioGiornale;
+
+        private final int recordGiornale;
+
+        private final int erroriGiornale;
+
+        private final int sostituzioni;
+
+        private Compattazione(String[] campi, GiornaleModifiche giornale, int erroriGiornale, int sostituzioni){
+            this.campi = campi;
+            this.giornale = giornale;
+            this.inizioGiornale = giornale.getDimensione();
+            this.recordGiornale = giornale.getNumeroRecord();
+            this.erroriGiornale = erroriGiornale;
+            this.sostituzioni = sostituzioni;
+        }
+    }
+
+    /**
+     * Dimensione minima del giornale (1 MB) oltre la quale la rubrica viene compattata.
+     */
+    private static final long SOGLIA_MINIMA_COMPATTAZIONE = 1024 * 1024;
+
+    /**
+     * Il nome del file dello snapshot.
+     */
+    private final String nomeSnapshot;
+
+    /**
+     * Il nome del file del giornale.
+     */
+    private final String nomeGiornale;
+
+    /**
+     * La rubrica salvata, o null se non è ancora stata aperta.
+     */
+    private Rubrica rubrica;
+
+    /**
+     * Il giornale delle modifiche successive all'ultimo snapshot.
+     */
+    private GiornaleModifiche giornale;
+
+    /**
+     * Dimensione del giornale oltre la quale la rubrica viene compattata.
+     */
+    private long sogliaCompattazione;
+
+    /**
+     * Indica che una scrittura del giornale non è riuscita: la rubrica deve essere salvata per intero.
+     */
+    private boolean daCompattare;
+
+    /**
+     * Numero di scritture del giornale non riuscite.
+     */
+    private int erroriGiornale;
+
+    /**
+     * Numero di sostituzioni della rubrica: le compattazioni preparate prima di una sostituzione riguardano la rubrica precedente.
+     */
+    private int sostituzioni;
+
+    /**
+     * Indica se la rubrica viene compattata, durante la modifica, quando il giornale supera la soglia.
+     */
+    private boolean compattazioneAutomatica;
+
+    /**
+     * Oggetto su cui si sincronizzano le scritture degli snapshot, che avvengono una alla volta.
+     */
+    private final Object scrittura;
+
+    /**
+     * @brief Costruttore del salvataggio di una rubrica.
+     *
+     * @param nomeSnapshot Il nome del file dello snapshot; il giornale viene salvato accanto ad esso
+     */
+    public PersistenzaRubrica(String nomeSnapshot) {
+        this.nomeSnapshot = nomeSnapshot;
+        this.nomeGiornale = nomeSnapshot + ".giornale";
+        this.sogliaCompattazione = SOGLIA_MINIMA_COMPATTAZIONE;
+        this.compattazioneAutomatica = true;
+        this.scrittura = new Object();
+    }
+
+    /**
+     * @brief Carica la rubrica salvata e ne registra le modifiche successive.
+     *
+     * Se lo snapshot non esiste viene creata una rubrica vuota.
+     *
+     * @return La rubrica, con lo snapshot e le modifiche del giornale già applicate
+     *
+     * @post Le modifiche della rubrica vengono registrate nel giornale
+     *
+     * @throws IOException Eccezione lanciata se lo snapshot o il giornale non possono essere letti o sono danneggiati
+     */
+    public Rubrica apri() throws IOException {
+
+        Rubrica caricata;
+        long base = 0;
+        if (Files.exists(Paths.get(nomeSnapshot))) {
+            caricata = Rubrica.caricaSnapshot(nomeSnapshot);
+            base = SnapshotRubrica.leggiChecksum(nomeSnapshot);
+        } else
+            caricata = new Rubrica();
+
+        //riapplicazione del giornale prima di collegarlo, così le modifiche non vengono registrate una seconda volta
+        synchronized (this) {
+            giornale = GiornaleModifiche.apri(nomeGiornale, base, caricata);
+            rubrica = caricata;
+            aggiornaSoglia();
+            rubrica.aggiungiOsservatore(this);
+        }
+
+        if (getDimensioneGiornale() > sogliaCompattazione)
+            compatta();
+
+        return caricata;
+    }
+
+    /**
+     * @brief Sostituisce la rubrica salvata con un'altra (ad esempio una rubrica importata).
+     *
+     * @param nuova La nuova rubrica da salvare
+     *
+     * @pre La rubrica deve essere stata aperta con {@code apri}
+     *
+     * @post La nuova rubrica è salvata per intero e le sue modifiche vengono registrate nel giornale;
+     *       le modifiche della rubrica precedente non vengono più registrate
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura dello snapshot
+     */
+    public void sostituisci(Rubrica nuova) throws IOException {
+        completaCompattazione(preparaSostituzione(nuova));
+    }
+
+    /**
+     * @brief Prima fase della sostituzione: collega la nuova rubrica e ne copia i contatti.
+     *
+     * Da questo momento le modifiche della nuova rubrica vengono registrate nel giornale e quelle della precedente
+     * no; le compattazioni preparate in precedenza non vengono più completate. Lo snapshot della nuova rubrica
+     * viene scritto da {@code completaCompattazione}, che può essere invocato in background.
+     *
+     * @param nuova La nuova rubrica da salvare
+     *
+     * @pre La rubrica deve essere stata aperta con {@code apri}
+     * @pre Il metodo deve essere invocato dal thread che modifica la nuova rubrica
+     *
+     * @return Lo stato da passare a {@code completaCompattazione}
+     */
+    synchronized Compattazione preparaSostituzione(Rubrica nuova) {
+
+        rubrica.rimuoviOsservatore(this);
+        rubrica = nuova;
+        sostituzioni++;
+        rubrica.aggiungiOsservatore(this);
+        return preparaCompattazione();
+    }
+
+    /**
+     * @brief Salva la rubrica in un nuovo snapshot e svuota il giornale.
+     *
+     * Lo snapshot viene sostituito prima di creare il nuovo giornale: un'interruzione tra le due scritture
+     * lascia un giornale riferito allo snapshot precedente, che alla riapertura viene ignorato.
+     *
+     * @pre La rubrica deve essere stata aperta con {@code apri}
+     * @pre Il metodo deve essere invocato dal thread che modifica la rubrica
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura dei file
+     */
+    public void compatta() throws IOException {
+        completaCompattazione(preparaCompattazione());
+    }
+
+    /**
+     * @brief Attiva o disattiva la compattazione durante la modifica della rubrica.
+     *
+     * Quando è disattivata, la compattazione è affidata a chi invoca {@code compatta}
+     * o le due fasi di {@code preparaCompattazione} e {@code completaCompattazione}.
+     *
+     * @param attiva {@code true} per compattare la rubrica quando il giornale supera la soglia, {@code false} altrimenti
+     */
+    public synchronized void setCompattazioneAutomatica(boolean attiva) {
+        this.compattazioneAutomatica = attiva;
+    }
+
+    /**
+     * @brief Prima fase della compattazione: copia i contatti e la posizione corrente del giornale.
+     *
+     * Vengono copiati i campi dei contatti e non i soli riferimenti: un contatto modificato prima della scrittura
+     * (ad esempio rinominato, quindi spostato nella lista) viene salvato con i valori e nella posizione della copia,
+     * e la sua modifica resta nel giornale. La copia richiede un tempo proporzionale al numero di contatti,
+     * senza alcuna operazione sui file.
+     *
+     * @pre Il metodo deve essere invocato dal thread che modifica la rubrica
+     *
+     * @return Lo stato da passare a {@code completaCompattazione}
+     */
+    synchronized Compattazione preparaCompattazione() {
+        return new Compattazione(SnapshotRubrica.copiaCampi(rubrica.getContactList()), giornale, erroriGiornale, sostituzioni);
+    }
+
+    /**
+     * @brief Seconda fase della compattazione: scrive lo snapshot e crea il nuovo giornale.
+     *
+     * Può essere invocato da qualsiasi thread. Se nel frattempo un'altra compattazione ha già sostituito
+     * il giornale, lo stato salvato è già coperto da snapshot e giornale correnti e il metodo non scrive nulla.
+     * Lo stesso avviene se nel frattempo la rubrica è stata sostituita: lo stato riguarda la rubrica precedente.
+     *
+     * @param compattazione Lo stato restituito da {@code preparaCompattazione}
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura dei file
+     */
+    void completaCompattazione(Compattazione compattazione) throws IOException {
+
+        synchronized (scrittura) {
+
+            synchronized (this) {
+                if (compattazione.giornale != giornale || compattazione.sostituzioni != sostituzioni) //compattazione già superata da un'altra
+                    return;
+            }
+
+            long base = new SnapshotRubrica().salva(compattazione.campi, nomeSnapshot);
+
+            synchronized (this) {
+                //rubrica sostituita durante la scrittura: il giornale resta quello della sostituzione, che riscrive lo snapshot
+                if (compattazione.sostituzioni != sostituzioni)
+                    return;
+                try {
+                    //copia dei record registrati durante la scrittura dello snapshot
+                    byte[] coda = giornale.leggiCoda(compattazione.inizioGiornale);
+                    GiornaleModifiche nuovo = GiornaleModifiche.crea(nomeGiornale, base, coda,
+                            giornale.getNumeroRecord() - compattazione.recordGiornale);
+                    giornale.close();
+                    giornale = nuovo;
+                    daCompattare = erroriGiornale != compattazione.erroriGiornale;
+                } catch (IOException e) {
+                    //il giornale corrente si riferisce allo snapshot precedente: la rubrica va salvata di nuovo
+                    daCompattare = true;
+                    throw e;
+                }
+                aggiornaSoglia();
+            }
+        }
+    }
+
+    /**
+     * @brief Restituisce la dimensione del giornale delle modifiche.
+     *
+     * @return Il numero di byte del giornale
+     */
+    public synchronized long getDimensioneGiornale() {
+        return giornale.getDimensione();
+    }
+
+    /**
+     * @brief Chiude il giornale; le modifiche successive della rubrica non vengono più registrate.
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la chiusura del file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+
+        if (rubrica != null)
+            rubrica.rimuoviOsservatore(this);
+        if (giornale != null)
+            giornale.close();
+    }
+
+    @Override
+    public void contattiAggiunti(Collection<Contatto> aggiunti) {
+
+        synchronized (this) {
+            try {
+                if (!daCompattare)
+                    giornale.registraAggiunte(aggiunti);
+            } catch (IOException e) {
+                erroreGiornale(e);
+            }
+        }
+        compattaSeNecessario();
+    }
+
+    @Override
+    public void contattiRimossi(Collection<Contatto> rimossi) {
+
+        synchronized (this) {
+            try {
+                if (!daCompattare)
+                    giornale.registraRimozioni(rimossi);
+            } catch (IOException e) {
+                erroreGiornale(e);
+            }
+        }
+        compattaSeNecessario();
+    }
+
+    @Override
+    public void contattoModificato(String vecchioCognome, String vecchioNome, Contatto c) {
+
+        synchronized (this) {
+            try {
+                if (!daCompattare)
+                    giornale.registraModifica(vecchioCognome, vecchioNome, c);
+            } catch (IOException e) {
+                erroreGiornale(e);
+            }
+        }
+        compattaSeNecessario();
+    }
+
+    /**
+     * @brief Compatta la rubrica se il giornale ha superato la soglia o se una sua scrittura non è riuscita.
+     *
+     * La compattazione avviene solo se è attiva quella automatica (vedi {@code setCompattazioneAutomatica}).
+     */
+    private void compattaSeNecessario() {
+
+        synchronized (this) {
+            if (!compattazioneAutomatica || (!daCompattare && giornale.getDimensione() <= sogliaCompattazione))
+                return;
+        }
+
+        try {
+            compatta();
+        } catch (IOException e) {
+            System.err.println("Errore durante il salvataggio della rubrica: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @brief Gestisce un errore di scrittura del giornale.
+     *
+     * Il giornale potrebbe non contenere la modifica: la rubrica dovrà essere salvata per intero.
+     *
+     * @param e L'eccezione lanciata durante la scrittura
+     */
+    private void erroreGiornale(IOException e) {
+
+        System.err.println("Errore durante la scrittura del giornale delle modifiche: " + e.getMessage());
+        daCompattare = true;
+        erroriGiornale++;
+    }
+
+    /**
+     * @brief Aggiorna la soglia di compattazione in base alla dimensione dello snapshot.
+     *
+     * Il giornale può crescere fino a metà dello snapshot, così il tempo di riapplicazione all'apertura resta limitato.
+     */
+    private void aggiornaSoglia() {
+
+        long dimensioneSnapshot = 0;
+        try {
+            if (Files.exists(Paths.get(nomeSnapshot)))
+                dimensioneSnapshot = Files.size(Paths.get(nomeSnapshot));
+        } catch (IOException e) {
+            dimensioneSnapshot = 0;
+        }
+        sogliaCompattazione = Math.max(SOGLIA_MINIMA_COMPATTAZIONE, dimensioneSnapshot / 2);
+    }
+}
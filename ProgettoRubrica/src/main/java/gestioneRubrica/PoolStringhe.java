@@ -0,0 +1,199 @@
+/**
+ * @file PoolStringhe.java
+ *
+ * @brief Insieme limitato di stringhe canoniche, usato durante l'importazione per condividere i valori ripetuti.
+ *
+ * I cognomi e i nomi di una rubrica si ripetono molte volte: invece di creare una nuova stringa per ogni occorrenza,
+ * il lettore cerca i byte UTF-8 del campo in una tabella hash ad indirizzamento aperto e, se li trova,
+ * restituisce la stringa già creata, senza decodificare di nuovo il campo. Per ogni valore viene conservata
+ * anche la chiave normalizzata usata dalla ricerca, così anche le chiavi sono condivise.
+ * La tabella ha una capacità massima: quando è piena le nuove stringhe non vengono più memorizzate.
+ * L'insieme vive solo per la durata di un'importazione.
+ *
+ * @see gestioneRubrica.LettoreCSV
+ * @see gestioneRubrica.ImportatoreRubrica
+ */
+
+package gestioneRubrica;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+class PoolStringhe {
+
+    /**
+     * Numero massimo predefinito di stringhe memorizzate.
+     */
+    static final int CAPACITA_PREDEFINITA = 1 << 16;
+
+    /**
+     * Byte UTF-8 delle stringhe memorizzate, indicizzati per codice hash.
+     */
+    private final byte[][] chiavi;
+
+    /**
+     * Stringhe canoniche, nella stessa posizione dei byte corrispondenti.
+     */
+    private final String[] valori;
+
+    /**
+     * Chiavi normalizzate delle stringhe canoniche, calcolate al primo utilizzo.
+     */
+    private final String[] normalizzate;
+
+    /**
+     * Stima dei byte occupati dalla stringa canonica e dalla sua chiave normalizzata.
+     */
+    private final int[] stime;
+
+    /**
+     * Numero massimo di stringhe memorizzate.
+     */
+    private final int capacita;
+
+    /**
+     * Numero di stringhe memorizzate.
+     */
+    private int voci;
+
+    /**
+     * Stima dei byte di heap non allocati grazie alle stringhe riutilizzate.
+     */
+    private long byteRisparmiati;
+
+    /**
+     * @brief Costruttore dell'insieme con la capacità predefinita.
+     */
+    PoolStringhe() {
+        this(CAPACITA_PREDEFINITA);
+    }
+
+    /**
+     * @brief Costruttore dell'insieme.
+     *
+     * @param capacita Il numero massimo di stringhe memorizzate
+     */
+    PoolStringhe(int capacita) {
+
+        //tabella di dimensione potenza di 2, riempita al massimo per metà
+        int dimensione = Integer.highestOneBit(Math.max(capacita, 8) * 2 - 1) * 2;
+        this.chiavi = new byte[dimensione][];
+        this.valori = new String[dimensione];
+        this.normalizzate = new String[dimensione];
+        this.stime = new int[dimensione];
+        this.capacita = capacita;
+    }
+
+    /**
+     * @brief Restituisce la posizione nella tabella dei byte indicati, memorizzandoli se possibile.
+     *
+     * @param buffer Il buffer che contiene i byte UTF-8 del valore
+     * @param da La posizione del primo byte
+     * @param lunghezza Il numero di byte
+     *
+     * @return La posizione della stringa canonica, oppure -1 se la tabella è piena e i byte non sono presenti
+     */
+    int cerca(byte[] buffer, int da, int lunghezza) {
+
+        int h = 1;
+        for (int i = da; i < da + lunghezza; i++)
+            h = 31 * h + buffer[i];
+        h ^= h >>> 16;
+
+        int maschera = chiavi.length - 1;
+        int i = h & maschera;
+        while (chiavi[i] != null) { //scansione lineare delle posizioni occupate
+
+            byte[] chiave = chiavi[i];
+            if (chiave.length == lunghezza && uguali(chiave, buffer, da)) {
+                byteRisparmiati += stime[i];
+                return i;
+            }
+            i = (i + 1) & maschera;
+        }
+
+        if (voci == capacita)
+            return -1;
+
+        chiavi[i] = Arrays.copyOfRange(buffer, da, da + lunghezza);
+        valori[i] = new String(buffer, da, lunghezza, StandardCharsets.UTF_8);
+        stime[i] = stimaByte(valori[i]);
+        voci++;
+        return i;
+    }
+
+    /**
+     * @brief Restituisce la stringa canonica in una posizione della tabella.
+     *
+     * @param posizione La posizione restituita da {@code cerca}
+     *
+     * @return La stringa canonica
+     */
+    String getValore(int posizione) {
+        return valori[posizione];
+    }
+
+    /**
+     * @brief Restituisce la chiave normalizzata della stringa in una posizione della tabella.
+     *
+     * @param posizione La posizione restituita da {@code cerca}
+     *
+     * @return La chiave normalizzata, calcolata una sola volta per ogni stringa canonica
+     */
+    String getNormalizzata(int posizione) {
+
+        if (normalizzate[posizione] == null) {
+            normalizzate[posizione] = IndicePrefissi.normalizza(valori[posizione]);
+            if (normalizzate[posizione] != valori[posizione]) //chiave diversa dal valore: anche la chiave è condivisa
+                stime[posizione] += stimaByte(normalizzate[posizione]);
+        }
+        return normalizzate[posizione];
+    }
+
+    /**
+     * @brief Restituisce la stima della memoria risparmiata.
+     *
+     * @return I byte di heap che sarebbero stati occupati dalle stringhe riutilizzate
+     */
+    long getByteRisparmiati() {
+        return byteRisparmiati;
+    }
+
+    /**
+     * @brief Confronta i byte memorizzati con quelli di un buffer.
+     *
+     * @param chiave I byte memorizzati
+     * @param buffer Il buffer da confrontare
+     * @param da La posizione del primo byte nel buffer
+     *
+     * @return {@code true} se i byte coincidono, {@code false} altrimenti
+     */
+    private static boolean uguali(byte[] chiave, byte[] buffer, int da) {
+
+        for (int i = 0; i < chiave.length; i++) {
+            if (chiave[i] != buffer[da + i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @brief Stima la memoria occupata da una stringa.
+     *
+     * La stima considera l'intestazione dell'oggetto {@code String} (24 byte) e l'array dei caratteri
+     * (16 byte di intestazione più 1 o 2 byte per carattere), allineati a 8 byte.
+     *
+     * @param s La stringa
+     *
+     * @return La stima in byte
+     */
+    private static int stimaByte(String s) {
+
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++)
+            latin1 = s.charAt(i) < 0x100;
+
+        int array = 16 + s.length() * (latin1 ? 1 : 2);
+        return 24 + ((array + 7) & ~7);
+    }
+}
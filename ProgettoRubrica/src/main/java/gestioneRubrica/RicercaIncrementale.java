@@ -0,0 +1,505 @@
+/**
+ * @file RicercaIncrementale.java
+ *
+ * @brief Vista di ricerca per prefisso che restringe i risultati precedenti durante la digitazione.
+ *
+ * Questa classe mantiene una pila di livelli, ciascuno con i risultati di un prefisso che estende quello del livello
+ * sottostante. Quando la nuova ricerca estende l'ultima, viene aggiunto un solo livello, i cui risultati vengono
+ * ricavati da quelli della ricerca precedente e non dall'intera rubrica; quando la ricerca viene accorciata
+ * (ad esempio cancellando un carattere), si torna al livello corrispondente senza alcuna nuova scansione.
+ *
+ * I risultati del primo livello vengono individuati tramite l'indice dei prefissi, con un costo O(log n + k log k)
+ * dove k è il numero di risultati. Quando il prefisso corrisponde a una parte consistente della rubrica
+ * (ad esempio una sola lettera), e l'ordinamento dei risultati costerebbe più di una scansione, il livello viene
+ * invece ricavato scorrendo un'istantanea della lista o dei risultati sottostanti, come gli altri livelli.
+ * Le scansioni più lunghe avvengono in background: il livello resta vuoto finché i risultati non vengono pubblicati
+ * sul thread che modifica la rubrica, dopo avervi riportato le modifiche della lista avvenute nel frattempo,
+ * e se la ricerca cambia prima il calcolo viene annullato. Senza un thread impostato tramite {@code setThreadRubrica}
+ * tutte le scansioni avvengono subito, sul thread chiamante.
+ *
+ * Ogni livello viene poi mantenuto allineato alla lista dei contatti ascoltandone le modifiche: quelle puntuali
+ * (aggiunta, rimozione o rinomina di un contatto) aggiornano il solo contatto interessato, quelle in blocco vengono
+ * applicate ai risultati in una sola passata. Tutti i livelli riflettono quindi aggiunte, modifiche e rimozioni.
+ *
+ * @see gestioneRubrica.Rubrica
+ */
+
+package gestioneRubrica;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+
+class RicercaIncrementale {
+
+    /**
+     * @brief Livello della pila: i risultati di un prefisso normalizzato e la vista che li espone.
+     */
+    private static final class Livello {
+
+        private final String prefisso;
+
+        /**
+         * I contatti corrispondenti al prefisso, nell'ordine della lista; null per il livello di base.
+         */
+        private final ObservableList<Contatto> risultati;
+
+        private final FilteredList<Contatto> vista;
+
+        /**
+         * Ascoltatore che allinea i risultati alla lista dei contatti, null per il livello di base.
+         */
+        private ListChangeListener<Contatto> collegamento;
+
+        /**
+         * Calcolo in background dei risultati, null se i risultati sono già stati pubblicati.
+         */
+        private Calcolo calcolo;
+
+        private Livello(String prefisso, ObservableList<Contatto> risultati, FilteredList<Contatto> vista){
+            this.prefisso = prefisso;
+            this.risultati = risultati;
+            this.vista = vista;
+        }
+    }
+
+    /**
+     * @brief Calcolo in background di un livello, con le modifiche della lista successive all'istantanea.
+     */
+    private static final class Calcolo {
+
+        /**
+         * Impostato quando il livello viene rimosso o ricalcolato: il calcolo termina senza pubblicare i risultati.
+         */
+        private volatile boolean annullato;
+
+        /**
+         * Contatti aggiunti o rimossi dalla lista dopo l'istantanea, con l'ultima modifica di ciascuno (true se aggiunto).
+         */
+        private final Map<Contatto, Boolean> modificati = new IdentityHashMap<>();
+
+        /**
+         * Contatti aggiunti alla lista dopo l'istantanea, in ordine di aggiunta.
+         */
+        private final List<Contatto> aggiunti = new ArrayList<>();
+    }
+
+    /**
+     * Numero di contatti modificati oltre il quale le modifiche vengono applicate in blocco invece che una alla volta.
+     */
+    private static final int SOGLIA_AGGIORNAMENTO_PUNTUALE = 32;
+
+    /**
+     * Frazione della rubrica oltre la quale il primo livello viene ricavato con una scansione invece che dall'indice (1/16).
+     */
+    private static final int FRAZIONE_INDICE = 16;
+
+    /**
+     * Numero di contatti da scorrere oltre il quale un livello viene calcolato in background.
+     */
+    private static final int SOGLIA_SCANSIONE = 1 << 15;
+
+    /**
+     * Thread condiviso dalle ricerche per il calcolo dei livelli; termina quando resta inattivo.
+     */
+    private static final ThreadPoolExecutor SCANSIONE = creaScansione();
+
+    /**
+     * La lista dei contatti, ordinata.
+     */
+    private final ObservableList<Contatto> contatti;
+
+    /**
+     * L'indice dei prefissi dei contatti.
+     */
+    private final IndicePrefissi indice;
+
+    /**
+     * Pila dei livelli: in fondo la vista senza filtro dell'intera rubrica, in cima la ricerca corrente.
+     */
+    private final Deque<Livello> livelli;
+
+    /**
+     * Esecutore dei calcoli in background.
+     */
+    private Executor esecutore;
+
+    /**
+     * Esecutore del thread che modifica la rubrica, su cui vengono pubblicati i risultati dei calcoli.
+     */
+    private Executor threadRubrica;
+
+    /**
+     * @brief Costruttore della ricerca incrementale, che inizialmente mostra tutti i contatti.
+     *
+     * @param contatti La lista dei contatti su cui effettuare la ricerca
+     * @param indice L'indice dei prefissi dei contatti, mantenuto allineato alla lista
+     */
+    RicercaIncrementale(ObservableList<Contatto> contatti, IndicePrefissi indice){
+        this.contatti = contatti;
+        this.indice = indice;
+        this.livelli = new ArrayDeque<>();
+        this.livelli.push(new Livello("", null, new FilteredList<>(contatti)));
+        this.esecutore = Runnable::run;
+        this.threadRubrica = Runnable::run;
+    }
+
+    /**
+     * @brief Imposta il thread che modifica la rubrica, abilitando il calcolo in background dei livelli.
+     *
+     * @param threadRubrica L'esecutore del thread che modifica la rubrica (ad esempio {@code Platform::runLater})
+     */
+    void setThreadRubrica(Executor threadRubrica){
+        this.esecutore = SCANSIONE;
+        this.threadRubrica = threadRubrica;
+    }
+
+    /**
+     * @brief Imposta la stringa di ricerca.
+     *
+     * @param s La stringa di ricerca; la stringa vuota corrisponde a tutti i contatti
+     *
+     * @post La vista restituita da {@code getVista} contiene i soli contatti il cui nome o cognome inizia con s,
+     *       oppure è vuota finché il calcolo in background dei risultati non viene pubblicato
+     */
+    void imposta(String s){
+
+        String prefisso = IndicePrefissi.normalizza(s);
+
+        //rimozione dei livelli che non sono un prefisso della nuova ricerca (il livello di base non viene mai rimosso)
+        while (livelli.size() > 1 && !prefisso.startsWith(livelli.peek().prefisso)) {
+            Livello rimosso = livelli.pop();
+            contatti.removeListener(rimosso.collegamento);
+            if (rimosso.calcolo != null)
+                rimosso.calcolo.annullato = true;
+        }
+
+        Livello sotto = livelli.peek();
+        if (sotto.prefisso.equals(prefisso)) //ricerca già presente nella pila
+            return;
+
+        ObservableList<Contatto> risultati = FXCollections.observableArrayList();
+        Livello livello = new Livello(prefisso, risultati, new FilteredList<>(risultati));
+
+        //fino alla pubblicazione dei risultati le modifiche della lista vengono solo registrate
+        livello.collegamento = modifica -> {
+            if (livello.calcolo == null)
+                allinea(livello, modifica);
+            else
+                registra(livello, modifica);
+        };
+        contatti.addListener(livello.collegamento);
+
+        if (sotto.risultati == null && (long) indice.conta(prefisso) * FRAZIONE_INDICE <= contatti.size())
+            risultati.setAll(cercaNellIndice(prefisso)); //pochi risultati: ricavati dall'indice senza scorrere la rubrica
+        else //scansione dei risultati sottostanti o, se non sono ancora disponibili, dell'intera lista
+            calcola(livello, sotto.risultati != null && sotto.calcolo == null ? sotto.risultati : contatti);
+
+        livelli.push(livello);
+    }
+
+    /**
+     * @brief Restituisce la vista dei risultati della ricerca corrente.
+     *
+     * La vista restituita cambia quando cambia la ricerca: va richiesta nuovamente dopo ogni {@code imposta}.
+     *
+     * @return La vista filtrata in cima alla pila
+     */
+    FilteredList<Contatto> getVista(){
+        return livelli.peek().vista;
+    }
+
+    /**
+     * @brief Ricava dall'indice dei prefissi i contatti corrispondenti a un prefisso.
+     *
+     * @param prefisso Il prefisso normalizzato
+     *
+     * @pre L'indice deve essere allineato alla lista dei contatti
+     *
+     * @return I contatti corrispondenti, nell'ordine della lista
+     */
+    private Contatto[] cercaNellIndice(String prefisso){
+
+        //raccolta dei contatti corrispondenti, scartando quelli trovati sia per nome che per cognome
+        Set<Contatto> trovati = Collections.newSetFromMap(new IdentityHashMap<>());
+        indice.cerca(prefisso, trovati);
+        Contatto[] ordinati = trovati.toArray(new Contatto[0]);
+        Arrays.sort(ordinati);
+        ordinaEquivalenti(ordinati);
+
+        return ordinati;
+    }
+
+    /**
+     * @brief Riporta i contatti equivalenti (che differiscono solo per maiuscole e minuscole) all'ordine della lista.
+     *
+     * L'ordinamento non distingue i contatti equivalenti, che nella lista compaiono nell'ordine di inserimento:
+     * per ciascun gruppo di equivalenti l'ordine viene ricavato dalla lista, con una ricerca binaria.
+     *
+     * @param ordinati I contatti trovati, ordinati secondo {@code Contatto.compareTo}
+     */
+    private void ordinaEquivalenti(Contatto[] ordinati){
+
+        for (int inizio = 0, fine; inizio < ordinati.length; inizio = fine) {
+
+            fine = inizio + 1;
+            while (fine < ordinati.length && ordinati[fine].compareTo(ordinati[inizio]) == 0)
+                fine++;
+            if (fine - inizio == 1) //nessun contatto equivalente
+                continue;
+
+            Set<Contatto> gruppo = Collections.newSetFromMap(new IdentityHashMap<>());
+            gruppo.addAll(Arrays.asList(ordinati).subList(inizio, fine));
+            int k = inizio;
+            for (int i = primoNonMinore(contatti, ordinati[inizio]); k < fine; i++) {
+                if (gruppo.contains(contatti.get(i)))
+                    ordinati[k++] = contatti.get(i);
+            }
+        }
+    }
+
+    /**
+     * @brief Calcola i risultati di un livello scorrendo un'istantanea dei contatti indicati.
+     *
+     * La scansione avviene in background se i contatti da scorrere sono molti, altrimenti subito.
+     *
+     * @param livello Il livello da calcolare
+     * @param sorgente I contatti da scorrere, nell'ordine della lista: i risultati di un livello sottostante
+     *                 già pubblicati oppure l'intera lista
+     */
+    private void calcola(Livello livello, List<Contatto> sorgente){
+
+        Calcolo calcolo = new Calcolo();
+        livello.calcolo = calcolo;
+
+        //copia dell'array sottostante, molto più rapida della copia tipizzata che scorre la lista elemento per elemento
+        Object[] istantanea = sorgente.toArray();
+
+        if (istantanea.length <= SOGLIA_SCANSIONE) {
+            pubblica(livello, calcolo, scorri(istantanea, livello.prefisso, calcolo));
+            return;
+        }
+
+        esecutore.execute(() -> {
+            List<Contatto> trovati = scorri(istantanea, livello.prefisso, calcolo);
+            if (trovati != null)
+                threadRubrica.execute(() -> pubblica(livello, calcolo, trovati));
+        });
+    }
+
+    /**
+     * @brief Raccoglie i contatti di un'istantanea corrispondenti a un prefisso.
+     *
+     * @param istantanea I contatti da scorrere
+     * @param prefisso Il prefisso normalizzato
+     * @param calcolo Il calcolo di cui fa parte la scansione
+     *
+     * @return I contatti corrispondenti, nell'ordine dell'istantanea, oppure null se il calcolo è stato annullato
+     */
+    private static List<Contatto> scorri(Object[] istantanea, String prefisso, Calcolo calcolo){
+
+        List<Contatto> trovati = new ArrayList<>();
+        for (int i = 0; i < istantanea.length; i++) {
+            if ((i & 0xFFF) == 0 && calcolo.annullato) //controllo periodico dell'annullamento
+                return null;
+            Contatto c = (Contatto) istantanea[i];
+            if (c.corrispondePrefisso(prefisso))
+                trovati.add(c);
+        }
+
+        return trovati;
+    }
+
+    /**
+     * @brief Registra una modifica della lista dei contatti avvenuta durante il calcolo di un livello.
+     *
+     * @param livello Il livello, con il calcolo in corso
+     * @param modifica La modifica della lista dei contatti
+     */
+    private void registra(Livello livello, ListChangeListener.Change<? extends Contatto> modifica){
+
+        Calcolo calcolo = livello.calcolo;
+        while (modifica.next()) {
+            if (modifica.wasPermutated()
+                    || calcolo.modificati.size() + modifica.getRemovedSize() + modifica.getAddedSize() > SOGLIA_AGGIORNAMENTO_PUNTUALE) {
+                //modifica in blocco: il calcolo riparte da un'istantanea della lista, già nel suo stato finale
+                calcolo.annullato = true;
+                calcola(livello, contatti);
+                return;
+            }
+            for (Contatto c : modifica.getRemoved())
+                calcolo.modificati.put(c, false);
+            if (modifica.wasAdded()) {
+                for (Contatto c : modifica.getAddedSubList()) {
+                    calcolo.modificati.put(c, true);
+                    calcolo.aggiunti.add(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief Pubblica i risultati del calcolo di un livello, riportandovi le modifiche registrate nel frattempo.
+     *
+     * @param livello Il livello
+     * @param calcolo Il calcolo concluso
+     * @param trovati I contatti dell'istantanea corrispondenti al prefisso, nell'ordine della lista
+     */
+    private void pubblica(Livello livello, Calcolo calcolo, List<Contatto> trovati){
+
+        if (calcolo.annullato) //livello rimosso o calcolo ripartito
+            return;
+        livello.calcolo = null;
+
+        //i contatti modificati vengono rimossi e reinseriti secondo il loro stato attuale: il nominativo
+        //letto durante la scansione può essere cambiato, mentre gli altri contatti sono rimasti nella stessa posizione
+        if (!calcolo.modificati.isEmpty()) {
+            trovati.removeIf(calcolo.modificati::containsKey);
+            for (Contatto c : calcolo.aggiunti) {
+                if (calcolo.modificati.remove(c) == Boolean.TRUE && c.corrispondePrefisso(livello.prefisso))
+                    trovati.add(primoMaggiore(trovati, c), c);
+            }
+        }
+
+        livello.risultati.setAll(trovati);
+    }
+
+    /**
+     * @brief Allinea i risultati di un livello a una modifica della lista dei contatti.
+     *
+     * @param livello Il livello, con i risultati già pubblicati
+     * @param modifica La modifica della lista dei contatti
+     */
+    private void allinea(Livello livello, ListChangeListener.Change<? extends Contatto> modifica){
+
+        ObservableList<Contatto> risultati = livello.risultati;
+        String prefisso = livello.prefisso;
+
+        Set<Contatto> rimossi = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Contatto> aggiunti = new ArrayList<>();
+        while (modifica.next()) {
+            if (modifica.wasPermutated()) { //riordinamento della lista: ricalcolo del livello
+                calcola(livello, contatti);
+                return;
+            }
+            rimossi.addAll(modifica.getRemoved());
+            if (modifica.wasAdded()) {
+                for (Contatto c : modifica.getAddedSubList()) {
+                    if (c.corrispondePrefisso(prefisso))
+                        aggiunti.add(c);
+                }
+            }
+        }
+
+        if (rimossi.size() > SOGLIA_AGGIORNAMENTO_PUNTUALE || aggiunti.size() > SOGLIA_AGGIORNAMENTO_PUNTUALE) {
+            //modifica in blocco: rimozione per identità e fusione ordinata dei contatti aggiunti, in una sola passata
+            List<Contatto> rimasti = new ArrayList<>(risultati);
+            rimasti.removeIf(rimossi::contains);
+            aggiunti.sort(null); //già nell'ordine della lista, in cui i contatti aggiunti seguono gli equivalenti
+            List<Contatto> fusi = new ArrayList<>(rimasti.size() + aggiunti.size());
+            int a = 0, b = 0;
+            while (a < rimasti.size() || b < aggiunti.size()) {
+                if (b == aggiunti.size() || (a < rimasti.size() && rimasti.get(a).compareTo(aggiunti.get(b)) <= 0))
+                    fusi.add(rimasti.get(a++));
+                else
+                    fusi.add(aggiunti.get(b++));
+            }
+            risultati.setAll(fusi);
+            return;
+        }
+
+        //i contatti rimossi hanno ancora il nominativo con cui erano in lista (la rinomina avviene dopo la rimozione)
+        for (Contatto c : rimossi) {
+            if (!c.corrispondePrefisso(prefisso))
+                continue;
+            for (int i = primoNonMinore(risultati, c); i < risultati.size() && risultati.get(i).compareTo(c) == 0; i++) {
+                if (risultati.get(i) == c) {
+                    risultati.remove(i);
+                    break;
+                }
+            }
+        }
+
+        //i contatti aggiunti seguono gli eventuali equivalenti, come nella lista
+        for (Contatto c : aggiunti)
+            risultati.add(primoMaggiore(risultati, c), c);
+    }
+
+    /**
+     * @brief Ricerca binaria del primo contatto non minore di quello indicato.
+     *
+     * @param lista La lista ordinata in cui cercare
+     * @param c Il contatto da cercare
+     *
+     * @return La posizione del primo contatto non minore di {@code c}
+     */
+    private static int primoNonMinore(List<Contatto> lista, Contatto c){
+
+        int low = 0;
+        int high = lista.size();
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lista.get(mid).compareTo(c) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return low;
+    }
+
+    /**
+     * @brief Ricerca binaria del primo contatto strettamente maggiore di quello indicato.
+     *
+     * @param lista La lista ordinata in cui cercare
+     * @param c Il contatto da cercare
+     *
+     * @return La posizione del primo contatto maggiore di {@code c}
+     */
+    private static int primoMaggiore(List<Contatto> lista, Contatto c){
+
+        int low = 0;
+        int high = lista.size();
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lista.get(mid).compareTo(c) <= 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return low;
+    }
+
+    /**
+     * @brief Crea il thread condiviso per il calcolo dei livelli.
+     *
+     * @return L'esecutore, con un solo thread daemon che termina dopo alcuni secondi di inattività
+     */
+    private static ThreadPoolExecutor creaScansione(){
+
+        ThreadPoolExecutor esecutore = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "rubrica-ricerca");
+            thread.setDaemon(true);
+            return thread;
+        });
+        esecutore.allowCoreThreadTimeOut(true);
+        return esecutore;
+    }
+}
@@ -12,16 +12,23 @@
 package gestioneRubrica;
 
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 
 /*
  * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
@@ -31,12 +38,38 @@ import javafx.collections.ObservableList;
 
 public class Rubrica {
     
+    /**
+     * Numero di contatti oltre il quale la rimozione multipla ricostruisce la lista invece di rimuovere i singoli contatti
+     */
+    private static final int SOGLIA_RIMOZIONE_PUNTUALE = 32;
+    
     /**
      * Lista osservabile dei contatti al fine di poter sfruttare al meglio 
      * la libreria javafx
      */
     private ObservableList<Contatto> contactList;
     
+    /**
+     * Indice hash dei nominativi (cognome e nome) presenti in rubrica, 
+     * mantenuto allineato a contactList per il controllo degli omonimi in tempo costante.
+     */
+    private HashSet<Contatto> indiceNominativi;
+    
+    /**
+     * Indice ordinato di nomi e cognomi normalizzati, usato dalla ricerca per prefisso e dal primo livello della ricerca incrementale.
+     */
+    private IndicePrefissi indicePrefissi;
+    
+    /**
+     * Ricerca incrementale sulla lista dei contatti, che fornisce la vista filtrata e sempre aggiornata dei risultati
+     */
+    private RicercaIncrementale ricerca;
+    
+    /**
+     * Osservatori a cui vengono notificate le modifiche dei contatti (ad esempio il giornale delle modifiche)
+     */
+    private List<OsservatoreRubrica> osservatori;
+    
     /**
      *  @brief Costruttore della classe Rubrica, che sarà inizialmente vuota
      * 
@@ -47,6 +80,15 @@ public class Rubrica {
     
      //creazione lista di contatti
         this.contactList = FXCollections.observableArrayList();
+        
+     //creazione indice dei nominativi
+        this.indiceNominativi = new HashSet<>();
+        this.indicePrefissi = new IndicePrefissi();
+        
+     //creazione della vista di ricerca, che inizialmente mostra tutti i contatti
+        this.ricerca = new RicercaIncrementale(contactList, indicePrefissi);
+        
+        this.osservatori = new CopyOnWriteArrayList<>();
     
     }
     
@@ -77,41 +119,450 @@ public class Rubrica {
       if(c == null)// controllo puntatore null
           throw new NullPointerException("Puntatore contatto = null");    //Lancio eccezione
       
-        if(contactList.contains(c))    //controllo contatto già presente
+        if(!indiceNominativi.add(c))    //controllo contatto già presente
             return 1;
 
-
-        if(this.contactList.add(c)){     //aggiunta e controllo aggiunta alla rubrica
-        //sorting della lista
-        Collections.sort(contactList);
+        //inserimento nella posizione ordinata, trovata per ricerca binaria: un solo evento di aggiunta sulla lista
+        this.contactList.add(posizioneInserimento(c), c);
+        indicePrefissi.aggiungi(c);
+        
+        for(OsservatoreRubrica o : osservatori)
+            o.contattiAggiunti(Collections.singletonList(c));
         return 0;
-     }
-        return 2;
+    }
+    
+    /**
+     * @brief Aggiunge alla rubrica un insieme di contatti con un'unica operazione.
+     * 
+     * I contatti vengono confrontati con quelli già presenti (e tra di loro) tramite l'indice dei nominativi,
+     * quelli accettati vengono ordinati una sola volta e fusi con la lista della rubrica in un'unica passata.
+     * La lista osservabile viene aggiornata con un solo evento di modifica.
+     * L'esito finale è lo stesso che si otterrebbe invocando {@code aggiungiContatto} su ogni elemento, nell'ordine della collezione.
+     * 
+     * @param contatti La collezione di contatti da aggiungere
+     * 
+     * @pre contatti non deve essere null
+     * 
+     * @post I contatti non duplicati sono aggiunti alla rubrica, che resta ordinata
+     * 
+     * @return Un array con l'esito dell'aggiunta di ciascun contatto, nell'ordine di iterazione della collezione,
+     *         con gli stessi codici di {@code aggiungiContatto}:
+     *         0 se il contatto è stato aggiunto;
+     *         1 se il nominativo era già presente in rubrica o nella collezione;
+     *         2 se il contatto non è stato aggiunto per altro problema (ad esempio contatto null)
+     */
+    public int[] aggiungiContatti(Collection<Contatto> contatti){
+        
+        int[] esiti = new int[contatti.size()];
+        List<Contatto> nuovi = new ArrayList<>(contatti.size());
+        
+        int i = 0;
+        for(Contatto c : contatti){ //controllo duplicati di ogni contatto tramite l'indice
+            if(c == null)
+                esiti[i] = 2;
+            else if(!indiceNominativi.add(c))
+                esiti[i] = 1;
+            else{
+                esiti[i] = 0;
+                nuovi.add(c);
+            }
+            i++;
+        }
+        
+        if(nuovi.isEmpty())
+            return esiti;
+        
+        //unico ordinamento (stabile) dei soli contatti accettati
+        nuovi.sort(null);
+        
+        //fusione in un'unica passata della lista della rubrica con i nuovi contatti
+        List<Contatto> fusione = new ArrayList<>(contactList.size() + nuovi.size());
+        int a = 0, b = 0;
+        while(a < contactList.size() && b < nuovi.size()){
+            if(contactList.get(a).compareTo(nuovi.get(b)) <= 0) //a parità, i contatti già presenti precedono i nuovi
+                fusione.add(contactList.get(a++));
+            else
+                fusione.add(nuovi.get(b++));
+        }
+        while(a < contactList.size())
+            fusione.add(contactList.get(a++));
+        while(b < nuovi.size())
+            fusione.add(nuovi.get(b++));
+        
+        //pubblicazione del risultato con un solo evento di modifica
+        contactList.setAll(fusione);
+        indicePrefissi.aggiungiTutti(nuovi);
+        
+        for(OsservatoreRubrica o : osservatori)
+            o.contattiAggiunti(nuovi);
+        return esiti;
+    }
+    
+    /**
+     * @brief Carica in una rubrica vuota una lista di contatti già ordinata.
+     * 
+     * I contatti vengono pubblicati con un solo evento di modifica e gli indici vengono costruiti in blocco,
+     * senza alcun confronto con i contatti della rubrica.
+     * 
+     * @param ordinati I contatti da caricare
+     * 
+     * @pre La rubrica deve essere vuota
+     * @pre ordinati deve essere ordinata secondo {@code Contatto.compareTo} e non contenere nominativi ripetuti
+     * 
+     * @post La rubrica contiene i contatti di {@code ordinati}, nello stesso ordine
+     */
+    void caricaContattiOrdinati(List<Contatto> ordinati){
+        
+        indiceNominativi.addAll(ordinati);
+        indicePrefissi.aggiungiTutti(ordinati);
+        contactList.setAll(ordinati);
+        
+    }
+    
+    /**
+     * @brief Calcola la posizione di inserimento ordinato di un contatto.
+     * 
+     * La posizione è cercata tramite ricerca binaria sfruttando {@code Contatto.compareTo}: 
+     * il contatto viene collocato dopo gli eventuali contatti equivalenti già presenti, 
+     * come avverrebbe con un ordinamento stabile della lista.
+     * 
+     * @param c Il contatto di cui calcolare la posizione
+     * 
+     * @pre La lista dei contatti deve essere ordinata
+     * 
+     * @return La posizione di inserimento
+     */
+    private int posizioneInserimento(Contatto c){
+        
+        int low = 0;
+        int high = contactList.size();
+        
+        while(low < high){ //ricerca del primo contatto strettamente maggiore di c
+            int mid = (low + high) >>> 1;
+            if(contactList.get(mid).compareTo(c) <= 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        
+        return low;
+    }
+    
+    /**
+     * @brief Calcola la posizione in rubrica di uno specifico contatto.
+     * 
+     * La ricerca binaria individua la sequenza di contatti equivalenti a {@code c}, 
+     * all'interno della quale si cerca l'istanza stessa.
+     * 
+     * @param c Il contatto da cercare
+     * 
+     * @pre La lista dei contatti deve essere ordinata
+     * 
+     * @return La posizione del contatto, oppure -1 se l'istanza non appartiene alla rubrica
+     */
+    private int posizioneContatto(Contatto c){
+        
+        int low = 0;
+        int high = contactList.size();
+        
+        while(low < high){ //ricerca del primo contatto non minore di c
+            int mid = (low + high) >>> 1;
+            if(contactList.get(mid).compareTo(c) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        
+        for(int i = low; i < contactList.size() && contactList.get(i).compareTo(c) == 0; i++){
+            if(contactList.get(i) == c)
+                return i;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * @brief Controlla la presenza di un nominativo in rubrica.
+     * 
+     * Il controllo avviene tramite l'indice hash dei nominativi, senza scorrere la lista dei contatti.
+     * 
+     * @param nome Il nome da cercare
+     * @param cognome Il cognome da cercare
+     * 
+     * @return {@code true} se in rubrica è presente un contatto con lo stesso nome e cognome, {@code false} altrimenti
+     */
+    public boolean contieneNominativo(String nome, String cognome){
+        
+        //contatto di appoggio usato come chiave di ricerca
+        Contatto chiave = new Contatto();
+        chiave.setNome(nome);
+        chiave.setCognome(cognome);
+        
+        return indiceNominativi.contains(chiave);
+    }
+    
+    /**
+     * @brief Modifica il nominativo di un contatto della rubrica.
+     * 
+     * Il contatto viene rimosso dall'indice dei nominativi, rinominato e reinserito 
+     * nella posizione ordinata corretta, mantenendo allineati lista e indice.
+     * 
+     * @param c Il contatto da rinominare
+     * @param nome Il nuovo nome
+     * @param cognome Il nuovo cognome
+     * 
+     * @pre c deve appartenere alla rubrica
+     * 
+     * @post Il contatto ha il nuovo nominativo e la rubrica è ordinata
+     * 
+     * @return {@code true} se la modifica è avvenuta, {@code false} se il nuovo nominativo appartiene ad un altro contatto
+     */
+    public boolean modificaNominativo(Contatto c, String nome, String cognome){
+        
+        if(c.getNome().equals(nome) && c.getCognome().equals(cognome)) //nominativo invariato
+            return true;
+        
+        if(contieneNominativo(nome, cognome)) //controllo omonimia
+            return false;
+        
+        String vecchioCognome = c.getCognome();
+        String vecchioNome = c.getNome();
+        rinomina(c, nome, cognome);
+        
+        for(OsservatoreRubrica o : osservatori)
+            o.contattoModificato(vecchioCognome, vecchioNome, c);
+        return true;
+    }
+    
+    /**
+     * @brief Modifica i recapiti di un contatto della rubrica.
+     * 
+     * Nominativo e posizione del contatto restano invariati; la modifica viene notificata agli osservatori
+     * solo se almeno un recapito è cambiato.
+     * 
+     * @param c Il contatto da modificare
+     * @param numeri I tre nuovi numeri di telefono
+     * @param emails I tre nuovi indirizzi email
+     * 
+     * @pre c deve appartenere alla rubrica
+     * @pre numeri ed emails devono contenere tre elementi
+     * 
+     * @post Il contatto ha i nuovi recapiti
+     */
+    public void modificaRecapiti(Contatto c, String[] numeri, String[] emails){
+        
+        if(Arrays.equals(c.getNumeri(), numeri) && Arrays.equals(c.getEmails(), emails)) //recapiti invariati
+            return;
+        
+        impostaRecapiti(c, numeri, emails);
+        
+        for(OsservatoreRubrica o : osservatori)
+            o.contattoModificato(c.getCognome(), c.getNome(), c);
+    }
+    
+    /**
+     * @brief Modifica nominativo e recapiti di un contatto della rubrica con un'unica operazione.
+     * 
+     * A differenza di {@code modificaNominativo} seguito da {@code modificaRecapiti}, gli osservatori ricevono
+     * una sola notifica: il giornale delle modifiche registra quindi un solo record, con una sola scrittura sul disco.
+     * 
+     * @param c Il contatto da modificare
+     * @param nome Il nuovo nome
+     * @param cognome Il nuovo cognome
+     * @param numeri I tre nuovi numeri di telefono
+     * @param emails I tre nuovi indirizzi email
+     * 
+     * @pre c deve appartenere alla rubrica
+     * @pre numeri ed emails devono contenere tre elementi
+     * 
+     * @post Il contatto ha il nuovo nominativo e i nuovi recapiti e la rubrica è ordinata
+     * 
+     * @return {@code true} se la modifica è avvenuta, {@code false} se il nuovo nominativo appartiene ad un altro contatto
+     *         (in questo caso il contatto non viene modificato)
+     */
+    public boolean modificaContatto(Contatto c, String nome, String cognome, String[] numeri, String[] emails){
+        
+        boolean nominativo = !c.getNome().equals(nome) || !c.getCognome().equals(cognome);
+        boolean recapiti = !Arrays.equals(c.getNumeri(), numeri) || !Arrays.equals(c.getEmails(), emails);
+        
+        if(nominativo && contieneNominativo(nome, cognome)) //controllo omonimia
+            return false;
+        
+        if(!nominativo && !recapiti) //contatto invariato
+            return true;
+        
+        String vecchioCognome = c.getCognome();
+        String vecchioNome = c.getNome();
+        if(nominativo)
+            rinomina(c, nome, cognome);
+        if(recapiti)
+            impostaRecapiti(c, numeri, emails);
+        
+        for(OsservatoreRubrica o : osservatori)
+            o.contattoModificato(vecchioCognome, vecchioNome, c);
+        return true;
+    }
+    
+    /**
+     * @brief Rinomina un contatto della rubrica, senza notificare gli osservatori.
+     * 
+     * Il contatto viene rimosso dall'indice dei nominativi, rinominato e reinserito 
+     * nella posizione ordinata corretta, mantenendo allineati lista e indici.
+     * 
+     * @param c Il contatto da rinominare
+     * @param nome Il nuovo nome
+     * @param cognome Il nuovo cognome
+     * 
+     * @pre c deve appartenere alla rubrica e il nuovo nominativo non deve essere presente
+     */
+    private void rinomina(Contatto c, String nome, String cognome){
+        
+        String vecchiaChiaveCognome = c.getChiaveCognome();
+        String vecchiaChiaveNome = c.getChiaveNome();
+        
+        //rimozione del contatto dalla vecchia posizione e dall'indice
+        int pos = posizioneContatto(c);
+        if(pos >= 0)
+            contactList.remove(pos);
+        indiceNominativi.remove(c);
+        
+        c.setNome(nome);
+        c.setCognome(cognome);
+        
+        //reinserimento nella nuova posizione ordinata; le voci dell'indice dei prefissi vengono spostate senza rimuoverle
+        indiceNominativi.add(c);
+        indicePrefissi.rinomina(c, vecchiaChiaveNome, vecchiaChiaveCognome);
+        contactList.add(posizioneInserimento(c), c);
+    }
+    
+    /**
+     * @brief Imposta i recapiti di un contatto, senza notificare gli osservatori.
+     * 
+     * @param c Il contatto da modificare
+     * @param numeri I tre nuovi numeri di telefono
+     * @param emails I tre nuovi indirizzi email
+     */
+    private void impostaRecapiti(Contatto c, String[] numeri, String[] emails){
+        
+        c.setNumero1(numeri[0]);
+        c.setNumero2(numeri[1]);
+        c.setNumero3(numeri[2]);
+        c.setEmail1(emails[0]);
+        c.setEmail2(emails[1]);
+        c.setEmail3(emails[2]);
+    }
+    
+    /**
+     * @brief Cerca il contatto della rubrica con il nominativo indicato.
+     * 
+     * @param nome Il nome da cercare
+     * @param cognome Il cognome da cercare
+     * 
+     * @return Il contatto con esattamente lo stesso nome e cognome, oppure null se non è presente
+     */
+    Contatto cercaNominativo(String nome, String cognome){
+        
+        //contatto di appoggio usato come chiave di ricerca
+        Contatto chiave = new Contatto();
+        chiave.setNome(nome);
+        chiave.setCognome(cognome);
+        
+        if(!indiceNominativi.contains(chiave))
+            return null;
+        
+        int low = 0;
+        int high = contactList.size();
+        
+        while(low < high){ //ricerca del primo contatto non minore della chiave
+            int mid = (low + high) >>> 1;
+            if(contactList.get(mid).compareTo(chiave) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        
+        //scansione dei contatti equivalenti, che differiscono solo per maiuscole e minuscole
+        for(int i = low; i < contactList.size() && contactList.get(i).compareTo(chiave) == 0; i++){
+            if(contactList.get(i).equals(chiave))
+                return contactList.get(i);
+        }
+        
+        return null;
     }
     
     /**
      *  @brief Rimuove un contatto da una lista osservabile di contatti.
      *
-     *Questo metodo consente di rimuovere un oggetto di tipo {@link Contatto.java} 
-     *da una lista osservabile ({@code ObservableList}). La rimozione può avvenire 
-     *in base a criteri definiti nell'implementazione del metodo (ad esempio, 
-     *corrispondenza con un contatto esistente nella lista).
+     *Questo metodo consente di rimuovere uno o più oggetti di tipo {@link Contatto.java} 
+     *dalla rubrica. Le posizioni dei contatti da rimuovere vengono individuate tramite ricerca binaria 
+     *prima di qualsiasi modifica, quindi list può essere anche la selezione della tabella, che cambia 
+     *durante la rimozione. La lista dei contatti viene compattata in un'unica passata 
+     *e le viste della rubrica ricevono un solo evento di modifica.
+     *I contatti vengono confrontati tramite {@code equals}, cioè per nome e cognome: un contatto di list
+     *che non è un'istanza della rubrica rimuove il contatto della rubrica con lo stesso nominativo.
      *
-     * @param list la lista osservabile ({@code ObservableList<Contatto>}) 
-     *             da cui rimuovere il contatto.
+     * @param list la collezione dei contatti da rimuovere (ad esempio la selezione della tabella).
      * @return {@code true} se il contatto è stato rimosso correttamente;
-     *         {@code false} se il contatto non è presente in {@code list} o per altri motivi
+     *         {@code false} se nessun contatto di {@code list} è presente in rubrica o per altri motivi
      *
      * @pre list non deve essere null.
-     * @pre I contatti di list devono appartenere alla rubrica da cui li si vuole rimuovere
      * 
-     * @post I contatti appartenente a list sono rimossi dalla rubrica
+     * @post I contatti della rubrica uguali a quelli di list sono rimossi dalla rubrica
      * 
      */
-    public boolean rimuoviContatto(ObservableList<Contatto> list){  
+    public boolean rimuoviContatto(Collection<Contatto> list){  
     
-    //rimozione dalla lista i contatti passati come argomento
-        return contactList.removeAll(list);
+    //copia delle posizioni dei contatti da rimuovere, prima di modificare la lista
+        BitSet posizioni = new BitSet(contactList.size());
+        Set<Contatto> rimossi = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(Contatto c : list){
+            if(c == null)
+                continue;
+            //di norma c è un'istanza della rubrica; altrimenti si cerca il contatto con lo stesso nominativo
+            int pos = posizioneContatto(c);
+            if(pos < 0){
+                c = cercaNominativo(c.getNome(), c.getCognome());
+                pos = c == null ? -1 : posizioneContatto(c);
+            }
+            if(pos >= 0 && !posizioni.get(pos)){
+                posizioni.set(pos);
+                rimossi.add(c);
+            }
+        }
+        
+        if(rimossi.isEmpty())
+            return false;
+        
+    //rimozione dei contatti dagli indici
+        for(Contatto c : rimossi)
+            indiceNominativi.remove(c);
+        
+        if(rimossi.size() <= SOGLIA_RIMOZIONE_PUNTUALE){
+            
+            //pochi contatti: l'evento di modifica indica le sole posizioni rimosse
+            for(Contatto c : rimossi)
+                indicePrefissi.rimuovi(c);
+            contactList.removeAll(rimossi);
+            
+        }else{
+            
+            //molti contatti: compattazione della lista in un'unica passata, copiando gli intervalli da conservare
+            indicePrefissi.rimuoviTutti(rimossi);
+            List<Contatto> rimanenti = new ArrayList<>(contactList.size() - rimossi.size());
+            int da = 0;
+            for(int pos = posizioni.nextSetBit(0); pos >= 0; pos = posizioni.nextSetBit(pos + 1)){
+                rimanenti.addAll(contactList.subList(da, pos));
+                da = pos + 1;
+            }
+            rimanenti.addAll(contactList.subList(da, contactList.size()));
+            
+            //pubblicazione del risultato con un solo evento di modifica
+            contactList.setAll(rimanenti);
+        }
+        
+        for(OsservatoreRubrica o : osservatori)
+            o.contattiRimossi(rimossi);
+        return true;
         
     }
     
@@ -120,6 +571,8 @@ public class Rubrica {
      * 
      * Questo metodo permette l'ottenimento del riferimento alla lista dei contatti per effettuare operazioni
      * direttamente su di essa.
+     * Aggiunte, rimozioni e modifiche dei nominativi devono passare per i metodi della rubrica,
+     * così da mantenere ordinamento e indice dei nominativi coerenti.
      * 
      * @return Riferimento di contactList. 
      */
@@ -130,9 +583,35 @@ public class Rubrica {
     }
     
     
+    /**
+     * @brief Registra un osservatore delle modifiche della rubrica
+     * 
+     * @param o L'osservatore a cui notificare aggiunte, rimozioni e modifiche dei contatti
+     */
+    public void aggiungiOsservatore(OsservatoreRubrica o){
+        
+        osservatori.add(o);
+        
+    }
+    
+    /**
+     * @brief Rimuove un osservatore delle modifiche della rubrica
+     * 
+     * @param o L'osservatore da rimuovere
+     */
+    public void rimuoviOsservatore(OsservatoreRubrica o){
+        
+        osservatori.remove(o);
+        
+    }
+    
+    
     /**
      * @brief Ricerca nella lista osservabile i contatti avente corrispondenza con la stringa inserita dall'utente
      * 
+     * Un contatto corrisponde se il suo nome o il suo cognome iniziano con la stringa cercata, senza distinzione tra maiuscole e minuscole.
+     * I contatti corrispondenti sono individuati tramite l'indice dei prefissi, senza scorrere l'intera rubrica.
+     * 
      * @param s la stringa inserita dall'utente nel textfield corrispondente alla ricerca
      * 
      * @return la sotto-rubrica cui fanno parte i contatti avente corrispondenza alla stringa {@code s}
@@ -143,21 +622,94 @@ public class Rubrica {
     
           //creazione rubrica temporanea
         Rubrica temp = new Rubrica();
-        for(Contatto c : contactList){ //ciclo di controllo su tutti i contatti della lista
-            if(c.getNome().toLowerCase().startsWith(s.toLowerCase()) || c.getCognome().toLowerCase().startsWith(s.toLowerCase())) //controllo presenza sottostringa
-                temp.aggiungiContatto(c); //aggiunta contatto avente la sottostringa nel nominativo alla rubrica temporanea
+        
+        if(s.isEmpty()){ //la stringa vuota corrisponde a tutti i contatti
+            temp.aggiungiContatti(contactList);
+            return temp;
         }
+        
+        //raccolta dei contatti corrispondenti tramite l'indice, scartando i contatti trovati sia per nome che per cognome
+        Set<Contatto> trovati = Collections.newSetFromMap(new IdentityHashMap<>());
+        indicePrefissi.cerca(IndicePrefissi.normalizza(s), trovati);
+        
+        //aggiunta dei contatti trovati alla rubrica temporanea con un unico ordinamento
+        temp.aggiungiContatti(trovati);
+        
         //restituzione riferimento alla rubrica temporanea
         return temp;
         
     }
     
     
+    /**
+     * @brief Restituisce la vista di ricerca della rubrica
+     * 
+     * La vista contiene i soli risultati della ricerca, senza copiare i contatti:
+     * è già ordinata e riflette automaticamente aggiunte, rimozioni e modifiche della rubrica.
+     * Il filtro applicato è quello impostato tramite {@code impostaRicerca}: poiché ogni ricerca che ne estende
+     * un'altra restringe i risultati precedenti in una nuova vista, il riferimento va richiesto dopo ogni ricerca.
+     * 
+     * @return Riferimento alla vista filtrata dei contatti
+     */
+    public FilteredList<Contatto> getVistaRicerca() {
+        
+        return ricerca.getVista();
+        
+    }
+    
+    /**
+     * @brief Imposta la stringa di ricerca della vista filtrata
+     * 
+     * @param s la stringa inserita dall'utente; se vuota la vista mostra tutti i contatti
+     * 
+     * @post La vista di ricerca contiene i soli contatti il cui nome o cognome iniziano con {@code s},
+     *       oppure è vuota finché i risultati calcolati in background non vengono pubblicati (vedi {@code setThreadRicerca})
+     */
+    public void impostaRicerca(String s){
+        
+        //la prima ricerca ricava i risultati dall'indice dei prefissi; se s estende la ricerca precedente
+        //vengono scorsi i soli risultati precedenti, senza riordinare i contatti
+        ricerca.imposta(s);
+        
+    }
+    
+    /**
+     * @brief Imposta il thread che modifica la rubrica, su cui vengono pubblicati i risultati delle ricerche ampie
+     * 
+     * Una ricerca che richiede di scorrere molti contatti (ad esempio una sola lettera in una rubrica grande) viene
+     * calcolata in background e la vista di ricerca resta vuota finché i risultati non vengono pubblicati tramite
+     * {@code threadRubrica}. Se il thread non viene impostato, tutte le ricerche vengono calcolate subito.
+     * 
+     * @param threadRubrica L'esecutore del thread che modifica la rubrica (ad esempio {@code Platform::runLater})
+     */
+    public void setThreadRicerca(Executor threadRubrica){
+        
+        ricerca.setThreadRubrica(threadRubrica);
+        
+    }
+    
+    /**
+     * @brief Crea il criterio di corrispondenza di un contatto con una stringa di ricerca
+     * 
+     * @param s la stringa di ricerca
+     * 
+     * @return Il predicato vero per i contatti il cui nome o cognome iniziano con {@code s}, senza distinzione tra maiuscole, minuscole e lettere accentate
+     */
+    public static Predicate<Contatto> corrispondenzaPrefisso(String s){
+        
+        String prefisso = IndicePrefissi.normalizza(s);
+        return c -> c.corrispondePrefisso(prefisso);
+        
+    }
+    
+    
      /**
      * 
      * @brief Importa da file esterno una rubrica intera
      * 
      * Viene richiamato questo metodo nel momento in cui l'utente preme il bottone corrispondente
+     * La lettura è delegata a {@link ImportatoreRubrica}, che ordina i contatti una sola volta e li pubblica con un'unica operazione
+     * I contatti che non rispettano le regole di {@link ValidatoreContatto} vengono scartati
      * Si gestiscono anche i casi in cui il file scelto dall'utente non ha il formato adatto o non contiene una rubrica
      * 
      * @param nomefile Il nome del file da cui importare la rubrica
@@ -174,46 +726,14 @@ public class Rubrica {
     
         Rubrica temp = new Rubrica(); //creazione oggetto rubrica
 
-        //Try di apertura file e inizializzazione oggetto di tipo BufferedReader
-        try (BufferedReader br = new BufferedReader(new FileReader(nomefile))) {
-            
-            
-                  String firstLine = br.readLine(); 
-
-        // Controllo se la prima parola è "RUBRICA"
-        if (firstLine == null || !firstLine.trim().equalsIgnoreCase("RUBRICA")) 
-           return temp; // Ritorna una rubrica vuota in caso di errore
-        
-        
+        //Try di importazione tramite il motore di importazione massiva
+        try {
             
-            String line;
+            //i file più grandi vengono letti in parallelo da tutti i processori disponibili, scartando i contatti non validi
+            ImportatoreRubrica importatore = new ImportatoreRubrica(ImportatoreRubrica.numeroThreadPer(nomefile));
+            importatore.setValidazione(true);
+            temp = importatore.importa(nomefile);
             
-            //legge la prima riga di intestazione
-            br.readLine(); 
-
-            //ciclo di lettura linee
-            while ((line = br.readLine()) != null) { 
-
-                //creazione contatto temporaneo
-                Contatto c = new Contatto();
-                
-                String[] fields = line.split(";", -1); // Usa -1 per mantenere i campi vuoti
-
-                //settaggio dati contatto
-                c.setCognome(fields[0]);
-                c.setNome(fields[1]);
-                c.setNumero1(fields[2].isEmpty() ? "" : fields[2]);
-                c.setNumero2(fields[3].isEmpty() ? "" : fields[3]);
-                c.setNumero3(fields[4].isEmpty() ? "" : fields[4]);
-                c.setEmail1(fields[5].isEmpty() ? "" : fields[5]);
-                c.setEmail2(fields[6].isEmpty() ? "" : fields[6]);
-                c.setEmail3(fields[7].isEmpty() ? "" : fields[7]);
-
-                //aggiunta contatto alla rubrica importata
-                temp.aggiungiContatto(c); 
-
-
-            }
         } catch (IOException e) /*Cattura eccezione*/{
 
             System.err.println("Errore durante la lettura del file");
@@ -225,11 +745,47 @@ public class Rubrica {
 
     }
     
+    /**
+     * @brief Salva la rubrica in uno snapshot binario
+     * 
+     * Lo snapshot contiene i contatti già ordinati e si carica molto più velocemente di un file CSV,
+     * che resta il formato di scambio (vedi {@link SnapshotRubrica}).
+     * 
+     * @param nomefile Il nome del file dello snapshot
+     * 
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    public void salvaSnapshot(String nomefile) throws IOException{
+        
+        new SnapshotRubrica().salva(contactList, nomefile);
+        
+    }
+    
+    /**
+     * @brief Carica una rubrica da uno snapshot binario
+     * 
+     * I contatti dello snapshot sono già ordinati e senza omonimi: vengono caricati senza riordinarli.
+     * 
+     * @param nomefile Il nome del file dello snapshot
+     * 
+     * @return La rubrica caricata
+     * 
+     * @throws IOException Eccezione lanciata se il file non può essere letto o non è uno snapshot valido
+     */
+    public static Rubrica caricaSnapshot(String nomefile) throws IOException{
+        
+        Rubrica temp = new Rubrica();
+        temp.caricaContattiOrdinati(SnapshotRubrica.carica(nomefile));
+        return temp;
+        
+    }
+    
     /**
      * @brief Esporta la rubrica intera
      *  
      * Si richiama questo metodo quando l'utente preme sul bottone corrispondente
      * e si determina non solo la locazione del file ma anche la sua estensione
+     * La scrittura, codificata in UTF-8, è affidata a {@link EsportatoreRubrica}
      * 
      * @param nomefile Il nome del file su cui esportare la rubrica
      * 
@@ -237,53 +793,15 @@ public class Rubrica {
      * 
      * @post Viene creato sul computer un file contenente la rubrica 
      * 
+     * @return Il numero di contatti esportati
      * 
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file, 
+     *                     che a differenza di {@code PrintWriter} non vengono ignorati
      */
-    public void esportaRubrica(String nomefile){
-        //Try per creazione del file e inizializzazione oggetto di tipo PrintWriter
-     try(PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(nomefile)))) {   
-            
-            //Stampa su file della seguente linea
-            pw.println("RUBRICA");
-            pw.println("COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3");   
-            
-            //ripetizione ciclo per ogni contatto presente nella lista
-            for(Contatto c : contactList){
-                
-                //scrittura su linea del file dei dati del contatto
-                pw.print(c.getCognome());
-                pw.append(';');
-                
-                pw.print(c.getNome());
-                pw.append(';');          
-                
-                
-                String[] numeri = c.getNumeri();
-                
-                pw.print(numeri[0]);
-                pw.append(';'); 
-                pw.print(numeri[1]);
-                pw.append(';'); 
-                pw.print(numeri[2]);
-                pw.append(';'); 
-                
-                String[] emails = c.getEmails();
-                
-                pw.print(emails[0]);
-                pw.append(';'); 
-                pw.print(emails[1]);
-                pw.append(';'); 
-                
-                pw.println(emails[2]);
-                
-            }
-            
-            
-        }catch (IOException e) /*Cattura eccezione*/{
+    public long esportaRubrica(String nomefile) throws IOException{
         
-        System.err.println("Errore durante la scrittura del file");
-        Avviso.errore("Errore", "Errore esportazione", "Errore durante la scrittura del file");
-        }
+        //scrittura dei contatti tramite l'esportatore
+        return new EsportatoreRubrica().esporta(contactList, nomefile);
         
     }
     
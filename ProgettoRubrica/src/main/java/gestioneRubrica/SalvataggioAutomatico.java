@@ -0,0 +1,276 @@
+/**
+ * @file SalvataggioAutomatico.java
+ *
+ * @brief Salvataggio automatico in background della rubrica, con accorpamento delle modifiche ravvicinate.
+ *
+ * Ogni modifica della rubrica la segna come da salvare e, se non ce n'è già uno in attesa, pianifica un salvataggio.
+ * Tra l'inizio di due salvataggi passa almeno l'intervallo configurato: tutte le modifiche effettuate
+ * nel frattempo vengono salvate insieme, quindi anche durante una modifica intensa la rubrica non viene
+ * scritta per intero più spesso di una volta per intervallo. Nel frattempo le singole modifiche restano
+ * registrate nel giornale di {@link PersistenzaRubrica}.
+ *
+ * Il salvataggio copia i campi dei contatti sul thread che modifica la rubrica (per l'applicazione,
+ * il thread dell'interfaccia grafica) e scrive lo snapshot su un thread dedicato, senza bloccare l'interfaccia.
+ * Alla chiusura le modifiche non ancora salvate vengono scritte prima di terminare.
+ *
+ * @see gestioneRubrica.PersistenzaRubrica
+ */
+
+package gestioneRubrica;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class SalvataggioAutomatico implements OsservatoreRubrica, Closeable {
+
+    /**
+     * Tempo massimo di attesa, in secondi, del salvataggio in corso durante la chiusura.
+     */
+    private static final long ATTESA_CHIUSURA = 60;
+
+    /**
+     * Il salvataggio della rubrica su file.
+     */
+    private final PersistenzaRubrica persistenza;
+
+    /**
+     * Intervallo minimo, in millisecondi, tra l'inizio di due salvataggi.
+     */
+    private final long intervallo;
+
+    /**
+     * Esecutore del thread che modifica la rubrica, su cui vengono copiati i contatti.
+     */
+    private final Executor threadRubrica;
+
+    /**
+     * Thread dedicato alla pianificazione e alla scrittura dei salvataggi.
+     */
+    private final ScheduledThreadPoolExecutor esecutore;
+
+    /**
+     * La rubrica osservata.
+     */
+    private Rubrica rubrica;
+
+    /**
+     * Indica che la rubrica è stata modificata dopo l'inizio dell'ultimo salvataggio.
+     */
+    private boolean modificata;
+
+    /**
+     * Indica che un salvataggio è già stato pianificato.
+     */
+    private boolean pianificato;
+
+    /**
+     * Indica che un salvataggio è iniziato e non è ancora stato scritto.
+     */
+    private boolean inCorso;
+
+    /**
+     * Indica che il salvataggio automatico è stato chiuso.
+     */
+    private boolean chiuso;
+
+    /**
+     * Istante di inizio dell'ultimo salvataggio, in millisecondi.
+     */
+    private long ultimoSalvataggio;
+
+    /**
+     * Numero di salvataggi completati.
+     */
+    private int salvataggi;
+
+    /**
+     * @brief Costruttore del salvataggio automatico di una rubrica.
+     *
+     * La compattazione durante la modifica della rubrica viene disattivata: gli snapshot vengono scritti
+     * solo da questo salvataggio, al più una volta per intervallo.
+     *
+     * @param persistenza Il salvataggio su file della rubrica, già aperto
+     * @param rubrica La rubrica da salvare, restituita da {@code persistenza}
+     * @param intervallo L'intervallo minimo, in millisecondi, tra l'inizio di due salvataggi
+     * @param threadRubrica L'esecutore del thread che modifica la rubrica (ad esempio {@code Platform::runLater})
+     */
+    public SalvataggioAutomatico(PersistenzaRubrica persistenza, Rubrica rubrica, long intervallo, Executor threadRubrica) {
+
+        this.persistenza = persistenza;
+        this.intervallo = intervallo;
+        this.threadRubrica = threadRubrica;
+        this.rubrica = rubrica;
+
+        //thread daemon: le modifiche non salvate vengono scritte da close, non impediscono la chiusura dell'applicazione
+        this.esecutore = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "rubrica-salvataggio");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.esecutore.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.ultimoSalvataggio = System.currentTimeMillis() - intervallo;
+
+        persistenza.setCompattazioneAutomatica(false);
+        rubrica.aggiungiOsservatore(this);
+    }
+
+    @Override
+    public void contattiAggiunti(Collection<Contatto> aggiunti) {
+        segnaModifica();
+    }
+
+    @Override
+    public void contattiRimossi(Collection<Contatto> rimossi) {
+        segnaModifica();
+    }
+
+    @Override
+    public void contattoModificato(String vecchioCognome, String vecchioNome, Contatto c) {
+        segnaModifica();
+    }
+
+    /**
+     * @brief Sostituisce la rubrica salvata con un'altra (ad esempio una rubrica importata).
+     *
+     * Come per gli altri salvataggi, i contatti vengono copiati sul thread chiamante e lo snapshot
+     * della nuova rubrica viene scritto sul thread dedicato; in caso di errore la rubrica resta da salvare.
+     *
+     * @param nuova La nuova rubrica da salvare
+     *
+     * @pre Il metodo deve essere invocato dal thread che modifica la rubrica
+     */
+    public void sostituisci(Rubrica nuova) {
+
+        synchronized (this) {
+            rubrica.rimuoviOsservatore(this);
+            rubrica = nuova;
+            rubrica.aggiungiOsservatore(this);
+            inCorso = true;
+        }
+
+        PersistenzaRubrica.Compattazione compattazione = persistenza.preparaSostituzione(nuova);
+        try {
+            esecutore.execute(() -> scrivi(compattazione));
+        } catch (RejectedExecutionException e) {
+            //salvataggio automatico chiuso: la rubrica resta da salvare
+            segnaModifica();
+        }
+    }
+
+    /**
+     * @brief Restituisce il numero di salvataggi completati.
+     *
+     * @return Il numero di snapshot scritti dal salvataggio automatico
+     */
+    public synchronized int getSalvataggi() {
+        return salvataggi;
+    }
+
+    /**
+     * @brief Salva le modifiche in sospeso e termina il salvataggio automatico.
+     *
+     * Attende la fine del salvataggio in corso e, se la rubrica contiene modifiche non ancora salvate,
+     * la salva per intero sul thread chiamante; infine chiude il giornale.
+     *
+     * @pre Il metodo deve essere invocato dal thread che modifica la rubrica
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura dei file
+     */
+    @Override
+    public void close() throws IOException {
+
+        synchronized (this) {
+            chiuso = true;
+        }
+
+        //i salvataggi pianificati vengono annullati, quello in scrittura viene atteso
+        esecutore.shutdown();
+        try {
+            esecutore.awaitTermination(ATTESA_CHIUSURA, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        boolean daSalvare;
+        synchronized (this) {
+            daSalvare = modificata || inCorso;
+            rubrica.rimuoviOsservatore(this);
+        }
+
+        try {
+            if (daSalvare)
+                persistenza.compatta();
+        } finally {
+            persistenza.close();
+        }
+    }
+
+    /**
+     * @brief Segna la rubrica come modificata e pianifica un salvataggio, se non ce n'è già uno in attesa.
+     */
+    private synchronized void segnaModifica() {
+
+        modificata = true;
+        if (pianificato || chiuso)
+            return;
+
+        //il salvataggio inizia non prima di un intervallo dall'inizio del precedente
+        pianificato = true;
+        long attesa = Math.max(0, ultimoSalvataggio + intervallo - System.currentTimeMillis());
+        esecutore.schedule(this::avviaSalvataggio, attesa, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @brief Avvia il salvataggio pianificato, chiedendo la copia dei contatti al thread che modifica la rubrica.
+     *
+     * Il thread del salvataggio non attende la copia: la scrittura viene accodata al termine della copia,
+     * così la chiusura dal thread dell'interfaccia non può restare in attesa di se stessa.
+     */
+    private void avviaSalvataggio() {
+
+        synchronized (this) {
+            pianificato = false;
+            if (!modificata || chiuso)
+                return;
+            modificata = false;
+            inCorso = true;
+            ultimoSalvataggio = System.currentTimeMillis();
+        }
+
+        threadRubrica.execute(() -> {
+            PersistenzaRubrica.Compattazione compattazione = persistenza.preparaCompattazione();
+            try {
+                esecutore.execute(() -> scrivi(compattazione));
+            } catch (RejectedExecutionException e) {
+                //salvataggio automatico chiuso nel frattempo: le modifiche vengono salvate da close
+            }
+        });
+    }
+
+    /**
+     * @brief Scrive lo snapshot di un salvataggio; in caso di errore la rubrica resta da salvare.
+     *
+     * @param compattazione Lo stato della rubrica copiato all'avvio del salvataggio
+     */
+    private void scrivi(PersistenzaRubrica.Compattazione compattazione) {
+
+        try {
+            persistenza.completaCompattazione(compattazione);
+            synchronized (this) {
+                salvataggi++;
+            }
+        } catch (IOException e) {
+            System.err.println("Errore durante il salvataggio automatico della rubrica: " + e.getMessage());
+            segnaModifica();
+        } finally {
+            synchronized (this) {
+                inCorso = false;
+            }
+        }
+    }
+}
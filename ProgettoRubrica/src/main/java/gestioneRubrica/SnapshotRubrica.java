@@ -0,0 +1,456 @@
+/**
+ * @file SnapshotRubrica.java
+ *
+ * @brief Salvataggio e caricamento della rubrica in un formato binario versionato.
+ *
+ * A differenza del file CSV, che resta il formato di scambio, lo snapshot contiene i contatti già ordinati
+ * e già suddivisi nei campi: il caricamento legge il file con un'unica lettura, ne verifica il checksum
+ * e crea i contatti senza cercare separatori e senza riordinarli.
+ *
+ * Struttura del file (interi in big endian):
+ * - intestazione: i byte "RUBRSNAP", la versione del formato (int) e il numero di contatti (int);
+ * - dati: un record per contatto, nell'ordine della rubrica, con gli otto campi (cognome, nome, tre numeri
+ *   e tre indirizzi email) codificati in UTF-8, ciascuno preceduto dalla propria lunghezza in byte
+ *   su 1-5 byte (7 bit per byte, il bit più alto indica che la lunghezza prosegue nel byte successivo);
+ * - indice: la posizione (long) di ogni record, relativa all'inizio dei dati, per l'accesso diretto;
+ * - checksum: il CRC32 (long) di tutti i byte precedenti.
+ *
+ * Il file viene scritto in un file temporaneo e sostituisce quello precedente solo a scrittura completata,
+ * quindi un'interruzione non lascia mai uno snapshot incompleto.
+ *
+ * @see gestioneRubrica.Rubrica
+ */
+
+package gestioneRubrica;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class SnapshotRubrica {
+
+    /**
+     * Byte iniziali che identificano uno snapshot della rubrica.
+     */
+    static final byte[] FIRMA = "RUBRSNAP".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Versione del formato scritta da questa classe.
+     */
+    static final int VERSIONE = 1;
+
+    /**
+     * Dimensione dell'intestazione: firma, versione e numero di contatti.
+     */
+    static final int DIMENSIONE_INTESTAZIONE = 16;
+
+    /**
+     * Dimensione del buffer di scrittura (64 KB).
+     */
+    private static final int DIMENSIONE_BUFFER = 64 * 1024;
+
+    /**
+     * Buffer di scrittura, riutilizzato per tutti i record.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Checksum dei byte scritti.
+     */
+    private final CRC32 crc;
+
+    /**
+     * Canale del file in scrittura.
+     */
+    private FileChannel canale;
+
+    /**
+     * @brief Costruttore di uno snapshot.
+     */
+    public SnapshotRubrica() {
+        this.buffer = ByteBuffer.allocate(DIMENSIONE_BUFFER);
+        this.crc = new CRC32();
+    }
+
+    /**
+     * @brief Salva una lista di contatti in uno snapshot.
+     *
+     * @param contatti I contatti da salvare, già ordinati e senza omonimi
+     * @param nomefile Il nome del file dello snapshot
+     *
+     * @pre contatti è nell'ordine della rubrica (vedi {@code Contatto.compareTo})
+     *
+     * @post Il file contiene lo snapshot completo; un file già esistente viene sostituito solo a scrittura completata
+     *
+     * @return Il checksum dello snapshot, che lo identifica (vedi {@code leggiChecksum})
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    public long salva(List<Contatto> contatti, String nomefile) throws IOException {
+        return salva(copiaCampi(contatti), nomefile);
+    }
+
+    /**
+     * @brief Copia i campi di una lista di contatti, nell'ordine in cui vengono scritti nello snapshot.
+     *
+     * La copia non cambia se i contatti vengono modificati in seguito (ad esempio rinominati):
+     * lo snapshot può quindi essere scritto da un altro thread mentre la rubrica continua a cambiare.
+     *
+     * @param contatti I contatti da copiare
+     *
+     * @return Gli otto campi di ogni contatto (cognome, nome, tre numeri e tre indirizzi email), uno dopo l'altro
+     */
+    static String[] copiaCampi(List<Contatto> contatti) {
+
+        String[] campi = new String[contatti.size() * LettoreCSV.NUMERO_CAMPI];
+        int i = 0;
+        for (Contatto c : contatti) {
+            String[] numeri = c.getNumeri();
+            String[] emails = c.getEmails();
+            campi[i++] = c.getCognome();
+            campi[i++] = c.getNome();
+            campi[i++] = numeri[0];
+            campi[i++] = numeri[1];
+            campi[i++] = numeri[2];
+            campi[i++] = emails[0];
+            campi[i++] = emails[1];
+            campi[i++] = emails[2];
+        }
+        return campi;
+    }
+
+    /**
+     * @brief Salva in uno snapshot i campi copiati da {@code copiaCampi}.
+     *
+     * @param campi Gli otto campi di ogni contatto, nell'ordine della rubrica e senza omonimi
+     * @param nomefile Il nome del file dello snapshot
+     *
+     * @post Il file contiene lo snapshot completo; un file già esistente viene sostituito solo a scrittura completata
+     *
+     * @return Il checksum dello snapshot, che lo identifica (vedi {@code leggiChecksum})
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    long salva(String[] campi, String nomefile) throws IOException {
+
+        Path destinazione = Paths.get(nomefile).toAbsolutePath();
+        Path temporaneo = destinazione.resolveSibling(destinazione.getFileName() + ".tmp");
+        int numero = campi.length / LettoreCSV.NUMERO_CAMPI;
+        long[] posizioni = new long[numero];
+        long checksum;
+
+        buffer.clear();
+        crc.reset();
+
+        try (FileChannel fc = FileChannel.open(temporaneo,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            canale = fc;
+
+            //intestazione
+            buffer.put(FIRMA);
+            buffer.putInt(VERSIONE);
+            buffer.putInt(numero);
+
+            //dati: un record per contatto
+            long posizione = 0;
+            for (int i = 0; i < numero; i++) {
+
+                posizioni[i] = posizione;
+                for (int campo = i * LettoreCSV.NUMERO_CAMPI; campo < (i + 1) * LettoreCSV.NUMERO_CAMPI; campo++)
+                    posizione += scriviCampo(campi[campo]);
+            }
+
+            //indice delle posizioni dei record
+            for (long p : posizioni) {
+                riserva(Long.BYTES);
+                buffer.putLong(p);
+            }
+
+            //checksum di tutti i byte precedenti
+            svuota();
+            checksum = crc.getValue();
+            buffer.putLong(checksum);
+            svuota();
+
+            fc.force(false);
+
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaneo);
+            throw e;
+        } finally {
+            canale = null;
+        }
+
+        try {
+            Files.move(temporaneo, destinazione, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) { //file system senza sostituzione atomica
+            Files.move(temporaneo, destinazione, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return checksum;
+    }
+
+    /**
+     * @brief Carica i contatti di uno snapshot.
+     *
+     * Il file viene letto con un'unica lettura e verificato tramite il checksum prima di creare i contatti,
+     * che sono già ordinati: cognomi e nomi ripetuti condividono un'unica stringa.
+     *
+     * @param nomefile Il nome del file dello snapshot
+     *
+     * @return I contatti dello snapshot, nell'ordine della rubrica
+     *
+     * @throws IOException Eccezione lanciata se il file non può essere letto, non è uno snapshot,
+     *         ha una versione non supportata o è danneggiato
+     */
+    public static List<Contatto> carica(String nomefile) throws IOException {
+
+        byte[] dati = leggiFile(Paths.get(nomefile));
+        ByteBuffer file = ByteBuffer.wrap(dati);
+        int numero = verifica(file, dati.length);
+
+        List<Contatto> contatti = new ArrayList<>(numero);
+        PoolStringhe pool = new PoolStringhe();
+        String[] campi = new String[LettoreCSV.NUMERO_CAMPI];
+        String[] chiavi = new String[2]; //chiavi normalizzate condivise di cognome e nome, o null
+        int pos = DIMENSIONE_INTESTAZIONE;
+        int fineDati = dati.length - Long.BYTES - numero * Long.BYTES;
+
+        for (int i = 0; i < numero; i++) {
+
+            for (int campo = 0; campo < campi.length; campo++) {
+
+                //lettura della lunghezza del campo
+                int n = 0;
+                int spostamento = 0;
+                byte b;
+                do {
+                    if (pos >= fineDati)
+                        throw new IOException("Snapshot danneggiato: record incompleto");
+                    b = dati[pos++];
+                    n |= (b & 0x7F) << spostamento;
+                    spostamento += 7;
+                } while (b < 0);
+
+                if (n < 0 || n > fineDati - pos)
+                    throw new IOException("Snapshot danneggiato: record incompleto");
+
+                int p = campo < 2 && n > 0 ? pool.cerca(dati, pos, n) : -1; //cognome e nome tramite le stringhe canoniche
+                if (campo < 2)
+                    chiavi[campo] = p < 0 ? null : pool.getNormalizzata(p);
+
+                if (p >= 0)
+                    campi[campo] = pool.getValore(p);
+                else
+                    campi[campo] = n == 0 ? "" : new String(dati, pos, n, StandardCharsets.UTF_8);
+                pos += n;
+            }
+
+            Contatto c = new Contatto();
+            if (chiavi[0] != null)
+                c.impostaCognome(campi[0], chiavi[0]);
+            else
+                c.setCognome(campi[0]);
+            if (chiavi[1] != null)
+                c.impostaNome(campi[1], chiavi[1]);
+            else
+                c.setNome(campi[1]);
+            c.setNumero1(campi[2]);
+            c.setNumero2(campi[3]);
+            c.setNumero3(campi[4]);
+            c.setEmail1(campi[5]);
+            c.setEmail2(campi[6]);
+            c.setEmail3(campi[7]);
+            contatti.add(c);
+        }
+
+        return contatti;
+    }
+
+    /**
+     * @brief Verifica l'intestazione e il checksum di uno snapshot.
+     *
+     * @param file Il contenuto del file
+     * @param dimensione La dimensione del file
+     *
+     * @return Il numero di contatti dello snapshot
+     *
+     * @throws IOException Eccezione lanciata se il file non è uno snapshot, ha una versione non supportata o è danneggiato
+     */
+    static int verifica(ByteBuffer file, long dimensione) throws IOException {
+
+        int numero = verificaIntestazione(file, dimensione);
+
+        //checksum di tutti i byte che precedono quello memorizzato in fondo al file
+        CRC32 controllo = new CRC32();
+        ByteBuffer contenuto = file.duplicate();
+        contenuto.position(0);
+        contenuto.limit((int) Math.min(dimensione - Long.BYTES, Integer.MAX_VALUE));
+        controllo.update(contenuto);
+        if (controllo.getValue() != file.getLong((int) (dimensione - Long.BYTES)))
+            throw new IOException("Snapshot danneggiato: checksum non valido");
+
+        return numero;
+    }
+
+    /**
+     * @brief Verifica l'intestazione di uno snapshot, senza leggerne il contenuto.
+     *
+     * @param file Il contenuto del file, o la mappatura in memoria della sua parte iniziale
+     * @param dimensione La dimensione del file
+     *
+     * @return Il numero di contatti dello snapshot
+     *
+     * @throws IOException Eccezione lanciata se il file non è uno snapshot, ha una versione non supportata
+     *         o un numero di contatti incompatibile con la dimensione del file
+     */
+    static int verificaIntestazione(ByteBuffer file, long dimensione) throws IOException {
+
+        if (dimensione < DIMENSIONE_INTESTAZIONE + Long.BYTES)
+            throw new IOException("Il file non è uno snapshot della rubrica");
+
+        byte[] firma = new byte[FIRMA.length];
+        for (int i = 0; i < firma.length; i++)
+            firma[i] = file.get(i);
+        if (!Arrays.equals(firma, FIRMA))
+            throw new IOException("Il file non è uno snapshot della rubrica");
+
+        int versione = file.getInt(FIRMA.length);
+        if (versione != VERSIONE)
+            throw new IOException("Versione dello snapshot non supportata: " + versione);
+
+        int numero = file.getInt(FIRMA.length + Integer.BYTES);
+        if (numero < 0 || DIMENSIONE_INTESTAZIONE + (numero + 1L) * Long.BYTES > dimensione)
+            throw new IOException("Snapshot danneggiato: numero di contatti non valido");
+
+        return numero;
+    }
+
+    /**
+     * @brief Legge il checksum memorizzato in fondo a uno snapshot, senza verificarlo.
+     *
+     * Il checksum identifica il contenuto dello snapshot: il giornale delle modifiche lo usa
+     * per riconoscere lo snapshot a cui si riferiscono le proprie modifiche.
+     *
+     * @param nomefile Il nome del file dello snapshot
+     *
+     * @return Il checksum dello snapshot
+     *
+     * @throws IOException Eccezione lanciata se il file non può essere letto o è troppo corto
+     */
+    static long leggiChecksum(String nomefile) throws IOException {
+
+        try (FileChannel fc = FileChannel.open(Paths.get(nomefile), StandardOpenOption.READ)) {
+
+            if (fc.size() < DIMENSIONE_INTESTAZIONE + Long.BYTES)
+                throw new IOException("Il file non è uno snapshot della rubrica");
+
+            ByteBuffer checksum = ByteBuffer.allocate(Long.BYTES);
+            while (checksum.hasRemaining()) {
+                if (fc.read(checksum, fc.size() - Long.BYTES + checksum.position()) < 0)
+                    throw new IOException("Snapshot danneggiato: file troncato");
+            }
+            return checksum.getLong(0);
+        }
+    }
+
+    /**
+     * @brief Legge l'intero contenuto di un file con letture di blocchi.
+     *
+     * @param percorso Il percorso del file
+     *
+     * @return Il contenuto del file
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la lettura del file
+     */
+    private static byte[] leggiFile(Path percorso) throws IOException {
+
+        try (FileChannel fc = FileChannel.open(percorso, StandardOpenOption.READ)) {
+
+            long dimensione = fc.size();
+            if (dimensione > Integer.MAX_VALUE - 8)
+                throw new IOException("Snapshot troppo grande per essere caricato in memoria");
+
+            ByteBuffer contenuto = ByteBuffer.allocate((int) dimensione);
+            while (contenuto.hasRemaining()) {
+                if (fc.read(contenuto) < 0)
+                    throw new IOException("Snapshot danneggiato: file troncato");
+            }
+            return contenuto.array();
+        }
+    }
+
+    /**
+     * @brief Scrive un campo preceduto dalla sua lunghezza.
+     *
+     * @param s Il campo da scrivere
+     *
+     * @return Il numero di byte scritti
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    private int scriviCampo(String s) throws IOException {
+
+        byte[] campo = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+
+        riserva(5);
+        int scritti = 1;
+        int n = campo.length;
+        while (n >= 0x80) {
+            buffer.put((byte) (n | 0x80));
+            n >>>= 7;
+            scritti++;
+        }
+        buffer.put((byte) n);
+
+        //i campi più lunghi del buffer vengono scritti a più riprese
+        int da = 0;
+        while (da < campo.length) {
+            riserva(1);
+            int quanti = Math.min(buffer.remaining(), campo.length - da);
+            buffer.put(campo, da, quanti);
+            da += quanti;
+        }
+
+        return scritti + campo.length;
+    }
+
+    /**
+     * @brief Garantisce lo spazio per il numero di byte indicato, svuotando il buffer se necessario.
+     *
+     * @param byteNecessari Il numero di byte da scrivere
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    private void riserva(int byteNecessari) throws IOException {
+
+        if (buffer.remaining() < byteNecessari)
+            svuota();
+    }
+
+    /**
+     * @brief Scrive sul file il contenuto del buffer, aggiornando il checksum, e lo svuota.
+     *
+     * @throws IOException Eccezione per la gestione di errori durante la scrittura del file
+     */
+    private void svuota() throws IOException {
+
+        buffer.flip();
+        crc.update(buffer.array(), 0, buffer.limit());
+        while (buffer.hasRemaining())
+            canale.write(buffer);
+        buffer.clear();
+    }
+}
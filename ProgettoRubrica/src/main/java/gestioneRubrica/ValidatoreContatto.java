@@ -0,0 +1,187 @@
+/**
+ * @file ValidatoreContatto.java
+ *
+ * @brief Regole di validità dei nominativi e dei recapiti di un contatto, condivise dall'interfaccia e dall'importazione.
+ *
+ * Le regole sono quelle applicate all'aggiunta e alla modifica di un contatto:
+ * -il nome e il cognome, se presenti, iniziano con una lettera;
+ * -un numero di telefono, se presente, è composto da esattamente 10 cifre;
+ * -un indirizzo email, se presente, corrisponde all'espressione {@code ^[a-zA-Z-.0-9]+@[a-z]+[.]+[a-zA-Z]{2,}$}.
+ * L'indirizzo email viene controllato da una scansione scritta a mano, equivalente all'espressione regolare
+ * ma senza compilare pattern né creare oggetti: i metodi non hanno stato, quindi possono essere invocati
+ * contemporaneamente da più thread, come avviene durante l'importazione parallela.
+ *
+ * @see gestioneRubrica.ImportatoreRubrica
+ */
+
+package gestioneRubrica;
+
+public final class ValidatoreContatto {
+
+    /**
+     * Numero di cifre di un numero di telefono.
+     */
+    public static final int CIFRE_NUMERO = 10;
+
+    /**
+     * @brief Costruttore privato: la classe contiene solo metodi statici.
+     */
+    private ValidatoreContatto() {
+    }
+
+    /**
+     * @brief Controlla un numero di telefono.
+     *
+     * @param numero Il numero da controllare
+     *
+     * @pre numero non deve essere null
+     *
+     * @return {@code true} se il numero è vuoto o composto da esattamente 10 cifre, {@code false} altrimenti
+     */
+    public static boolean numeroValido(String numero) {
+
+        if (numero.isEmpty()) //numero non indicato
+            return true;
+
+        if (numero.length() != CIFRE_NUMERO)
+            return false;
+
+        for (int i = 0; i < CIFRE_NUMERO; i++) {
+            if (!Character.isDigit(numero.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @brief Controlla un indirizzo email.
+     *
+     * L'indirizzo è composto da una parte locale di lettere ASCII, cifre, '-' e '.', seguita da '@',
+     * da un dominio di lettere minuscole, da uno o più '.' e da almeno due lettere ASCII.
+     *
+     * @param email L'indirizzo da controllare
+     *
+     * @pre email non deve essere null
+     *
+     * @return {@code true} se l'indirizzo è vuoto o valido, {@code false} altrimenti
+     */
+    public static boolean emailValida(String email) {
+
+        if (email.isEmpty()) //indirizzo non indicato
+            return true;
+
+        int n = email.length();
+        int i = 0;
+
+        //parte locale, terminata dalla '@'
+        while (i < n && carattereLocale(email.charAt(i)))
+            i++;
+        if (i == 0 || i == n || email.charAt(i) != '@')
+            return false;
+        i++;
+
+        //dominio di lettere minuscole
+        int inizio = i;
+        while (i < n && email.charAt(i) >= 'a' && email.charAt(i) <= 'z')
+            i++;
+        if (i == inizio)
+            return false;
+
+        //uno o più punti
+        inizio = i;
+        while (i < n && email.charAt(i) == '.')
+            i++;
+        if (i == inizio)
+            return false;
+
+        //dominio di primo livello di almeno due lettere, fino alla fine dell'indirizzo
+        inizio = i;
+        while (i < n && letteraAscii(email.charAt(i)))
+            i++;
+        return i == n && i - inizio >= 2;
+    }
+
+    /**
+     * @brief Controlla un nominativo.
+     *
+     * @param nome Il nome da controllare
+     * @param cognome Il cognome da controllare
+     *
+     * @pre nome e cognome non devono essere null
+     *
+     * @return {@code true} se il nome e il cognome sono vuoti o iniziano con una lettera, {@code false} altrimenti
+     */
+    public static boolean nominativoValido(String nome, String cognome) {
+
+        if (!nome.isEmpty() && !Character.isLetter(nome.charAt(0))) //controllo primo carattere del nome
+            return false;
+        return cognome.isEmpty() || Character.isLetter(cognome.charAt(0)); //controllo primo carattere del cognome
+    }
+
+    /**
+     * @brief Controlla i recapiti di un contatto.
+     *
+     * @param numeri I numeri di telefono da controllare
+     * @param emails Gli indirizzi email da controllare
+     *
+     * @pre numeri, emails e i loro elementi non devono essere null
+     *
+     * @return {@code true} se tutti i numeri e gli indirizzi sono validi, {@code false} altrimenti
+     */
+    public static boolean recapitiValidi(String[] numeri, String[] emails) {
+
+        for (String numero : numeri) {
+            if (!numeroValido(numero))
+                return false;
+        }
+        for (String email : emails) {
+            if (!emailValida(email))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @brief Controlla un contatto.
+     *
+     * Oltre al nominativo e ai recapiti viene controllato che almeno uno tra nome e cognome sia presente,
+     * condizione che l'interfaccia garantisce disabilitando la conferma.
+     *
+     * @param c Il contatto da controllare
+     *
+     * @pre c non deve essere null
+     *
+     * @return {@code true} se il contatto è valido, {@code false} altrimenti
+     */
+    public static boolean valido(Contatto c) {
+
+        String nome = c.getNome();
+        String cognome = c.getCognome();
+        if (nome.isEmpty() && cognome.isEmpty())
+            return false;
+
+        return nominativoValido(nome, cognome) && recapitiValidi(c.getNumeri(), c.getEmails());
+    }
+
+    /**
+     * @brief Indica se un carattere può comparire nella parte locale di un indirizzo email.
+     *
+     * @param c Il carattere da controllare
+     *
+     * @return {@code true} per lettere ASCII, cifre, '-' e '.', {@code false} altrimenti
+     */
+    private static boolean carattereLocale(char c) {
+        return letteraAscii(c) || (c >= '0' && c <= '9') || c == '-' || c == '.';
+    }
+
+    /**
+     * @brief Indica se un carattere è una lettera ASCII.
+     *
+     * @param c Il carattere da controllare
+     *
+     * @return {@code true} per le lettere da 'a' a 'z' e da 'A' a 'Z', {@code false} altrimenti
+     */
+    private static boolean letteraAscii(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
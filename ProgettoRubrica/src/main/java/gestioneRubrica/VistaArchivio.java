@@ -0,0 +1,242 @@
+/**
+ * @file VistaArchivio.java
+ *
+ * @brief Lista osservabile in sola lettura dei contatti di un archivio, letti a pagine solo quando vengono richiesti.
+ *
+ * La vista può essere mostrata da una {@code TableView} al posto della lista dei contatti della rubrica:
+ * la tabella conosce il numero totale di righe tramite {@code size} ma richiede solo le righe visibili,
+ * quindi vengono letti dall'archivio solo i contatti delle pagine mostrate.
+ *
+ * Le pagine lette più di recente vengono mantenute in una piccola cache (LRU): durante lo scorrimento
+ * la tabella richiede più volte le stesse righe, che restano quindi gli stessi oggetti finché la loro pagina
+ * è in cache. Quando la tabella passa a una nuova pagina, la pagina successiva nella direzione di scorrimento
+ * viene letta in anticipo in background, così lo scorrimento non attende la lettura dall'archivio.
+ * L'occupazione dello heap dipende quindi dalla dimensione della cache e non dal numero di contatti.
+ *
+ * @see gestioneRubrica.ArchivioContatti
+ */
+
+package gestioneRubrica;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javafx.collections.ObservableListBase;
+
+public class VistaArchivio extends ObservableListBase<Contatto> {
+
+    /**
+     * Numero predefinito di contatti di una pagina.
+     */
+    public static final int DIMENSIONE_PAGINA = 256;
+
+    /**
+     * Numero predefinito di pagine mantenute in cache.
+     */
+    public static final int PAGINE_IN_CACHE = 16;
+
+    /**
+     * Thread condiviso dalle viste per la lettura anticipata delle pagine; termina quando resta inattivo.
+     */
+    private static final ThreadPoolExecutor PRECARICAMENTO = creaPrecaricamento();
+
+    /**
+     * L'archivio dei contatti.
+     */
+    private final ArchivioContatti archivio;
+
+    /**
+     * Numero di contatti di una pagina.
+     */
+    private final int dimensionePagina;
+
+    /**
+     * Esecutore della lettura anticipata delle pagine.
+     */
+    private final Executor precaricamento;
+
+    /**
+     * Pagine in cache, dalla meno recentemente usata; l'accesso è sincronizzato sulla mappa stessa.
+     */
+    private final LinkedHashMap<Integer, Contatto[]> pagine;
+
+    /**
+     * Pagine in corso di lettura anticipata.
+     */
+    private final Set<Integer> inLettura = new HashSet<>();
+
+    /**
+     * Ultima pagina richiesta, per individuare la direzione di scorrimento.
+     */
+    private int ultimaPagina = -1;
+
+    /**
+     * Direzione di scorrimento: 1 verso il fondo della lista, -1 verso l'inizio.
+     */
+    private int direzione = 1;
+
+    /**
+     * Numero di pagine lette dall'archivio.
+     */
+    private int pagineLette;
+
+    /**
+     * @brief Costruttore della vista di un archivio, con pagine e cache di dimensione predefinita.
+     *
+     * @param archivio L'archivio da cui leggere i contatti
+     */
+    public VistaArchivio(ArchivioContatti archivio) {
+        this(archivio, DIMENSIONE_PAGINA, PAGINE_IN_CACHE, PRECARICAMENTO);
+    }
+
+    /**
+     * @brief Costruttore della vista di un archivio.
+     *
+     * @param archivio L'archivio da cui leggere i contatti
+     * @param dimensionePagina Il numero di contatti di una pagina
+     * @param pagineInCache Il numero massimo di pagine mantenute in cache
+     * @param precaricamento L'esecutore della lettura anticipata delle pagine
+     *
+     * @pre dimensionePagina > 0, pagineInCache > 1
+     */
+    public VistaArchivio(ArchivioContatti archivio, int dimensionePagina, int pagineInCache, Executor precaricamento) {
+
+        this.archivio = archivio;
+        this.dimensionePagina = dimensionePagina;
+        this.precaricamento = precaricamento;
+        this.pagine = new LinkedHashMap<Integer, Contatto[]>(pagineInCache * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Contatto[]> piuVecchia) {
+                return size() > pagineInCache;
+            }
+        };
+    }
+
+    @Override
+    public Contatto get(int indice) {
+
+        if (indice < 0 || indice >= archivio.dimensione())
+            throw new IndexOutOfBoundsException("Indice: " + indice + ", dimensione: " + archivio.dimensione());
+
+        int numero = indice / dimensionePagina;
+        Contatto[] pagina;
+        int daLeggere = -1;
+
+        synchronized (pagine) {
+
+            pagina = pagine.get(numero);
+
+            //al cambio di pagina viene aggiornata la direzione di scorrimento e letta in anticipo la pagina successiva
+            if (numero != ultimaPagina) {
+                if (ultimaPagina >= 0)
+                    direzione = numero > ultimaPagina ? 1 : -1;
+                ultimaPagina = numero;
+
+                int successiva = numero + direzione;
+                if (successiva >= 0 && (long) successiva * dimensionePagina < archivio.dimensione()
+                        && !pagine.containsKey(successiva) && inLettura.add(successiva))
+                    daLeggere = successiva;
+            }
+        }
+
+        if (daLeggere >= 0)
+            precarica(daLeggere);
+
+        //pagina non in cache: viene letta dal thread chiamante
+        if (pagina == null)
+            pagina = leggiPagina(numero);
+
+        return pagina[indice - numero * dimensionePagina];
+    }
+
+    @Override
+    public int size() {
+        return archivio.dimensione();
+    }
+
+    /**
+     * @brief Restituisce il numero di pagine lette dall'archivio, comprese quelle lette in anticipo.
+     *
+     * @return Il numero di pagine lette
+     */
+    public int getPagineLette() {
+        synchronized (pagine) {
+            return pagineLette;
+        }
+    }
+
+    /**
+     * @brief Legge una pagina dall'archivio e la inserisce in cache.
+     *
+     * Se nel frattempo la stessa pagina è stata inserita da un altro thread, viene restituita quella in cache,
+     * così le righe di una pagina restano gli stessi oggetti.
+     *
+     * @param numero Il numero della pagina
+     *
+     * @return I contatti della pagina
+     */
+    private Contatto[] leggiPagina(int numero) {
+
+        int inizio = numero * dimensionePagina;
+        Contatto[] letta = new Contatto[Math.min(dimensionePagina, archivio.dimensione() - inizio)];
+        for (int i = 0; i < letta.length; i++)
+            letta[i] = archivio.get(inizio + i);
+
+        synchronized (pagine) {
+            pagineLette++;
+            Contatto[] presente = pagine.get(numero);
+            if (presente != null)
+                return presente;
+            pagine.put(numero, letta);
+            return letta;
+        }
+    }
+
+    /**
+     * @brief Legge in anticipo una pagina in background.
+     *
+     * @param numero Il numero della pagina
+     */
+    private void precarica(int numero) {
+
+        try {
+            precaricamento.execute(() -> {
+                try {
+                    leggiPagina(numero);
+                } catch (RuntimeException e) {
+                    //archivio chiuso o danneggiato: l'errore viene segnalato dalla lettura sul thread della tabella
+                } finally {
+                    synchronized (pagine) {
+                        inLettura.remove(numero);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (pagine) {
+                inLettura.remove(numero);
+            }
+        }
+    }
+
+    /**
+     * @brief Crea il thread condiviso per la lettura anticipata delle pagine.
+     *
+     * @return L'esecutore, con un solo thread daemon che termina dopo alcuni secondi di inattività
+     */
+    private static ThreadPoolExecutor creaPrecaricamento() {
+
+        ThreadPoolExecutor esecutore = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "rubrica-precaricamento");
+            thread.setDaemon(true);
+            return thread;
+        });
+        esecutore.allowCoreThreadTimeOut(true);
+        return esecutore;
+    }
+}
@@ -0,0 +1,57 @@
+package gestioneRubricaTest;
+
+import gestioneRubrica.ArchivioColonnare;
+import gestioneRubrica.Contatto;
+import gestioneRubrica.Rubrica;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test dell'archivio compatto ArchivioColonnare.
+ */
+public class ArchivioColonnareTest {
+
+    @Test
+    void testColonneERipristino() {
+
+        System.out.println("ArchivioColonnare Test");
+
+        // rubrica con campi vuoti, caratteri non ASCII e un campo più lungo di 127 byte
+        Rubrica rubrica = new Rubrica();
+        StringBuilder lungo = new StringBuilder();
+        for (int i = 0; i < 50; i++)
+            lungo.append("àb");
+        for (int i = 0; i < 3000; i++) {
+            Contatto c = new Contatto();
+            c.setCognome("Cognome" + i);
+            c.setNome(i % 2 == 0 ? "Nicolò" : "");
+            c.setNumero2(Integer.toString(i));
+            c.setEmail3(i == 7 ? lungo.toString() : "");
+            rubrica.aggiungiContatto(c);
+        }
+
+        ArchivioColonnare archivio = new ArchivioColonnare();
+        for (Contatto c : rubrica.getContactList())
+            archivio.aggiungi(c);
+        archivio.compatta();
+        assertEquals(3000, archivio.dimensione());
+
+        // ogni contatto letto dall'archivio coincide con quello della rubrica, nello stesso ordine
+        for (int i = 0; i < archivio.dimensione(); i++) {
+            Contatto atteso = rubrica.getContactList().get(i);
+            Contatto letto = archivio.get(i);
+            assertEquals(atteso, letto);
+            assertEquals(atteso.getCognome(), archivio.getCognome(i));
+            assertEquals(atteso.getNome(), archivio.getNome(i));
+            assertArrayEquals(atteso.getNumeri(), letto.getNumeri());
+            assertArrayEquals(atteso.getEmails(), letto.getEmails());
+        }
+
+        // ricerca binaria di un nominativo e ricerca per prefisso, come nella consultazione
+        assertEquals(rubrica.getContactList().indexOf(rubrica.ricercaContatti("cognome7").getContactList().get(0)),
+                archivio.cerca("", "Cognome7"));
+        assertEquals(-1, archivio.cerca("Mario", "Cognome7"));
+        assertEquals(rubrica.ricercaContatti("cognome12").getContactList(), archivio.cercaPrefisso("cognome12", 3000));
+        assertThrows(IndexOutOfBoundsException.class, () -> archivio.get(3000));
+    }
+}
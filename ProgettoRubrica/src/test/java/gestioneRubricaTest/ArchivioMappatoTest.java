@@ -0,0 +1,101 @@
+package gestioneRubricaTest;
+
+import gestioneRubrica.ArchivioMappato;
+import gestioneRubrica.Contatto;
+import gestioneRubrica.Rubrica;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test dell'archivio mappato in memoria ArchivioMappato.
+ */
+public class ArchivioMappatoTest {
+
+    // Nome del file temporaneo usato dai test
+    private final String nomefile = "rubrica_mappata_test.snapshot";
+
+    @AfterEach
+    void tearDown() throws Exception {
+        // Eliminazione del file di test temporaneo
+        Files.deleteIfExists(Paths.get(nomefile));
+    }
+
+    @Test
+    void testLetturaDaSnapshot() throws Exception {
+
+        System.out.println("ArchivioMappato Test");
+
+        // rubrica con campi vuoti, caratteri non ASCII e un campo più lungo di 127 byte
+        Rubrica rubrica = new Rubrica();
+        StringBuilder lungo = new StringBuilder();
+        for (int i = 0; i < 50; i++)
+            lungo.append("àb");
+        for (int i = 0; i < 3000; i++) {
+            Contatto c = new Contatto();
+            c.setCognome(i % 10 == 0 ? "Şahin" + i : "Cognome" + i);
+            c.setNome(i % 2 == 0 ? "Nicolò" : "");
+            c.setNumero2(Integer.toString(i));
+            c.setEmail3(i == 7 ? lungo.toString() : "");
+            rubrica.aggiungiContatto(c);
+        }
+        rubrica.salvaSnapshot(nomefile);
+
+        try (ArchivioMappato archivio = ArchivioMappato.apri(nomefile)) {
+
+            archivio.verifica();
+            assertEquals(3000, archivio.dimensione());
+
+            // ogni contatto letto dal file coincide con quello della rubrica, nello stesso ordine
+            ObservableList<Contatto> vista = archivio.getVista();
+            assertEquals(3000, vista.size());
+            for (int i = 0; i < archivio.dimensione(); i++) {
+                Contatto atteso = rubrica.getContactList().get(i);
+                Contatto letto = vista.get(i);
+                assertEquals(atteso, letto);
+                assertEquals(atteso.getCognome(), archivio.getCognome(i));
+                assertEquals(atteso.getNome(), archivio.getNome(i));
+                assertArrayEquals(atteso.getNumeri(), letto.getNumeri());
+                assertArrayEquals(atteso.getEmails(), letto.getEmails());
+            }
+
+            // ricerca binaria di un nominativo e ricerca per prefisso senza accenti
+            assertEquals(rubrica.getContactList().indexOf(rubrica.ricercaContatti("cognome7").getContactList().get(0)),
+                    archivio.cerca("", "Cognome7"));
+            List<Contatto> trovati = archivio.cercaPrefisso("sahin", 1000);
+            assertEquals(rubrica.ricercaContatti("sahin").getContactList(), trovati);
+            assertEquals(10, archivio.cercaPrefisso("sahin", 10).size());
+            assertThrows(IndexOutOfBoundsException.class, () -> archivio.get(3000));
+        }
+    }
+
+    @Test
+    void testFileNonValido() throws Exception {
+
+        System.out.println("ArchivioMappato file non valido Test");
+
+        Rubrica rubrica = new Rubrica();
+        Contatto c = new Contatto();
+        c.setCognome("Rossi");
+        c.setNome("Mario");
+        rubrica.aggiungiContatto(c);
+        rubrica.salvaSnapshot(nomefile);
+
+        // il checksum non viene letto all'apertura, ma viene controllato da verifica
+        byte[] contenuto = Files.readAllBytes(Paths.get(nomefile));
+        contenuto[18] ^= 1;
+        Files.write(Paths.get(nomefile), contenuto);
+        try (ArchivioMappato archivio = ArchivioMappato.apri(nomefile)) {
+            assertThrows(IOException.class, archivio::verifica);
+        }
+
+        // un file CSV non è uno snapshot
+        rubrica.esportaRubrica(nomefile);
+        assertThrows(IOException.class, () -> ArchivioMappato.apri(nomefile));
+    }
+}
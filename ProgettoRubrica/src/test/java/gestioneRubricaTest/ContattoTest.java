@@ -132,4 +132,34 @@ public class ContattoTest {
         //l'assert deve verificare che i contatti NON siano uguali, altrimenti stampa a video quel messaggio di errore
         assertFalse(contatto.equals(contatto2), "I contatti dovrebbero essere diversi.");
     }
+
+    @Test
+    void testCorrispondePrefisso() {
+        // Testiamo la corrispondenza per prefisso senza distinzione tra maiuscole e lettere accentate
+        contatto.setNome("Nicolò");
+        contatto.setCognome("Ðurić");
+
+        assertTrue(contatto.corrispondePrefisso("nicolo"));
+        assertTrue(contatto.corrispondePrefisso("ðuric"));
+        assertFalse(contatto.corrispondePrefisso("Nicolò"), "Il prefisso deve essere già normalizzato.");
+
+        // le chiavi devono essere ricalcolate quando cambia il nominativo
+        contatto.setNome("Élodie");
+        assertTrue(contatto.corrispondePrefisso("elo"));
+        assertFalse(contatto.corrispondePrefisso("nic"));
+    }
+
+    @Test
+    void testHashCode() {
+        // Testiamo che contatti uguali abbiano lo stesso codice hash e che il codice segua le modifiche
+        Contatto contatto2 = new Contatto();
+        contatto2.setNome("Marco");
+        contatto2.setCognome("Rossi");
+
+        contatto.setNome("Luca");
+        contatto.setCognome("Rossi");
+        contatto.hashCode();
+        contatto.setNome("Marco");
+        assertEquals(contatto2.hashCode(), contatto.hashCode());
+    }
 }
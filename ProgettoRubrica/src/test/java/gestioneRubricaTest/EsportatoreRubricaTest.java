@@ -0,0 +1,115 @@
+package gestioneRubricaTest;
+
+import gestioneRubrica.Contatto;
+import gestioneRubrica.EsportatoreRubrica;
+import gestioneRubrica.MonitorAvanzamento;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test dell'esportatore EsportatoreRubrica.
+ */
+public class EsportatoreRubricaTest {
+
+    // Nome del file temporaneo usato dai test
+    private final String nomefile = "rubrica_esportatore_test.csv";
+
+    @AfterEach
+    void tearDown() throws Exception {
+        // Eliminazione del file di test temporaneo
+        Files.deleteIfExists(Paths.get(nomefile));
+    }
+
+    @Test
+    void testEsportaUTF8() throws Exception {
+
+        System.out.println("EsportatoreRubrica Test");
+
+        Contatto contatto = new Contatto();
+        contatto.setNome("Nicolò");
+        contatto.setCognome("Şahin");
+        contatto.setEmail1("nicolo@example.com");
+
+        EsportatoreRubrica esportatore = new EsportatoreRubrica();
+        assertEquals(1, esportatore.esporta(Arrays.asList(contatto), nomefile));
+
+        // il file deve essere codificato in UTF-8 e i conteggi devono corrispondere al file scritto
+        List<String> lines = Files.readAllLines(Paths.get(nomefile), StandardCharsets.UTF_8);
+        assertEquals("Şahin;Nicolò;;;;nicolo@example.com;;", lines.get(2));
+        assertEquals(1, esportatore.getRigheScritte());
+        assertEquals(Files.size(Paths.get(nomefile)), esportatore.getByteScritti());
+    }
+
+    @Test
+    void testEsportaErrore() {
+
+        System.out.println("EsportatoreRubrica errore Test");
+
+        // l'errore di scrittura deve essere segnalato al chiamante
+        assertThrows(IOException.class,
+                () -> new EsportatoreRubrica().esporta(Arrays.asList(new Contatto()), "cartella_inesistente/rubrica.csv"));
+    }
+
+    @Test
+    void testEsportaAnnullata() throws Exception {
+
+        System.out.println("EsportatoreRubrica annullamento Test");
+
+        List<Contatto> contatti = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            Contatto c = new Contatto();
+            c.setCognome("Cognome" + i);
+            contatti.add(c);
+        }
+
+        // monitor che annulla l'esportazione alla prima segnalazione di avanzamento
+        MonitorAvanzamento monitor = new MonitorAvanzamento() {
+            private boolean annullato;
+
+            @Override
+            public void avanzamento(long righe, long lavoroSvolto, long lavoroTotale) {
+                assertEquals(20000, lavoroTotale);
+                annullato = true;
+            }
+
+            @Override
+            public boolean isAnnullato() {
+                return annullato;
+            }
+        };
+
+        EsportatoreRubrica esportatore = new EsportatoreRubrica();
+        esportatore.setMonitor(monitor);
+
+        // l'esportazione annullata non deve lasciare un file incompleto
+        assertThrows(CancellationException.class, () -> esportatore.esporta(contatti, nomefile));
+        assertFalse(Files.exists(Paths.get(nomefile)));
+
+        // l'esportazione annullata su un file esistente lo lascia invariato
+        byte[] precedente = "RUBRICA\nCOGNOME;NOME\nRossi;Mario;;;;;;\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(Paths.get(nomefile), precedente);
+        EsportatoreRubrica esportatore2 = new EsportatoreRubrica();
+        esportatore2.setMonitor(new MonitorAvanzamento() {
+            @Override
+            public void avanzamento(long righe, long lavoroSvolto, long lavoroTotale) {
+            }
+
+            @Override
+            public boolean isAnnullato() {
+                return true;
+            }
+        });
+        assertThrows(CancellationException.class, () -> esportatore2.esporta(contatti, nomefile));
+        assertArrayEquals(precedente, Files.readAllBytes(Paths.get(nomefile)));
+        assertFalse(Files.exists(Paths.get(nomefile + ".tmp")));
+    }
+}
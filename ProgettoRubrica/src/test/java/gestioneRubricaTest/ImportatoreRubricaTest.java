@@ -0,0 +1,320 @@
+package gestioneRubricaTest;
+
+import gestioneRubrica.ArchivioColonnare;
+import gestioneRubrica.Contatto;
+import gestioneRubrica.ImportatoreRubrica;
+import gestioneRubrica.MonitorAvanzamento;
+import gestioneRubrica.Rubrica;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del motore di importazione massiva ImportatoreRubrica.
+ */
+public class ImportatoreRubricaTest {
+
+    // Nome del file temporaneo usato dai test
+    private final String nomefile = "rubrica_importatore_test.csv";
+
+    @AfterEach
+    void tearDown() throws Exception {
+        // Eliminazione del file di test temporaneo
+        Files.deleteIfExists(Paths.get(nomefile));
+    }
+
+    @Test
+    void testImportaNonOrdinatoConDuplicati() throws Exception {
+
+        System.out.println("ImportatoreRubrica non ordinato Test");
+
+        try (PrintWriter writer = new PrintWriter(nomefile)) {
+            writer.println("RUBRICA");
+            writer.println("COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3");
+            writer.println("Rossi;Mario;1234567890;;;;;");
+            writer.println("Bianchi;Anna;;;;anna@example.com;;");
+            writer.println("Rossi;Mario;0987654321;;;;;");
+            writer.println("Verdi;Luca");
+        }
+
+        ImportatoreRubrica importatore = new ImportatoreRubrica();
+        Rubrica result = importatore.importa(nomefile);
+
+        // il duplicato deve essere scartato conservando la prima occorrenza, i contatti devono essere ordinati
+        assertEquals(4, importatore.getRigheLette());
+        assertEquals(1, importatore.getDuplicati());
+        assertFalse(importatore.isOrdinato());
+        assertEquals(3, result.getContactList().size());
+        assertEquals("Bianchi", result.getContactList().get(0).getCognome());
+        assertEquals("1234567890", result.getContactList().get(1).getNumeri()[0]);
+        assertEquals("", result.getContactList().get(2).getEmails()[2]);
+        assertTrue(result.contieneNominativo("Luca", "Verdi"));
+    }
+
+    @Test
+    void testImportaConValidazione() throws Exception {
+
+        System.out.println("ImportatoreRubrica validazione Test");
+
+        try (PrintWriter writer = new PrintWriter(nomefile)) {
+            writer.println("RUBRICA");
+            writer.println("COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3");
+            writer.println("Rossi;Mario;123;;;;;");
+            writer.println("Bianchi;Anna;;;;anna@example;;");
+            writer.println("Rossi;Mario;1234567890;;;;;");
+            writer.println("1Verdi;Luca");
+            writer.println("Neri;Sara;;;;sara@example.com;;");
+        }
+
+        // senza validazione tutti i contatti vengono accettati
+        ImportatoreRubrica importatore = new ImportatoreRubrica();
+        assertEquals(4, importatore.importa(nomefile).getContactList().size());
+        assertEquals(0, importatore.getNonValidi());
+
+        // i contatti non validi vengono scartati prima dei duplicati, anche nella lettura parallela
+        for (int thread = 1; thread <= 2; thread++) {
+            importatore = new ImportatoreRubrica(thread);
+            importatore.setValidazione(true);
+            Rubrica result = importatore.importa(nomefile);
+            assertEquals(5, importatore.getRigheLette());
+            assertEquals(3, importatore.getNonValidi());
+            assertEquals(0, importatore.getDuplicati());
+            assertEquals(2, result.getContactList().size());
+            assertEquals("1234567890", result.getContactList().get(1).getNumeri()[0]);
+        }
+    }
+
+    @Test
+    void testImportaRubricaEsportata() throws Exception {
+
+        System.out.println("ImportatoreRubrica esportata Test");
+
+        try (PrintWriter writer = new PrintWriter(nomefile)) {
+            writer.println("RUBRICA");
+            writer.println("COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3");
+            writer.println("Bianchi;Anna;;;;anna@example.com;;");
+            writer.println("Rossi;Mario;1234567890;;;;;");
+        }
+
+        Rubrica originale = new ImportatoreRubrica().importa(nomefile);
+        originale.esportaRubrica(nomefile);
+
+        // la rubrica esportata è già ordinata e non deve essere riordinata durante la reimportazione
+        ImportatoreRubrica importatore = new ImportatoreRubrica();
+        Rubrica result = importatore.importa(nomefile);
+
+        assertTrue(importatore.isOrdinato());
+        assertEquals(originale.getContactList(), result.getContactList());
+    }
+
+    @Test
+    void testImportaParalleloComeSequenziale() throws Exception {
+
+        System.out.println("ImportatoreRubrica parallelo Test");
+
+        // file non ordinato con duplicati esatti e nominativi che differiscono solo per maiuscole e minuscole
+        Random random = new Random(19);
+        try (PrintWriter writer = new PrintWriter(nomefile)) {
+            writer.println("RUBRICA");
+            writer.println("COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3");
+            for (int i = 0; i < 5000; i++) {
+                String cognome = "Cognome" + random.nextInt(300);
+                String nome = (random.nextBoolean() ? "nome" : "Nome") + random.nextInt(10);
+                writer.println(cognome + ";" + nome + ";" + i + ";;;;;");
+            }
+        }
+
+        ImportatoreRubrica sequenziale = new ImportatoreRubrica();
+        Rubrica attesa = sequenziale.importa(nomefile);
+
+        ImportatoreRubrica parallelo = new ImportatoreRubrica(4);
+        Rubrica result = parallelo.importa(nomefile);
+
+        // stessi contatti, nello stesso ordine e con le stesse occorrenze conservate
+        assertEquals(sequenziale.getRigheLette(), parallelo.getRigheLette());
+        assertEquals(sequenziale.getDuplicati(), parallelo.getDuplicati());
+        assertEquals(attesa.getContactList().size(), result.getContactList().size());
+        for (int i = 0; i < attesa.getContactList().size(); i++) {
+            Contatto c1 = attesa.getContactList().get(i);
+            Contatto c2 = result.getContactList().get(i);
+            assertEquals(c1, c2);
+            assertEquals(c1.getNumeri()[0], c2.getNumeri()[0]);
+        }
+    }
+
+    @Test
+    void testImportaArchivioComeRubrica() throws Exception {
+
+        System.out.println("ImportatoreRubrica archivio Test");
+
+        // file non ordinato con duplicati esatti, nominativi equivalenti e contatti non validi
+        Random random = new Random(23);
+        try (PrintWriter writer = new PrintWriter(nomefile, "UTF-8")) {
+            writer.println("RUBRICA");
+            writer.println("COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3");
+            for (int i = 0; i < 5000; i++) {
+                String cognome = i % 97 == 0 ? "" : (random.nextBoolean() ? "Cognome" : "cognomè") + random.nextInt(300);
+                String nome = (random.nextBoolean() ? "nome" : "Nome") + random.nextInt(10);
+                String numero = i % 50 == 0 ? "123" : String.format("%010d", i);
+                writer.println(cognome + ";" + nome + ";" + numero + ";;;;;");
+            }
+        }
+
+        ImportatoreRubrica rubrica = new ImportatoreRubrica();
+        rubrica.setValidazione(true);
+        Rubrica attesa = rubrica.importa(nomefile);
+
+        ImportatoreRubrica archivio = new ImportatoreRubrica();
+        archivio.setValidazione(true);
+        ArchivioColonnare result = archivio.importaArchivio(nomefile);
+
+        // stessi contatti, nello stesso ordine e con le stesse occorrenze conservate
+        assertEquals(rubrica.getRigheLette(), archivio.getRigheLette());
+        assertEquals(rubrica.getNonValidi(), archivio.getNonValidi());
+        assertEquals(rubrica.getDuplicati(), archivio.getDuplicati());
+        assertTrue(archivio.getDuplicati() > 0);
+        assertFalse(archivio.isOrdinato());
+        assertEquals(attesa.getContactList().size(), result.dimensione());
+        for (int i = 0; i < result.dimensione(); i++) {
+            Contatto c1 = attesa.getContactList().get(i);
+            Contatto c2 = result.get(i);
+            assertEquals(c1, c2);
+            assertEquals(c1.getNumeri()[0], c2.getNumeri()[0]);
+        }
+
+        // un file già ordinato non viene riordinato
+        attesa.esportaRubrica(nomefile);
+        assertEquals(attesa.getContactList().size(), archivio.importaArchivio(nomefile).dimensione());
+        assertTrue(archivio.isOrdinato());
+        assertEquals(0, archivio.getDuplicati());
+    }
+
+    @Test
+    void testImportaFileNonValido() throws Exception {
+
+        System.out.println("ImportatoreRubrica file non valido Test");
+
+        try (PrintWriter writer = new PrintWriter(nomefile)) {
+            writer.println("COGNOME;NOME");
+            writer.println("Rossi;Mario");
+        }
+
+        // un file che non inizia con "RUBRICA" produce una rubrica vuota
+        assertTrue(new ImportatoreRubrica().importa(nomefile).getContactList().isEmpty());
+    }
+
+    @Test
+    void testImportaAvanzamentoEAnnullamento() throws Exception {
+
+        System.out.println("ImportatoreRubrica avanzamento Test");
+
+        try (PrintWriter writer = new PrintWriter(nomefile)) {
+            writer.println("RUBRICA");
+            writer.println("COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3");
+            for (int i = 0; i < 20000; i++)
+                writer.println("Cognome" + i + ";Nome;" + i + ";;;;;");
+        }
+
+        // a importazione completata l'avanzamento deve coprire tutte le righe e tutti i byte del file
+        long dimensione = Files.size(Paths.get(nomefile));
+        AtomicLong righe = new AtomicLong();
+        AtomicLong svolto = new AtomicLong();
+        ImportatoreRubrica importatore = new ImportatoreRubrica(4);
+        importatore.setMonitor(new MonitorAvanzamento() {
+            @Override
+            public void avanzamento(long r, long lavoroSvolto, long lavoroTotale) {
+                righe.accumulateAndGet(r, Math::max);
+                svolto.accumulateAndGet(lavoroSvolto, Math::max);
+                assertEquals(dimensione, lavoroTotale);
+            }
+
+            @Override
+            public boolean isAnnullato() {
+                return false;
+            }
+        });
+        assertEquals(20000, importatore.importa(nomefile).getContactList().size());
+        assertEquals(20000, righe.get());
+        assertEquals(dimensione, svolto.get());
+
+        // un monitor che segnala l'annullamento interrompe l'importazione
+        ImportatoreRubrica annullato = new ImportatoreRubrica();
+        annullato.setMonitor(new MonitorAvanzamento() {
+            @Override
+            public void avanzamento(long r, long lavoroSvolto, long lavoroTotale) {
+            }
+
+            @Override
+            public boolean isAnnullato() {
+                return true;
+            }
+        });
+        assertThrows(CancellationException.class, () -> annullato.importa(nomefile));
+    }
+
+    @Test
+    void testImportaParalleloInterrottoAlPrimoErrore() throws Exception {
+
+        System.out.println("ImportatoreRubrica interruzione Test");
+
+        try (PrintWriter writer = new PrintWriter(nomefile)) {
+            writer.println("RUBRICA");
+            writer.println("COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3");
+            for (int i = 0; i < 200000; i++)
+                writer.println("Cognome" + i + ";Nome;" + i + ";;;;;");
+        }
+
+        // l'annullamento viene segnalato a una sola porzione: le altre devono interrompersi senza leggere il resto del file
+        AtomicBoolean primo = new AtomicBoolean(true);
+        AtomicLong righe = new AtomicLong();
+        ImportatoreRubrica importatore = new ImportatoreRubrica(4);
+        importatore.setMonitor(new MonitorAvanzamento() {
+            @Override
+            public void avanzamento(long r, long lavoroSvolto, long lavoroTotale) {
+                righe.accumulateAndGet(r, Math::max);
+            }
+
+            @Override
+            public boolean isAnnullato() {
+                return primo.getAndSet(false);
+            }
+        });
+        assertThrows(CancellationException.class, () -> importatore.importa(nomefile));
+        Thread.sleep(500); // tempo sufficiente a leggere l'intero file, se le altre porzioni proseguissero
+        assertTrue(righe.get() < 100000);
+
+        // lo stesso importatore può essere riusato dopo l'interruzione
+        importatore.setMonitor(null);
+        assertEquals(200000, importatore.importa(nomefile).getContactList().size());
+    }
+
+    @Test
+    void testImportaStringheCondivise() throws Exception {
+
+        System.out.println("ImportatoreRubrica stringhe condivise Test");
+
+        try (PrintWriter writer = new PrintWriter(nomefile, "UTF-8")) {
+            writer.println("RUBRICA");
+            writer.println("COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3");
+            for (int i = 0; i < 1000; i++)
+                writer.println("Rossi;Nicolò" + (i % 10) + ";" + i + ";;;;;");
+        }
+
+        ImportatoreRubrica importatore = new ImportatoreRubrica();
+        Rubrica result = importatore.importa(nomefile);
+
+        // i cognomi ripetuti devono essere la stessa istanza, senza alterare il contenuto dei contatti
+        assertEquals(10, result.getContactList().size());
+        assertSame(result.getContactList().get(0).getCognome(), result.getContactList().get(9).getCognome());
+        assertEquals("Nicolò9", result.getContactList().get(9).getNome());
+        assertTrue(importatore.getByteRisparmiati() > 0);
+        assertEquals(1, result.ricercaContatti("nicolo9").getContactList().size());
+    }
+}
@@ -0,0 +1,68 @@
+package gestioneRubricaTest;
+
+import gestioneRubrica.Contatto;
+import gestioneRubrica.LettoreCSV;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del lettore di file CSV LettoreCSV.
+ */
+public class LettoreCSVTest {
+
+    // Nome del file temporaneo usato dai test
+    private final String nomefile = "rubrica_lettore_test.csv";
+
+    @AfterEach
+    void tearDown() throws Exception {
+        // Eliminazione del file di test temporaneo
+        Files.deleteIfExists(Paths.get(nomefile));
+    }
+
+    @Test
+    void testLetturaConFinestraPiccola() throws Exception {
+
+        System.out.println("LettoreCSV Test");
+
+        // righe con terminatori Windows, caratteri accentati e righe più lunghe della finestra
+        String testo = "RUBRICA\r\n"
+                + "COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3\r\n"
+                + "Cibellis;Nicolò;1111111111;;;;;\r\n"
+                + "\r\n"
+                + "De Cesare;Christian;3333333333;;;chris@gmail.com;;\r\n"
+                + "Rossi;Mario";
+        Files.write(Paths.get(nomefile), testo.getBytes(StandardCharsets.UTF_8));
+
+        // la finestra di 8 byte obbliga a rileggere e ad ampliare la finestra più volte
+        try (LettoreCSV lettore = new LettoreCSV(nomefile, 8)) {
+
+            assertEquals("RUBRICA", lettore.leggiRiga());
+            assertEquals("COGNOME;NOME;NUMERO 1;NUMERO 2;NUMERO 3;EMAIL 1;EMAIL 2; EMAIL3", lettore.leggiRiga());
+
+            Contatto c1 = lettore.leggiContatto();
+            assertEquals("Cibellis", c1.getCognome());
+            assertEquals("Nicolò", c1.getNome());
+            assertEquals("1111111111", c1.getNumeri()[0]);
+            // i campi vuoti condividono la costante ""
+            assertSame("", c1.getNumeri()[1]);
+            assertSame("", c1.getEmails()[2]);
+
+            Contatto c2 = lettore.leggiContatto();
+            assertEquals("De Cesare", c2.getCognome());
+            assertEquals("chris@gmail.com", c2.getEmails()[0]);
+
+            // l'ultima riga, senza terminatore e con campi mancanti
+            Contatto c3 = lettore.leggiContatto();
+            assertEquals("Rossi", c3.getCognome());
+            assertEquals("Mario", c3.getNome());
+            assertEquals("", c3.getEmails()[2]);
+
+            assertNull(lettore.leggiContatto());
+            assertEquals(lettore.getDimensione(), lettore.getPosizione());
+        }
+    }
+}
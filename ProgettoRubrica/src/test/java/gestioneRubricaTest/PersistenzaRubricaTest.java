@@ -0,0 +1,157 @@
+package gestioneRubricaTest;
+
+import gestioneRubrica.Contatto;
+import gestioneRubrica.PersistenzaRubrica;
+import gestioneRubrica.Rubrica;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del salvataggio incrementale tramite snapshot e giornale delle modifiche.
+ */
+public class PersistenzaRubricaTest {
+
+    // Nomi dei file temporanei usati dai test
+    private final String nomeSnapshot = "rubrica_persistenza_test.snapshot";
+    private final String nomeGiornale = nomeSnapshot + ".giornale";
+
+    @AfterEach
+    void tearDown() throws Exception {
+        // Eliminazione dei file di test temporanei
+        Files.deleteIfExists(Paths.get(nomeSnapshot));
+        Files.deleteIfExists(Paths.get(nomeGiornale));
+    }
+
+    private static Contatto crea(String cognome, String nome) {
+        Contatto c = new Contatto();
+        c.setCognome(cognome);
+        c.setNome(nome);
+        return c;
+    }
+
+    @Test
+    void testRiaperturaConGiornale() throws Exception {
+
+        System.out.println("PersistenzaRubrica giornale Test");
+
+        PersistenzaRubrica persistenza = new PersistenzaRubrica(nomeSnapshot);
+        Rubrica rubrica = persistenza.apri();
+        assertTrue(rubrica.getContactList().isEmpty());
+
+        Contatto mario = crea("Rossi", "Mario");
+        Contatto luca = crea("Bianchi", "Luca");
+        rubrica.aggiungiContatto(mario);
+        rubrica.aggiungiContatti(Arrays.asList(luca, crea("Verdi", "Anna")));
+        rubrica.modificaNominativo(luca, "Luca", "Neri");
+
+        // la modifica di un solo recapito costa un record di poche decine di byte
+        long prima = persistenza.getDimensioneGiornale();
+        rubrica.modificaRecapiti(mario, new String[]{"1234567890", "", ""}, new String[]{"mario@gmail.com", "", ""});
+        assertTrue(persistenza.getDimensioneGiornale() - prima < 100);
+        rubrica.rimuoviContatto(Collections.singletonList(rubrica.getContactList().get(2)));
+        persistenza.close();
+
+        // alla riapertura il giornale viene riapplicato
+        PersistenzaRubrica riaperta = new PersistenzaRubrica(nomeSnapshot);
+        Rubrica caricata = riaperta.apri();
+        assertEquals(rubrica.getContactList(), caricata.getContactList());
+        assertEquals("Neri", caricata.getContactList().get(0).getCognome());
+        assertArrayEquals(new String[]{"1234567890", "", ""}, caricata.getContactList().get(1).getNumeri());
+        assertArrayEquals(new String[]{"mario@gmail.com", "", ""}, caricata.getContactList().get(1).getEmails());
+
+        // dopo la compattazione il giornale è vuoto e lo snapshot contiene tutte le modifiche
+        riaperta.compatta();
+        assertEquals(20, riaperta.getDimensioneGiornale());
+        riaperta.close();
+        assertEquals(rubrica.getContactList(), new PersistenzaRubrica(nomeSnapshot).apri().getContactList());
+    }
+
+    @Test
+    void testModificaContattoUnicoRecord() throws Exception {
+
+        System.out.println("PersistenzaRubrica modifica contatto Test");
+
+        PersistenzaRubrica persistenza = new PersistenzaRubrica(nomeSnapshot);
+        Rubrica rubrica = persistenza.apri();
+        Contatto mario = crea("Rossi", "Mario");
+        Contatto luca = crea("Bianchi", "Luca");
+        rubrica.aggiungiContatti(Arrays.asList(mario, luca));
+        String[] numeri = {"1234567890", "", ""};
+        String[] emails = {"", "", ""};
+
+        // nominativo e recapiti modificati separatamente: due record
+        long prima = persistenza.getDimensioneGiornale();
+        rubrica.modificaNominativo(luca, "Luca", "Neri");
+        rubrica.modificaRecapiti(luca, numeri, emails);
+        long separati = persistenza.getDimensioneGiornale() - prima;
+
+        // la stessa modifica con un'unica operazione: un solo record
+        prima = persistenza.getDimensioneGiornale();
+        assertTrue(rubrica.modificaContatto(mario, "Mario", "Gallo", numeri, emails));
+        long unica = persistenza.getDimensioneGiornale() - prima;
+        assertTrue(unica < separati);
+
+        // omonimia: il contatto non viene modificato
+        assertFalse(rubrica.modificaContatto(mario, "Luca", "Neri", new String[]{"", "", ""}, emails));
+        assertArrayEquals(numeri, mario.getNumeri());
+        persistenza.close();
+
+        Rubrica caricata = new PersistenzaRubrica(nomeSnapshot).apri();
+        assertEquals(rubrica.getContactList(), caricata.getContactList());
+        assertEquals("Gallo", caricata.getContactList().get(0).getCognome());
+        assertArrayEquals(numeri, caricata.getContactList().get(0).getNumeri());
+    }
+
+    @Test
+    void testCodaIncompleta() throws Exception {
+
+        System.out.println("PersistenzaRubrica coda incompleta Test");
+
+        PersistenzaRubrica persistenza = new PersistenzaRubrica(nomeSnapshot);
+        Rubrica rubrica = persistenza.apri();
+        rubrica.aggiungiContatto(crea("Rossi", "Mario"));
+        persistenza.close();
+
+        // un record interrotto durante la scrittura viene scartato
+        long dimensione = Files.size(Paths.get(nomeGiornale));
+        Files.write(Paths.get(nomeGiornale), new byte[]{0, 0, 0, 40, 1, 5}, StandardOpenOption.APPEND);
+
+        persistenza = new PersistenzaRubrica(nomeSnapshot);
+        rubrica = persistenza.apri();
+        assertEquals(1, rubrica.getContactList().size());
+        assertEquals(dimensione, Files.size(Paths.get(nomeGiornale)));
+
+        // le modifiche successive vengono accodate ai record integri
+        rubrica.aggiungiContatto(crea("Verdi", "Anna"));
+        persistenza.close();
+        assertEquals(2, new PersistenzaRubrica(nomeSnapshot).apri().getContactList().size());
+    }
+
+    @Test
+    void testGiornaleDiUnAltroSnapshot() throws Exception {
+
+        System.out.println("PersistenzaRubrica giornale superato Test");
+
+        PersistenzaRubrica persistenza = new PersistenzaRubrica(nomeSnapshot);
+        Rubrica rubrica = persistenza.apri();
+        Contatto mario = crea("Rossi", "Mario");
+        rubrica.aggiungiContatto(mario);
+        rubrica.modificaNominativo(mario, "Marco", "Rossi");
+        byte[] vecchioGiornale = Files.readAllBytes(Paths.get(nomeGiornale));
+
+        // le modifiche sono incluse nel nuovo snapshot: il vecchio giornale non deve essere riapplicato
+        persistenza.compatta();
+        persistenza.close();
+        Files.write(Paths.get(nomeGiornale), vecchioGiornale);
+
+        Rubrica caricata = new PersistenzaRubrica(nomeSnapshot).apri();
+        assertEquals(1, caricata.getContactList().size());
+        assertEquals("Marco", caricata.getContactList().get(0).getNome());
+    }
+}
@@ -9,8 +9,13 @@ import gestioneRubrica.Contatto;
 import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -66,8 +71,86 @@ public class RubricaTest {
         rubrica1.aggiungiContatto(contatto1);
          
         //verifica se la rubrica contiene il contatto inserito in precedenza
-        assertTrue(rubrica1.getContactList().contains(contatto1));  
-            
+        assertTrue(rubrica1.getContactList().contains(contatto1));
+
+    }
+
+    /**
+     * Test dell'inserimento ordinato e del controllo duplicati del metodo aggiungiContatto.
+     */
+    @Test
+    public void testAggiungiContattoOrdinato() {
+
+        System.out.println("aggiungiContatto ordinato Test");
+
+        Contatto contatto3 = new Contatto();
+        contatto3.setNome("Mario");
+        contatto3.setCognome("Bianchi");
+
+        Contatto duplicato = new Contatto();
+        duplicato.setNome("Lorenzo");
+        duplicato.setCognome("Cibellis");
+
+        // il nuovo contatto deve essere inserito in testa, il duplicato deve essere rifiutato
+        assertEquals(0, rubrica.aggiungiContatto(contatto3));
+        assertEquals(1, rubrica.aggiungiContatto(duplicato));
+
+        assertEquals(3, rubrica.getContactList().size());
+        assertSame(contatto3, rubrica.getContactList().get(0));
+        assertSame(contatto1, rubrica.getContactList().get(1));
+        assertSame(contatto2, rubrica.getContactList().get(2));
+    }
+
+    /**
+     * Test del metodo aggiungiContatti, della classe Rubrica.
+     */
+    @Test
+    public void testAggiungiContatti() {
+
+        System.out.println("aggiungiContatti Test");
+
+        Contatto contatto3 = new Contatto();
+        contatto3.setNome("Mario");
+        contatto3.setCognome("Rossi");
+
+        Contatto contatto4 = new Contatto();
+        contatto4.setNome("Anna");
+        contatto4.setCognome("Bianchi");
+
+        Contatto duplicato = new Contatto();
+        duplicato.setNome("Mario");
+        duplicato.setCognome("Rossi");
+
+        // conteggio degli eventi di modifica generati dalla lista osservabile
+        int[] eventi = {0};
+        rubrica.getContactList().addListener((ListChangeListener<Contatto>) c -> eventi[0]++);
+
+        int[] esiti = rubrica.aggiungiContatti(Arrays.asList(contatto3, contatto1, contatto4, duplicato, null));
+
+        assertArrayEquals(new int[]{0, 1, 0, 1, 2}, esiti);
+        assertEquals(1, eventi[0]);
+        assertEquals(Arrays.asList(contatto4, contatto1, contatto2, contatto3), rubrica.getContactList());
+    }
+
+    /**
+     * Test dei metodi contieneNominativo e modificaNominativo, della classe Rubrica.
+     */
+    @Test
+    public void testModificaNominativo() {
+
+        System.out.println("modificaNominativo Test");
+
+        assertTrue(rubrica.contieneNominativo("Lorenzo", "Cibellis"));
+
+        // la modifica verso un nominativo già presente deve essere rifiutata
+        assertFalse(rubrica.modificaNominativo(contatto1, "Christian", "De Cesare"));
+
+        // dopo la modifica il contatto deve essere riordinato e l'indice aggiornato
+        assertTrue(rubrica.modificaNominativo(contatto1, "Lorenzo", "Rossi"));
+        assertFalse(rubrica.contieneNominativo("Lorenzo", "Cibellis"));
+        assertTrue(rubrica.contieneNominativo("Lorenzo", "Rossi"));
+        assertSame(contatto2, rubrica.getContactList().get(0));
+        assertSame(contatto1, rubrica.getContactList().get(1));
     }
 
     /**
@@ -91,6 +174,53 @@ public class RubricaTest {
         assertFalse(rubrica1.getContactList().contains(contatto1));  
     }
 
+    /**
+     * Test del metodo rimuoviContatto con molti contatti, della classe Rubrica.
+     */
+    @Test
+    void testRimuoviContattiMultipli() {
+
+        System.out.println("rimuoviContatto multiplo Test");
+
+        for (int i = 0; i < 100; i++) {
+            Contatto c = new Contatto();
+            c.setNome("Nome" + i);
+            c.setCognome((i % 2 == 0 ? "Pari" : "Dispari") + i);
+            rubrica.aggiungiContatto(c);
+        }
+
+        int[] eventi = new int[1];
+        rubrica.getContactList().addListener((ListChangeListener<Contatto>) change -> eventi[0]++);
+
+        // la lista passata è una vista della rubrica stessa, che cambia durante la rimozione
+        rubrica.impostaRicerca("pari");
+        assertTrue(rubrica.rimuoviContatto(rubrica.getVistaRicerca()));
+
+        // la rimozione produce un solo evento e aggiorna lista, vista e indici
+        assertEquals(1, eventi[0]);
+        assertEquals(52, rubrica.getContactList().size());
+        assertTrue(rubrica.getVistaRicerca().isEmpty());
+        assertFalse(rubrica.contieneNominativo("Nome0", "Pari0"));
+        assertTrue(rubrica.contieneNominativo("Nome1", "Dispari1"));
+        assertTrue(rubrica.ricercaContatti("pari").getContactList().isEmpty());
+        assertEquals(50, rubrica.ricercaContatti("dis").getContactList().size());
+
+        // i contatti rimossi possono essere inseriti di nuovo
+        Contatto c = new Contatto();
+        c.setNome("Nome0");
+        c.setCognome("Pari0");
+        assertEquals(0, rubrica.aggiungiContatto(c));
+        assertFalse(rubrica.rimuoviContatto(Arrays.asList(new Contatto())));
+
+        // come in removeAll, un'istanza diversa con lo stesso nominativo rimuove il contatto della rubrica
+        Contatto uguale = new Contatto();
+        uguale.setNome("Nome0");
+        uguale.setCognome("Pari0");
+        assertTrue(rubrica.rimuoviContatto(Arrays.asList(uguale)));
+        assertFalse(rubrica.getContactList().contains(c));
+        assertEquals(0, rubrica.aggiungiContatto(c));
+    }
+
     /**
      * Test del metodo getContactList, della classe Rubrica.
      */
@@ -142,6 +272,231 @@ public class RubricaTest {
     }
 
 
+    /**
+     * Test del metodo ricercaContatti dopo modifiche e rimozioni, della classe Rubrica.
+     */
+    @Test
+    void testRicercaContattiAggiornata() {
+
+        System.out.println("RicercaContatti aggiornata Test");
+
+        // la ricerca per cognome non distingue maiuscole e minuscole
+        assertEquals(Arrays.asList(contatto2), rubrica.ricercaContatti("de c").getContactList());
+
+        // dopo la modifica del nominativo la ricerca deve trovare il nuovo cognome e non il vecchio
+        rubrica.modificaNominativo(contatto2, "Christian", "Cesari");
+        assertTrue(rubrica.ricercaContatti("De").getContactList().isEmpty());
+        assertEquals(Arrays.asList(contatto2, contatto1), rubrica.ricercaContatti("C").getContactList());
+
+        // dopo la rimozione il contatto non deve più essere trovato
+        rubrica.rimuoviContatto(FXCollections.observableArrayList(contatto1));
+        assertEquals(Arrays.asList(contatto2), rubrica.ricercaContatti("c").getContactList());
+    }
+
+    /**
+     * Test del metodo ricercaContatti dopo rinomine in entrambe le direzioni dell'ordinamento, della classe Rubrica.
+     */
+    @Test
+    void testRicercaDopoRinomine() {
+
+        System.out.println("RicercaContatti rinomine Test");
+
+        List<Contatto> contatti = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Contatto c = new Contatto();
+            c.setNome("Nome" + i);
+            c.setCognome("Cognome" + (char) ('a' + i % 26));
+            contatti.add(c);
+        }
+        rubrica.aggiungiContatti(contatti);
+
+        // rinomine verso l'inizio e verso la fine dell'indice, anche con la sola differenza di maiuscole
+        for (int i = 0; i < 50; i += 3)
+            assertTrue(rubrica.modificaNominativo(contatti.get(i), "Zeno" + i, i % 2 == 0 ? "Abate" : "Zanna"));
+        assertTrue(rubrica.modificaNominativo(contatto2, "christian", "de cesare"));
+
+        // l'indice deve dare gli stessi risultati di un filtro sull'intera rubrica
+        for (String s : Arrays.asList("", "a", "ab", "z", "ze", "zeno1", "nome", "cognomeb", "de", "lor"))
+            assertEquals(rubrica.getContactList().filtered(Rubrica.corrispondenzaPrefisso(s)), rubrica.ricercaContatti(s).getContactList());
+    }
+
+    /**
+     * Test della ricerca senza distinzione tra lettere accentate, della classe Rubrica.
+     */
+    @Test
+    void testRicercaSenzaAccenti() {
+
+        System.out.println("Ricerca senza accenti Test");
+
+        Contatto contatto3 = new Contatto();
+        contatto3.setNome("Nicolò");
+        contatto3.setCognome("Società");
+        rubrica.aggiungiContatto(contatto3);
+
+        // la ricerca deve trovare il contatto sia con che senza accenti, nell'indice e nella vista
+        assertEquals(Arrays.asList(contatto3), rubrica.ricercaContatti("nicolo").getContactList());
+        assertEquals(Arrays.asList(contatto3), rubrica.ricercaContatti("SOCIETÀ").getContactList());
+        rubrica.impostaRicerca("nicolo");
+        assertEquals(Arrays.asList(contatto3), rubrica.getVistaRicerca());
+    }
+
+    /**
+     * Test dei metodi impostaRicerca e getVistaRicerca, della classe Rubrica.
+     */
+    @Test
+    void testVistaRicerca() {
+
+        System.out.println("VistaRicerca Test");
+
+        rubrica.impostaRicerca("lor");
+        assertEquals(Arrays.asList(contatto1), rubrica.getVistaRicerca());
+
+        // un contatto aggiunto alla rubrica deve comparire nella vista se corrisponde alla ricerca
+        Contatto contatto3 = new Contatto();
+        contatto3.setNome("Lorena");
+        contatto3.setCognome("Abate");
+        rubrica.aggiungiContatto(contatto3);
+        assertEquals(Arrays.asList(contatto3, contatto1), rubrica.getVistaRicerca());
+
+        // con la stringa vuota la vista mostra tutta la rubrica
+        rubrica.impostaRicerca("");
+        assertEquals(rubrica.getContactList(), rubrica.getVistaRicerca());
+    }
+
+    /**
+     * Test della ricerca incrementale tramite impostaRicerca, della classe Rubrica.
+     */
+    @Test
+    void testRicercaIncrementale() {
+
+        System.out.println("RicercaIncrementale Test");
+
+        // ricerca digitata un carattere alla volta: ogni ricerca restringe i risultati della precedente
+        rubrica.impostaRicerca("c");
+        assertEquals(Arrays.asList(contatto1, contatto2), rubrica.getVistaRicerca());
+        rubrica.impostaRicerca("ci");
+        assertEquals(Arrays.asList(contatto1), rubrica.getVistaRicerca());
+
+        // un contatto aggiunto durante la ricerca deve comparire in tutti i livelli corrispondenti
+        Contatto contatto3 = new Contatto();
+        contatto3.setNome("Cinzia");
+        contatto3.setCognome("Abate");
+        rubrica.aggiungiContatto(contatto3);
+        assertEquals(Arrays.asList(contatto3, contatto1), rubrica.getVistaRicerca());
+
+        // cancellando un carattere si torna ai risultati della ricerca più corta
+        rubrica.impostaRicerca("C");
+        assertEquals(Arrays.asList(contatto3, contatto1, contatto2), rubrica.getVistaRicerca());
+
+        // una ricerca che non estende la precedente riparte dall'intera rubrica
+        rubrica.impostaRicerca("lor");
+        assertEquals(Arrays.asList(contatto1), rubrica.getVistaRicerca());
+        rubrica.impostaRicerca("");
+        assertEquals(rubrica.getContactList(), rubrica.getVistaRicerca());
+    }
+
+    /**
+     * Test dell'allineamento del primo livello della ricerca, ricavato dall'indice, alle modifiche della rubrica.
+     */
+    @Test
+    void testRicercaAllineataAlleModifiche() {
+
+        System.out.println("RicercaIncrementale allineamento Test");
+
+        // contatti che non corrispondono alla ricerca, così i risultati sono ricavati dall'indice
+        List<Contatto> altri = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Contatto c = new Contatto();
+            c.setNome("Mario" + i);
+            c.setCognome("Rossi");
+            altri.add(c);
+        }
+        rubrica.aggiungiContatti(altri);
+
+        rubrica.impostaRicerca("c");
+
+        // contatto equivalente a uno esistente: segue quello già presente, come nella lista
+        Contatto equivalente = new Contatto();
+        equivalente.setNome("lorenzo");
+        equivalente.setCognome("cibellis");
+        rubrica.aggiungiContatto(equivalente);
+        assertEquals(Arrays.asList(contatto1, equivalente, contatto2), rubrica.getVistaRicerca());
+
+        // rinomina: il contatto esce dai risultati e, con un nominativo corrispondente, rientra nella nuova posizione
+        assertTrue(rubrica.modificaNominativo(contatto2, "Christian", "Bruno"));
+        assertEquals(Arrays.asList(contatto2, contatto1, equivalente), rubrica.getVistaRicerca());
+        assertTrue(rubrica.modificaNominativo(contatto2, "Marco", "Bruno"));
+        assertEquals(Arrays.asList(contatto1, equivalente), rubrica.getVistaRicerca());
+
+        // modifiche in blocco, che ricostruiscono il livello
+        List<Contatto> nuovi = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Contatto c = new Contatto();
+            c.setNome("Carlo" + i);
+            c.setCognome("Verdi");
+            nuovi.add(c);
+        }
+        rubrica.aggiungiContatti(nuovi);
+        assertEquals(42, rubrica.getVistaRicerca().size());
+        rubrica.rimuoviContatto(nuovi);
+        rubrica.rimuoviContatto(Arrays.asList(equivalente));
+        assertEquals(Arrays.asList(contatto1), rubrica.getVistaRicerca());
+
+        // stessi risultati di un filtro sull'intera rubrica
+        rubrica.impostaRicerca("ci");
+        assertEquals(rubrica.getContactList().filtered(Rubrica.corrispondenzaPrefisso("ci")), rubrica.getVistaRicerca());
+    }
+
+    /**
+     * Test della ricerca calcolata in background, con modifiche della rubrica durante il calcolo, della classe Rubrica.
+     */
+    @Test
+    void testRicercaInBackground() throws Exception {
+
+        System.out.println("RicercaIncrementale background Test");
+
+        // rubrica abbastanza grande da calcolare in background le ricerche ampie
+        List<Contatto> altri = new ArrayList<>();
+        for (int i = 0; i < 40000; i++) {
+            Contatto c = new Contatto();
+            c.setNome("Mario" + i);
+            c.setCognome("Rossi");
+            altri.add(c);
+        }
+        rubrica.aggiungiContatti(altri);
+
+        // coda delle operazioni destinate al thread che modifica la rubrica (il thread del test)
+        LinkedBlockingQueue<Runnable> threadRubrica = new LinkedBlockingQueue<>();
+        rubrica.setThreadRicerca(threadRubrica::add);
+
+        // la vista resta vuota finché i risultati non vengono pubblicati
+        rubrica.impostaRicerca("ro");
+        assertTrue(rubrica.getVistaRicerca().isEmpty());
+
+        // modifiche durante il calcolo: aggiunta, rimozione e rinomina fuori e dentro i risultati
+        Contatto nuovo = new Contatto();
+        nuovo.setNome("Anna");
+        nuovo.setCognome("Romano");
+        rubrica.aggiungiContatto(nuovo);
+        rubrica.rimuoviContatto(Arrays.asList(altri.get(0)));
+        assertTrue(rubrica.modificaNominativo(altri.get(1), "Mario1", "Bianchi"));
+        assertTrue(rubrica.modificaNominativo(contatto1, "Lorenzo", "Rota"));
+
+        threadRubrica.poll(10, TimeUnit.SECONDS).run();
+        assertEquals(rubrica.getContactList().filtered(Rubrica.corrispondenzaPrefisso("ro")), rubrica.getVistaRicerca());
+        assertEquals(40000, rubrica.getVistaRicerca().size());
+
+        // una ricerca cambiata prima della pubblicazione annulla il calcolo, i cui risultati vengono scartati
+        rubrica.impostaRicerca("");
+        rubrica.impostaRicerca("ma");
+        rubrica.impostaRicerca("b");
+        assertEquals(Arrays.asList(altri.get(1)), rubrica.getVistaRicerca());
+        Runnable scartato = threadRubrica.poll(100, TimeUnit.MILLISECONDS);
+        if (scartato != null)
+            scartato.run();
+        assertEquals(Arrays.asList(altri.get(1)), rubrica.getVistaRicerca());
+    }
+
     /**
      * Test del metodo importaRubrica, della classe Rubrica.
      */
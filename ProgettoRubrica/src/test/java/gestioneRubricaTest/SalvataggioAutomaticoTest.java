@@ -0,0 +1,163 @@
+package gestioneRubricaTest;
+
+import gestioneRubrica.Contatto;
+import gestioneRubrica.PersistenzaRubrica;
+import gestioneRubrica.Rubrica;
+import gestioneRubrica.SalvataggioAutomatico;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del salvataggio automatico in background.
+ */
+public class SalvataggioAutomaticoTest {
+
+    // Nomi dei file temporanei usati dai test
+    private final String nomeSnapshot = "rubrica_salvataggio_test.snapshot";
+    private final String nomeGiornale = nomeSnapshot + ".giornale";
+
+    // Coda delle operazioni destinate al thread che modifica la rubrica (il thread del test)
+    private final LinkedBlockingQueue<Runnable> threadRubrica = new LinkedBlockingQueue<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        // Eliminazione dei file di test temporanei
+        Files.deleteIfExists(Paths.get(nomeSnapshot));
+        Files.deleteIfExists(Paths.get(nomeGiornale));
+    }
+
+    private static Contatto crea(int i) {
+        Contatto c = new Contatto();
+        c.setCognome("Rossi");
+        c.setNome("Mario" + i);
+        return c;
+    }
+
+    private void eseguiOperazioni() {
+        Runnable r;
+        while ((r = threadRubrica.poll()) != null)
+            r.run();
+    }
+
+    @Test
+    void testAccorpamentoModifiche() throws Exception {
+
+        System.out.println("SalvataggioAutomatico accorpamento Test");
+
+        long intervallo = 200;
+        PersistenzaRubrica persistenza = new PersistenzaRubrica(nomeSnapshot);
+        Rubrica rubrica = persistenza.apri();
+        SalvataggioAutomatico salvataggio = new SalvataggioAutomatico(persistenza, rubrica, intervallo, threadRubrica::add);
+
+        // modifica continua per circa un secondo
+        long inizio = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            rubrica.aggiungiContatto(crea(i));
+            eseguiOperazioni();
+            Thread.sleep(10);
+        }
+        long durata = System.currentTimeMillis() - inizio;
+
+        // il primo salvataggio è immediato, i successivi avvengono al più una volta per intervallo
+        Thread.sleep(2 * intervallo);
+        eseguiOperazioni();
+        Thread.sleep(intervallo);
+        assertTrue(salvataggio.getSalvataggi() >= 2);
+        assertTrue(salvataggio.getSalvataggi() <= 2 + durata / intervallo);
+
+        salvataggio.close();
+        assertEquals(rubrica.getContactList(), new PersistenzaRubrica(nomeSnapshot).apri().getContactList());
+    }
+
+    @Test
+    void testSalvataggioAllaChiusura() throws Exception {
+
+        System.out.println("SalvataggioAutomatico chiusura Test");
+
+        PersistenzaRubrica persistenza = new PersistenzaRubrica(nomeSnapshot);
+        Rubrica rubrica = persistenza.apri();
+        SalvataggioAutomatico salvataggio = new SalvataggioAutomatico(persistenza, rubrica, 60 * 60 * 1000, threadRubrica::add);
+
+        // modifiche successive al primo salvataggio, che resta in attesa della copia della lista
+        for (int i = 0; i < 10; i++)
+            rubrica.aggiungiContatto(crea(i));
+        rubrica.rimuoviContatto(rubrica.getContactList().subList(0, 1));
+
+        // la chiusura salva la rubrica per intero e lascia il giornale vuoto
+        salvataggio.close();
+        eseguiOperazioni();
+        assertEquals(20, Files.size(Paths.get(nomeGiornale)));
+        assertEquals(9, Rubrica.caricaSnapshot(nomeSnapshot).getContactList().size());
+        assertEquals(rubrica.getContactList(), new PersistenzaRubrica(nomeSnapshot).apri().getContactList());
+    }
+
+    @Test
+    void testSostituzione() throws Exception {
+
+        System.out.println("SalvataggioAutomatico sostituzione Test");
+
+        PersistenzaRubrica persistenza = new PersistenzaRubrica(nomeSnapshot);
+        Rubrica rubrica = persistenza.apri();
+        SalvataggioAutomatico salvataggio = new SalvataggioAutomatico(persistenza, rubrica, 60 * 60 * 1000, threadRubrica::add);
+
+        // salvataggio della rubrica precedente in attesa della copia della lista
+        for (int i = 0; i < 10; i++)
+            rubrica.aggiungiContatto(crea(i));
+
+        Rubrica nuova = new Rubrica();
+        for (int i = 10; i < 15; i++)
+            nuova.aggiungiContatto(crea(i));
+        salvataggio.sostituisci(nuova);
+
+        // le modifiche della nuova rubrica vengono salvate, quelle della precedente no
+        nuova.aggiungiContatto(crea(15));
+        rubrica.aggiungiContatto(crea(16));
+        eseguiOperazioni();
+
+        salvataggio.close();
+        eseguiOperazioni();
+        assertEquals(nuova.getContactList(), new PersistenzaRubrica(nomeSnapshot).apri().getContactList());
+    }
+
+    @Test
+    void testRinominaDuranteLaScrittura() throws Exception {
+
+        System.out.println("SalvataggioAutomatico rinomina durante la scrittura Test");
+
+        PersistenzaRubrica persistenza = new PersistenzaRubrica(nomeSnapshot);
+        Rubrica rubrica = persistenza.apri();
+        SalvataggioAutomatico salvataggio = new SalvataggioAutomatico(persistenza, rubrica, 60 * 60 * 1000, threadRubrica::add);
+
+        Rubrica nuova = new Rubrica();
+        Contatto anna = new Contatto();
+        anna.setCognome("Bianchi");
+        anna.setNome("Anna");
+        Contatto luca = new Contatto();
+        luca.setCognome("Rossi");
+        luca.setNome("Luca");
+        nuova.aggiungiContatti(Arrays.asList(anna, luca));
+
+        // la scrittura dello snapshot attende il monitor di persistenza: la rinomina avviene tra la copia e la scrittura
+        synchronized (persistenza) {
+            salvataggio.sostituisci(nuova);
+            nuova.modificaNominativo(anna, "Anna", "Zeta");
+        }
+
+        // interruzione dopo la scrittura, senza il salvataggio della chiusura
+        while (salvataggio.getSalvataggi() == 0)
+            Thread.sleep(10);
+        persistenza.close();
+
+        // lo snapshot contiene il contatto com'era alla copia, il giornale la sua rinomina
+        Rubrica caricata = new PersistenzaRubrica(nomeSnapshot).apri();
+        assertEquals(nuova.getContactList(), caricata.getContactList());
+        assertEquals("Zeta", caricata.getContactList().get(1).getCognome());
+        assertTrue(caricata.rimuoviContatto(Collections.singletonList(caricata.getContactList().get(1))));
+    }
+}
@@ -0,0 +1,79 @@
+package gestioneRubricaTest;
+
+import gestioneRubrica.Contatto;
+import gestioneRubrica.Rubrica;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del formato binario SnapshotRubrica.
+ */
+public class SnapshotRubricaTest {
+
+    // Nome del file temporaneo usato dai test
+    private final String nomefile = "rubrica_snapshot_test.bin";
+
+    @AfterEach
+    void tearDown() throws Exception {
+        // Eliminazione del file di test temporaneo
+        Files.deleteIfExists(Paths.get(nomefile));
+    }
+
+    @Test
+    void testSalvaECarica() throws Exception {
+
+        System.out.println("SnapshotRubrica Test");
+
+        // contatti con campi vuoti, caratteri non ASCII, cognomi ripetuti e un campo più lungo del buffer di scrittura
+        Rubrica rubrica = new Rubrica();
+        StringBuilder lungo = new StringBuilder();
+        for (int i = 0; i < 40000; i++)
+            lungo.append('è');
+        for (int i = 0; i < 500; i++) {
+            Contatto c = new Contatto();
+            c.setCognome(i % 3 == 0 ? "Şahin" : "Rossi");
+            c.setNome("Nome" + i);
+            c.setNumero3(Integer.toString(i));
+            c.setEmail1(i == 42 ? lungo.toString() : "");
+            rubrica.aggiungiContatto(c);
+        }
+        rubrica.salvaSnapshot(nomefile);
+
+        // i contatti caricati sono uguali e nello stesso ordine, e la ricerca funziona sui contatti caricati
+        Rubrica caricata = Rubrica.caricaSnapshot(nomefile);
+        assertEquals(rubrica.getContactList(), caricata.getContactList());
+        for (int i = 0; i < rubrica.getContactList().size(); i++) {
+            assertArrayEquals(rubrica.getContactList().get(i).getNumeri(), caricata.getContactList().get(i).getNumeri());
+            assertArrayEquals(rubrica.getContactList().get(i).getEmails(), caricata.getContactList().get(i).getEmails());
+        }
+        assertEquals(167, caricata.ricercaContatti("sahin").getContactList().size());
+        assertFalse(Files.exists(Paths.get(nomefile + ".tmp")));
+    }
+
+    @Test
+    void testSnapshotDanneggiato() throws Exception {
+
+        System.out.println("SnapshotRubrica danneggiato Test");
+
+        Rubrica rubrica = new Rubrica();
+        Contatto c = new Contatto();
+        c.setCognome("Rossi");
+        c.setNome("Mario");
+        rubrica.aggiungiContatto(c);
+        rubrica.salvaSnapshot(nomefile);
+
+        // la modifica di un solo byte dei dati deve essere rilevata dal checksum
+        byte[] contenuto = Files.readAllBytes(Paths.get(nomefile));
+        contenuto[18] ^= 1;
+        Files.write(Paths.get(nomefile), contenuto);
+        assertThrows(IOException.class, () -> Rubrica.caricaSnapshot(nomefile));
+
+        // un file CSV non è uno snapshot
+        rubrica.esportaRubrica(nomefile);
+        assertThrows(IOException.class, () -> Rubrica.caricaSnapshot(nomefile));
+    }
+}
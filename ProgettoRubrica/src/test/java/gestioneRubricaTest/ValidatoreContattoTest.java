@@ -0,0 +1,85 @@
+package gestioneRubricaTest;
+
+import gestioneRubrica.Contatto;
+import gestioneRubrica.ValidatoreContatto;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test delle regole di validità ValidatoreContatto.
+ */
+public class ValidatoreContattoTest {
+
+    private static Contatto crea(String cognome, String nome, String numero, String email) {
+        Contatto c = new Contatto();
+        c.setCognome(cognome);
+        c.setNome(nome);
+        c.setNumero2(numero);
+        c.setEmail3(email);
+        return c;
+    }
+
+    @Test
+    void testEmailComeEspressioneRegolare() {
+
+        System.out.println("ValidatoreContatto email Test");
+
+        // la scansione deve coincidere con l'espressione regolare usata in precedenza dall'interfaccia
+        Pattern pattern = Pattern.compile("^[a-zA-Z-.0-9]+@[a-z]+[.]+[a-zA-Z]{2,}$");
+        String[] casi = {"", "mario@gmail.com", "mario.rossi-1@libero.it", "Mario@Gmail.com", "mario@gmail..COM",
+            "mario@gmail.c", "@gmail.com", "mario@.com", "mario@gmail", "mario@@gmail.com", "mario@a.b.com",
+            "ma rio@gmail.com", "mario_rossi@gmail.com", "mario@gmail.com\n", "niccolò@gmail.com"};
+        for (String caso : casi)
+            assertEquals(caso.isEmpty() || pattern.matcher(caso).matches(), ValidatoreContatto.emailValida(caso), caso);
+
+        // stringhe casuali composte dai caratteri significativi per l'espressione
+        char[] alfabeto = {'a', 'z', 'A', 'Z', '0', '9', '-', '.', '@', '_', ' ', 'à'};
+        Random random = new Random(25);
+        for (int i = 0; i < 200000; i++) {
+            char[] caratteri = new char[1 + random.nextInt(10)];
+            for (int j = 0; j < caratteri.length; j++)
+                caratteri[j] = alfabeto[random.nextInt(alfabeto.length)];
+            String caso = new String(caratteri);
+            assertEquals(pattern.matcher(caso).matches(), ValidatoreContatto.emailValida(caso), caso);
+        }
+    }
+
+    @Test
+    void testNumeriENominativi() {
+
+        System.out.println("ValidatoreContatto numeri e nominativi Test");
+
+        assertTrue(ValidatoreContatto.numeroValido(""));
+        assertTrue(ValidatoreContatto.numeroValido("0123456789"));
+        assertFalse(ValidatoreContatto.numeroValido("012345678"));
+        assertFalse(ValidatoreContatto.numeroValido("01234567890"));
+        assertFalse(ValidatoreContatto.numeroValido("01234 6789"));
+
+        assertTrue(ValidatoreContatto.nominativoValido("Mario", ""));
+        assertTrue(ValidatoreContatto.nominativoValido("", "Élise"));
+        assertFalse(ValidatoreContatto.nominativoValido("1Mario", "Rossi"));
+        assertFalse(ValidatoreContatto.nominativoValido("Mario", " Rossi"));
+
+        assertTrue(ValidatoreContatto.recapitiValidi(new String[]{"0123456789", "", ""}, new String[]{"", "a@b.it", ""}));
+        assertFalse(ValidatoreContatto.recapitiValidi(new String[]{"", "", "123"}, new String[]{"", "", ""}));
+        assertFalse(ValidatoreContatto.recapitiValidi(new String[]{"", "", ""}, new String[]{"", "", "a@b"}));
+    }
+
+    @Test
+    void testValido() {
+
+        System.out.println("ValidatoreContatto contatto Test");
+
+        assertTrue(ValidatoreContatto.valido(crea("Rossi", "Mario", "0123456789", "mario@gmail.com")));
+        assertTrue(ValidatoreContatto.valido(crea("", "Anna", "", "")));
+        assertTrue(ValidatoreContatto.valido(crea("Verdi", "", "", "")));
+
+        // nominativo vuoto, numero o indirizzo errato, nominativo che non inizia con una lettera
+        assertFalse(ValidatoreContatto.valido(crea("", "", "", "")));
+        assertFalse(ValidatoreContatto.valido(crea("Bianchi", "Luca", "123", "")));
+        assertFalse(ValidatoreContatto.valido(crea("Neri", "Sara", "", "sara@")));
+        assertFalse(ValidatoreContatto.valido(crea("3Neri", "", "", "")));
+    }
+}
@@ -0,0 +1,102 @@
+package gestioneRubricaTest;
+
+import gestioneRubrica.ArchivioColonnare;
+import gestioneRubrica.Contatto;
+import gestioneRubrica.VistaArchivio;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test della vista a pagine VistaArchivio.
+ */
+public class VistaArchivioTest {
+
+    private ArchivioColonnare archivio;
+
+    // Letture anticipate richieste dalla vista, eseguite manualmente dal test
+    private final List<Runnable> precaricamenti = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        archivio = new ArchivioColonnare();
+        for (int i = 0; i < 1000; i++) {
+            Contatto c = new Contatto();
+            c.setCognome(String.format("Cognome%04d", i));
+            c.setNome("Nome" + i);
+            archivio.aggiungi(c);
+        }
+    }
+
+    private void eseguiPrecaricamenti() {
+        List<Runnable> daEseguire = new ArrayList<>(precaricamenti);
+        precaricamenti.clear();
+        daEseguire.forEach(Runnable::run);
+    }
+
+    @Test
+    void testPagineInCache() {
+
+        System.out.println("VistaArchivio cache Test");
+
+        VistaArchivio vista = new VistaArchivio(archivio, 100, 3, precaricamenti::add);
+        assertEquals(1000, vista.size());
+
+        // le righe di una pagina in cache restano gli stessi oggetti
+        Contatto primo = vista.get(5);
+        assertEquals(archivio.get(5), primo);
+        assertSame(primo, vista.get(5));
+        assertEquals("Cognome0099", vista.get(99).getCognome());
+
+        // scorrendo oltre la dimensione della cache, le pagine meno recenti vengono scartate e rilette
+        for (int i = 100; i < 500; i++)
+            assertEquals(archivio.get(i), vista.get(i));
+        int lette = vista.getPagineLette();
+        assertNotSame(primo, vista.get(5));
+        assertEquals(lette + 1, vista.getPagineLette());
+
+        assertThrows(IndexOutOfBoundsException.class, () -> vista.get(1000));
+    }
+
+    @Test
+    void testLetturaAnticipata() {
+
+        System.out.println("VistaArchivio lettura anticipata Test");
+
+        VistaArchivio vista = new VistaArchivio(archivio, 100, 4, precaricamenti::add);
+
+        // scorrendo verso il fondo viene letta in anticipo la pagina successiva
+        vista.get(0);
+        assertEquals(1, precaricamenti.size());
+        eseguiPrecaricamenti();
+        assertEquals(2, vista.getPagineLette());
+        for (int i = 0; i < 200; i++)
+            vista.get(i);
+        assertEquals(2, vista.getPagineLette());
+        eseguiPrecaricamenti();
+        assertEquals(3, vista.getPagineLette());
+        vista.get(250);
+        assertEquals(3, vista.getPagineLette());
+
+        // dopo un salto, scorrendo verso l'inizio viene letta in anticipo la pagina precedente
+        vista.get(950);
+        vista.get(850);
+        eseguiPrecaricamenti();
+        int lette = vista.getPagineLette();
+        for (int i = 899; i >= 700; i--)
+            assertEquals(archivio.get(i), vista.get(i));
+        assertEquals(lette, vista.getPagineLette());
+        eseguiPrecaricamenti();
+        vista.get(650);
+        assertEquals(lette + 1, vista.getPagineLette());
+
+        // nessuna lettura anticipata oltre i limiti dell'archivio
+        vista.get(999);
+        vista.get(0);
+        vista.get(999);
+        eseguiPrecaricamenti();
+        assertTrue(precaricamenti.isEmpty());
+    }
+}